@@ -29,6 +29,8 @@ import ro.pippo.core.route.Route;
 import ro.pippo.core.route.RouteContext;
 import ro.pippo.core.route.RouteHandler;
 import ro.pippo.core.route.RouteMatch;
+import ro.pippo.core.timing.Phase;
+import ro.pippo.core.timing.PhaseTimings;
 import ro.pippo.core.util.LangUtils;
 import ro.pippo.core.util.StringUtils;
 
@@ -99,8 +101,11 @@ public class ControllerRouteHandler implements RouteHandler {
             }
 
             log.trace("Processing '{}' interceptors", LangUtils.toString(controllerMethod));
+            PhaseTimings phaseTimings = routeContext.getResponse().getPhaseTimings();
             int preInterceptStatus = routeContext.getResponse().getStatus();
+            long start = phaseTimings.start(Phase.INTERCEPTORS);
             processRouteInterceptors(routeContext);
+            phaseTimings.stop(Phase.INTERCEPTORS, start);
             int postInterceptStatus = routeContext.getResponse().getStatus();
             if (routeContext.getResponse().isCommitted()) {
                 log.debug("Response committed by interceptor");
@@ -117,7 +122,9 @@ public class ControllerRouteHandler implements RouteHandler {
             }
 
             log.trace("Preparing '{}' parameters from request", LangUtils.toString(controllerMethod));
+            start = phaseTimings.start(Phase.EXTRACTION);
             Object[] values = prepareMethodParameters(routeContext);
+            phaseTimings.stop(Phase.EXTRACTION, start);
 
             log.trace("Invoking '{}'", LangUtils.toString(controllerMethod));
 
@@ -15,6 +15,10 @@
  */
 package ro.pippo.core;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import ro.pippo.core.route.RouteDispatcher;
+
 import java.util.EventListener;
 import java.util.List;
 import java.util.concurrent.CopyOnWriteArrayList;
@@ -24,6 +28,8 @@ import java.util.concurrent.CopyOnWriteArrayList;
  */
 public abstract class AbstractWebServer<T extends WebServerSettings> implements WebServer<T> {
 
+    private static final Logger log = LoggerFactory.getLogger(AbstractWebServer.class);
+
     protected PippoFilter pippoFilter;
     protected String pippoFilterPath;
 
@@ -87,4 +93,33 @@ public abstract class AbstractWebServer<T extends WebServerSettings> implements
         return this;
     }
 
+    /**
+     * Returns the {@link RouteDispatcher} that serves the requests (available after the server was started).
+     */
+    protected RouteDispatcher getRouteDispatcher() {
+        return (pippoFilter != null) ? pippoFilter.getRouteDispatcher() : null;
+    }
+
+    /**
+     * Waits (maximum {@link WebServerSettings#getShutdownTimeout()}) for the in-flight requests to complete.
+     * The server must stop to accept new requests before calling this method.
+     */
+    protected void awaitInFlightRequests() {
+        long timeout = getSettings().getShutdownTimeout();
+        RouteDispatcher routeDispatcher = getRouteDispatcher();
+        if ((timeout <= 0) || (routeDispatcher == null)) {
+            return;
+        }
+
+        int count = routeDispatcher.getInFlightRequests();
+        if (count > 0) {
+            log.info("Waiting for {} in-flight request(s) to complete", count);
+        }
+
+        if (!routeDispatcher.awaitInFlightRequests(timeout)) {
+            log.warn("Shutdown timeout of {} ms elapsed with {} in-flight request(s)", timeout,
+                routeDispatcher.getInFlightRequests());
+        }
+    }
+
 }
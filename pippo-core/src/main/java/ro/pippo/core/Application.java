@@ -29,6 +29,7 @@ import ro.pippo.core.route.RoutePostDispatchListenerList;
 import ro.pippo.core.route.RoutePreDispatchListenerList;
 import ro.pippo.core.route.RouteTransformer;
 import ro.pippo.core.route.Router;
+import ro.pippo.core.timing.PhaseTimingsListenerList;
 import ro.pippo.core.util.HttpCacheToolkit;
 import ro.pippo.core.util.MimeTypes;
 import ro.pippo.core.util.ServiceLocator;
@@ -69,6 +70,7 @@ public class Application implements ResourceRouting {
 
     private RoutePreDispatchListenerList routePreDispatchListeners;
     private RoutePostDispatchListenerList routePostDispatchListeners;
+    private PhaseTimingsListenerList phaseTimingsListeners;
 
     private Map<String, Object> locals;
     private RouteHandler notFoundRouteHandler;
@@ -117,6 +119,9 @@ public class Application implements ResourceRouting {
 
     public final void destroy() {
         onDestroy();
+        if (requestResponseFactory != null) {
+            requestResponseFactory.destroy();
+        }
         for (Initializer initializer : initializers) {
             log.debug("Destroying '{}'", initializer.getClass().getName());
             try {
@@ -320,6 +325,17 @@ public class Application implements ResourceRouting {
         return routePostDispatchListeners;
     }
 
+    /**
+     * The listeners of the request phase timings (see {@link ro.pippo.core.timing.PhaseTimings}).
+     */
+    public PhaseTimingsListenerList getPhaseTimingsListeners() {
+        if (phaseTimingsListeners == null) {
+            phaseTimingsListeners = new PhaseTimingsListenerList();
+        }
+
+        return phaseTimingsListeners;
+    }
+
     public Map<String, Object> getLocals() {
         if (locals == null) {
             locals = new HashMap<>();
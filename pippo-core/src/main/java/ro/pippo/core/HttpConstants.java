@@ -98,6 +98,10 @@ public final class HttpConstants {
         public static final String HOST = "Host";
         public static final String LAST_MODIFIED = "Last-Modified";
         public static final String LOCATION = "Location";
+        public static final String RETRY_AFTER = "Retry-After";
+        public static final String SERVER_TIMING = "Server-Timing";
+
+        public static final String X_ALLOCATED_BYTES = "X-Allocated-Bytes";
 
         private Header() {
             // restrict instantiation
@@ -61,6 +61,22 @@ public final class PippoConstants {
 
     public static final String SETTING_SERVER_TRUSTSTORE_PASSWORD = "server.truststorePassword";
 
+    public static final String SETTING_SERVER_SHUTDOWN_TIMEOUT = "server.shutdownTimeout";
+
+    public static final String SETTING_HTTP_SERVER_TIMING = "http.serverTiming";
+
+    public static final String SETTING_HTTP_ALLOCATED_BYTES = "http.allocatedBytes";
+
+    public static final String SETTING_JFR_ENABLED = "jfr.enabled";
+
+    public static final String SETTING_SLOW_REQUEST_THRESHOLD = "slowRequest.threshold";
+
+    public static final String SETTING_SLOW_REQUEST_SAMPLES = "slowRequest.samples";
+
+    public static final String SETTING_SLOW_REQUEST_SAMPLE_INTERVAL = "slowRequest.sampleInterval";
+
+    public static final String SETTING_SLOW_REQUEST_MAX_REPORTS_PER_MINUTE = "slowRequest.maxReportsPerMinute";
+
     public static final String REQUEST_PARAMETER_LANG = "lang";
 
     public static final String REQUEST_PARAMETER_LOCALE = "locale";
@@ -157,12 +157,20 @@ public class PippoFilter implements Filter {
         return application;
     }
 
+    public RouteDispatcher getRouteDispatcher() {
+        return routeDispatcher;
+    }
+
     public void setApplication(Application application) {
         this.application = application;
     }
 
     @Override
     public void destroy() {
+        if (routeDispatcher != null) {
+            routeDispatcher.destroy();
+        }
+
         if (application != null) {
             try {
                 application.destroy();
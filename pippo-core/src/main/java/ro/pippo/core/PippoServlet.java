@@ -65,6 +65,10 @@ public class PippoServlet extends HttpServlet {
         return application;
     }
 
+    public RouteDispatcher getRouteDispatcher() {
+        return routeDispatcher;
+    }
+
     @Override
     public void init(ServletConfig servletConfig) {
         if (System.getProperty("pippo.hideLogo") == null) {
@@ -135,6 +139,10 @@ public class PippoServlet extends HttpServlet {
 
     @Override
     public void destroy() {
+        if (routeDispatcher != null) {
+            routeDispatcher.destroy();
+        }
+
         if (application != null) {
             try {
                 application.destroy();
@@ -559,7 +559,7 @@ public final class Request {
         }
 
         // preserve the flash data
-        Flash flash = session.getFlash();
+        Flash flash = session.get("flash");
 
         // create a new session
         resetSession();
@@ -39,4 +39,10 @@ public class RequestResponseFactory {
         return new RequestResponse(request, response);
     }
 
+    /**
+     * Releases the resources of the factory. It's called when the application is destroyed.
+     */
+    public void destroy() {
+    }
+
 }
@@ -18,8 +18,13 @@ package ro.pippo.core;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import ro.pippo.core.gzip.GZipResponseWrapper;
+import ro.pippo.core.jfr.JfrSupport;
+import ro.pippo.core.jfr.RenderEvent;
+import ro.pippo.core.jfr.SerializationEvent;
 import ro.pippo.core.route.RouteContext;
 import ro.pippo.core.route.RouteDispatcher;
+import ro.pippo.core.timing.Phase;
+import ro.pippo.core.timing.PhaseTimings;
 import ro.pippo.core.util.DateUtils;
 import ro.pippo.core.util.IoUtils;
 import ro.pippo.core.util.MimeTypes;
@@ -35,6 +40,7 @@ import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.StringWriter;
 import java.io.Writer;
+import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.util.Collection;
 import java.util.Date;
@@ -61,6 +67,8 @@ public final class Response {
 
     private int status;
     private boolean chunked;
+    private boolean jfr;
+    private PhaseTimings phaseTimings = PhaseTimings.DISABLED;
 
     public Response(HttpServletResponse httpServletResponse, Application application) {
         this.httpServletResponse = httpServletResponse;
@@ -70,6 +78,7 @@ public final class Response {
         this.contextPath = application.getRouter().getContextPath();
         this.applicationPath = StringUtils.removeEnd(application.getRouter().getApplicationPath(), "/");
         this.mimeTypes = application.getMimeTypes();
+        this.jfr = JfrSupport.isEnabled(application.getPippoSettings());
 
         this.status = 0;
     }
@@ -914,7 +923,20 @@ public final class Response {
         }
 
         header(HttpConstants.Header.CONTENT_TYPE, contentTypeEngine.getContentType());
-        send(contentTypeEngine.toString(object));
+        SerializationEvent serializationEvent = null;
+        if (jfr) {
+            serializationEvent = new SerializationEvent();
+            serializationEvent.begin();
+        }
+        long start = phaseTimings.start(Phase.SERIALIZATION);
+        String content = contentTypeEngine.toString(object);
+        phaseTimings.stop(Phase.SERIALIZATION, start);
+        if ((serializationEvent != null) && serializationEvent.shouldCommit()) {
+            serializationEvent.contentType = contentTypeEngine.getContentType();
+            serializationEvent.bytes = content.getBytes(Charset.forName(getCharacterEncoding())).length;
+            serializationEvent.commit();
+        }
+        send(content);
     }
 
     /**
@@ -1050,7 +1072,19 @@ public final class Response {
 
         // render the template using the merged model
         StringWriter stringWriter = new StringWriter();
+        RenderEvent renderEvent = null;
+        if (jfr) {
+            renderEvent = new RenderEvent();
+            renderEvent.begin();
+        }
+        long start = phaseTimings.start(Phase.RENDER);
         templateEngine.renderResource(templateName, model, stringWriter);
+        phaseTimings.stop(Phase.RENDER, start);
+        if ((renderEvent != null) && renderEvent.shouldCommit()) {
+            renderEvent.engine = templateEngine.getClass().getSimpleName();
+            renderEvent.template = templateName;
+            renderEvent.commit();
+        }
 
         return stringWriter.toString();
     }
@@ -1088,7 +1122,7 @@ public final class Response {
 
         try {
             if (content != null) {
-                contentLength(content.toString().getBytes().length);
+                contentLength(content.toString().getBytes(Charset.forName(getCharacterEncoding())).length);
                 httpServletResponse.getWriter().append(content);
             }
             log.trace("Response committed");
@@ -1134,6 +1168,17 @@ public final class Response {
         }
     }
 
+    /**
+     * Returns the phase timings of the request ({@link PhaseTimings#DISABLED} if the phases are not timed).
+     */
+    public PhaseTimings getPhaseTimings() {
+        return phaseTimings;
+    }
+
+    public void setPhaseTimings(PhaseTimings phaseTimings) {
+        this.phaseTimings = phaseTimings;
+    }
+
     public ResponseFinalizeListenerList getFinalizeListeners() {
         if (finalizeListeners == null) {
             finalizeListeners = new ResponseFinalizeListenerList();
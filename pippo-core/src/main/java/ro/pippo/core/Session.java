@@ -70,11 +70,17 @@ public class Session {
         remove("__touch");
     }
 
+    /**
+     * Returns the outgoing flash (the flash messages for the next request).
+     * The flash is put again in session on each call because the session storage
+     * cannot detect the messages added to an existing flash instance.
+     */
     public Flash getFlash() {
         Flash flash = get(FLASH);
         if (flash == null) {
-            put(FLASH, flash = new Flash());
+            flash = new Flash();
         }
+        put(FLASH, flash);
 
         return flash;
     }
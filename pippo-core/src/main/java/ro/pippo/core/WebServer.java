@@ -92,6 +92,11 @@ public interface WebServer<T extends WebServerSettings> {
 
     void start();
 
+    /**
+     * Stops the server gracefully: the server stops to accept new requests, waits
+     * (maximum {@link WebServerSettings#getShutdownTimeout()}) for the in-flight requests to complete
+     * and after that it destroys the application.
+     */
     void stop();
 
     /**
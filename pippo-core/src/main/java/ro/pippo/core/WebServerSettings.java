@@ -25,6 +25,7 @@ public class WebServerSettings implements Serializable {
     private static final long serialVersionUID = 1L;
 
     private static final int DEFAULT_PORT = 8338;
+    private static final long DEFAULT_SHUTDOWN_TIMEOUT = 30000;
 
     private String host = "localhost";
     private int port = DEFAULT_PORT;
@@ -33,6 +34,7 @@ public class WebServerSettings implements Serializable {
     private String keystorePassword;
     private String truststoreFile;
     private String truststorePassword;
+    private long shutdownTimeout = DEFAULT_SHUTDOWN_TIMEOUT;
 
     public WebServerSettings(PippoSettings pippoSettings) {
         this.port = pippoSettings.getInteger(PippoConstants.SETTING_SERVER_PORT, DEFAULT_PORT);
@@ -42,6 +44,7 @@ public class WebServerSettings implements Serializable {
         this.keystorePassword = pippoSettings.getString(PippoConstants.SETTING_SERVER_KEYSTORE_PASSWORD, keystorePassword);
         this.truststoreFile = pippoSettings.getString(PippoConstants.SETTING_SERVER_TRUSTSTORE_FILE, truststoreFile);
         this.truststorePassword = pippoSettings.getString(PippoConstants.SETTING_SERVER_TRUSTSTORE_PASSWORD, truststorePassword);
+        this.shutdownTimeout = pippoSettings.getLong(PippoConstants.SETTING_SERVER_SHUTDOWN_TIMEOUT, shutdownTimeout);
     }
 
     public String getHost() {
@@ -114,4 +117,18 @@ public class WebServerSettings implements Serializable {
         return this;
     }
 
+    /**
+     * The maximum time (in milliseconds) to wait for the in-flight requests to complete
+     * when the server is stopped. A value of zero (or negative) disables the graceful shutdown.
+     */
+    public long getShutdownTimeout() {
+        return shutdownTimeout;
+    }
+
+    public WebServerSettings shutdownTimeout(long shutdownTimeout) {
+        this.shutdownTimeout = shutdownTimeout;
+
+        return this;
+    }
+
 }
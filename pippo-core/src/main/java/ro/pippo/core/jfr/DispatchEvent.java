@@ -0,0 +1,53 @@
+/*
+ * Copyright (C) 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ro.pippo.core.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A JFR event that spans the dispatch of a request by {@link ro.pippo.core.route.RouteDispatcher},
+ * from the route matching to the commit of the response.
+ * The event is emitted on the thread that handles the request, so the allocation and lock events
+ * of the same thread can be correlated with it.
+ *
+ * @author agent
+ */
+@Name("ro.pippo.Dispatch")
+@Label("Request Dispatch")
+@Description("The dispatch of a request to its routes")
+@Category("Pippo")
+@StackTrace(false)
+public class DispatchEvent extends Event {
+
+    @Label("Method")
+    public String method;
+
+    @Label("Path")
+    public String path;
+
+    @Label("Route")
+    @Description("The URI pattern of the route that handled the request")
+    public String route;
+
+    @Label("Status")
+    public int status;
+
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright (C) 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ro.pippo.core.jfr;
+
+import jdk.jfr.EventType;
+import ro.pippo.core.Request;
+import ro.pippo.core.timing.Phase;
+import ro.pippo.core.timing.PhaseTimings;
+
+/**
+ * Phase timings that emit a {@link PhaseEvent} for each phase of a request.
+ * The event begins when the phase starts and is committed when it stops, so it has the real
+ * start time and duration of the phase on the recording timeline.
+ * A phase that is started again before it's stopped (nested) is a single event.
+ *
+ * @author agent
+ */
+public class JfrPhaseTimings extends PhaseTimings {
+
+    private static final EventType EVENT_TYPE = EventType.getEventType(PhaseEvent.class);
+
+    private final String method;
+    private final String path;
+    private final PhaseEvent[] events = new PhaseEvent[Phase.values().length];
+    private final int[] depths = new int[events.length];
+
+    public JfrPhaseTimings(Request request) {
+        this.method = request.getMethod();
+        this.path = request.getPath();
+    }
+
+    /**
+     * Returns true if a running recording has the {@link PhaseEvent} enabled.
+     */
+    public static boolean isRecording() {
+        return EVENT_TYPE.isEnabled();
+    }
+
+    @Override
+    public long start(Phase phase) {
+        int index = phase.ordinal();
+        if (depths[index]++ == 0) {
+            PhaseEvent event = new PhaseEvent();
+            event.begin();
+            events[index] = event;
+        }
+
+        return super.start(phase);
+    }
+
+    @Override
+    public void stop(Phase phase, long start) {
+        super.stop(phase, start);
+
+        int index = phase.ordinal();
+        if ((depths[index] > 0) && (--depths[index] == 0)) {
+            PhaseEvent event = events[index];
+            events[index] = null;
+            event.end();
+            if (event.shouldCommit()) {
+                event.method = method;
+                event.path = path;
+                event.phase = phase.getName();
+                event.commit();
+            }
+        }
+    }
+
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright (C) 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ro.pippo.core.jfr;
+
+import ro.pippo.core.PippoConstants;
+import ro.pippo.core.PippoSettings;
+
+/**
+ * Tells if the Java Flight Recorder API ({@code jdk.jfr}, JDK 8u262 or newer) is available.
+ * The classes of this package that extend {@code jdk.jfr.Event} must be used only if it's available.
+ *
+ * @author agent
+ */
+public class JfrSupport {
+
+    private static final boolean AVAILABLE = isClassAvailable("jdk.jfr.Event");
+
+    private JfrSupport() {
+        // restrict instantiation
+    }
+
+    public static boolean isAvailable() {
+        return AVAILABLE;
+    }
+
+    /**
+     * Returns true if the events are available and not disabled with {@link PippoConstants#SETTING_JFR_ENABLED}.
+     */
+    public static boolean isEnabled(PippoSettings pippoSettings) {
+        return pippoSettings.getBoolean(PippoConstants.SETTING_JFR_ENABLED, true) && isAvailable();
+    }
+
+    private static boolean isClassAvailable(String className) {
+        try {
+            Class.forName(className, false, JfrSupport.class.getClassLoader());
+            return true;
+        } catch (ClassNotFoundException | LinkageError e) {
+            return false;
+        }
+    }
+
+}
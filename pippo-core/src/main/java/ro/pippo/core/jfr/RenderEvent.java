@@ -0,0 +1,43 @@
+/*
+ * Copyright (C) 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ro.pippo.core.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A JFR event that spans the rendering of a template by a {@link ro.pippo.core.TemplateEngine}.
+ *
+ * @author agent
+ */
+@Name("ro.pippo.Render")
+@Label("Template Rendering")
+@Description("The rendering of a template")
+@Category("Pippo")
+@StackTrace(false)
+public class RenderEvent extends Event {
+
+    @Label("Engine")
+    public String engine;
+
+    @Label("Template")
+    public String template;
+
+}
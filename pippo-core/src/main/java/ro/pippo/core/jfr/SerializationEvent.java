@@ -0,0 +1,45 @@
+/*
+ * Copyright (C) 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ro.pippo.core.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A JFR event that spans the serialization of an object by a {@link ro.pippo.core.ContentTypeEngine}.
+ *
+ * @author agent
+ */
+@Name("ro.pippo.Serialization")
+@Label("Content Serialization")
+@Description("The serialization of an object by a content type engine")
+@Category("Pippo")
+@StackTrace(false)
+public class SerializationEvent extends Event {
+
+    @Label("Content Type")
+    public String contentType;
+
+    @Label("Bytes")
+    @DataAmount
+    public long bytes;
+
+}
@@ -0,0 +1,158 @@
+/*
+ * Copyright (C) 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ro.pippo.core.route;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import ro.pippo.core.HttpConstants;
+import ro.pippo.core.Response;
+
+import javax.servlet.http.HttpServletRequest;
+
+/**
+ * Handler that limits the number of concurrent requests using a {@link ConcurrencyLimiter}.
+ * When the limit is reached the request is rejected immediately with
+ * {@code 503 Service Unavailable} and a {@code Retry-After} header.
+ * <p>
+ * Used as a filter it protects all routes that follow it:
+ * <pre>
+ * ConcurrencyLimitHandler limitHandler = new ConcurrencyLimitHandler(new ConcurrencyLimiter());
+ * ALL("/api/.*", limitHandler);
+ * ALL("/admin/.*", limitHandler).bind(ConcurrencyLimitHandler.PRIORITY, ConcurrencyLimiter.Priority.CRITICAL);
+ * </pre>
+ * or it can protect only one route:
+ * <pre>
+ * GET("/search", new ConcurrencyLimitHandler(new ConcurrencyLimiter(), searchHandler));
+ * </pre>
+ * The priority of a request is given by the {@link #PRIORITY} attribute of the route
+ * ({@link ConcurrencyLimiter.Priority} or its name), the default is {@link ConcurrencyLimiter.Priority#NORMAL}.
+ * <p>
+ * A request takes at most one permit of a limiter: if several routes with the same limiter match
+ * a request, only the first one acquires a permit (with its priority), the others just continue the chain.
+ *
+ * @author agent
+ */
+public class ConcurrencyLimitHandler implements RouteHandler<RouteContext> {
+
+    private static final Logger log = LoggerFactory.getLogger(ConcurrencyLimitHandler.class);
+
+    public static final String PRIORITY = "concurrencyLimit.priority";
+
+    private final ConcurrencyLimiter limiter;
+    private final RouteHandler<RouteContext> handler;
+    // the request attribute set while a permit of the limiter is held
+    private final String acquiredAttribute;
+
+    private int retryAfter = 1; // in seconds
+
+    /**
+     * Creates a handler that limits the execution of the next routes.
+     */
+    public ConcurrencyLimitHandler(ConcurrencyLimiter limiter) {
+        this(limiter, null);
+    }
+
+    /**
+     * Creates a handler that limits the execution of the specified handler (a per route limit).
+     */
+    public ConcurrencyLimitHandler(ConcurrencyLimiter limiter, RouteHandler<RouteContext> handler) {
+        this.limiter = limiter;
+        this.handler = handler;
+
+        acquiredAttribute = "__concurrencyLimiter@" + Integer.toHexString(System.identityHashCode(limiter));
+    }
+
+    public ConcurrencyLimiter getLimiter() {
+        return limiter;
+    }
+
+    public int getRetryAfter() {
+        return retryAfter;
+    }
+
+    /**
+     * The value (in seconds) of the {@code Retry-After} header sent when a request is rejected.
+     */
+    public ConcurrencyLimitHandler retryAfter(int retryAfter) {
+        this.retryAfter = retryAfter;
+
+        return this;
+    }
+
+    @Override
+    public void handle(RouteContext routeContext) {
+        HttpServletRequest httpServletRequest = routeContext.getRequest().getHttpServletRequest();
+        if (httpServletRequest.getAttribute(acquiredAttribute) != null) {
+            // the request holds a permit of the limiter (acquired by a previous route)
+            execute(routeContext);
+
+            return;
+        }
+
+        ConcurrencyLimiter.Priority priority = getPriority(routeContext);
+        if (!limiter.tryAcquire(priority)) {
+            log.debug("Reject {} '{}' (concurrency limit {} reached)", routeContext.getRequestMethod(),
+                routeContext.getRequestUri(), limiter.getLimit());
+            onReject(routeContext);
+
+            return;
+        }
+
+        httpServletRequest.setAttribute(acquiredAttribute, Boolean.TRUE);
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            execute(routeContext);
+            failed = routeContext.getResponse().getStatus() >= 500;
+        } finally {
+            limiter.release(System.nanoTime() - start, failed);
+            httpServletRequest.removeAttribute(acquiredAttribute);
+        }
+    }
+
+    private void execute(RouteContext routeContext) {
+        if (handler != null) {
+            handler.handle(routeContext);
+        } else {
+            routeContext.next();
+        }
+    }
+
+    protected ConcurrencyLimiter.Priority getPriority(RouteContext routeContext) {
+        Route route = routeContext.getRoute();
+        Object value = (route != null) ? route.getAttribute(PRIORITY) : null;
+        if (value == null) {
+            return ConcurrencyLimiter.Priority.NORMAL;
+        }
+
+        if (value instanceof ConcurrencyLimiter.Priority) {
+            return (ConcurrencyLimiter.Priority) value;
+        }
+
+        return ConcurrencyLimiter.Priority.valueOf(value.toString().toUpperCase());
+    }
+
+    /**
+     * Sends the rejection response. Override it if you want to render an error page.
+     */
+    protected void onReject(RouteContext routeContext) {
+        Response response = routeContext.getResponse();
+        response.header(HttpConstants.Header.RETRY_AFTER, String.valueOf(retryAfter));
+        response.serviceUnavailable();
+        response.commit();
+    }
+
+}
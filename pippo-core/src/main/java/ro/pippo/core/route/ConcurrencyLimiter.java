@@ -0,0 +1,265 @@
+/*
+ * Copyright (C) 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ro.pippo.core.route;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A concurrency limiter whose limit adapts from the observed latency.
+ * <p>
+ * Two algorithms are available:
+ * <ul>
+ * <li>{@link Algorithm#GRADIENT} - the limit follows the ratio between the minimum (no load) latency
+ * and the current latency; when the latency grows (requests are queued somewhere) the limit decreases</li>
+ * <li>{@link Algorithm#AIMD} - additive increase (while the latency is below the threshold),
+ * multiplicative decrease (when the latency exceeds the threshold or the request failed)</li>
+ * </ul>
+ * <p>
+ * A request with a lower {@link Priority} can use only a fraction of the limit, so the requests
+ * with a higher priority are the last rejected.
+ *
+ * @author agent
+ */
+public class ConcurrencyLimiter {
+
+    private static final Logger log = LoggerFactory.getLogger(ConcurrencyLimiter.class);
+
+    public enum Algorithm {
+
+        GRADIENT,
+        AIMD
+
+    }
+
+    public enum Priority {
+
+        CRITICAL(1.0),
+        NORMAL(0.9),
+        LOW(0.5);
+
+        private final double limitRatio;
+
+        Priority(double limitRatio) {
+            this.limitRatio = limitRatio;
+        }
+
+        /**
+         * The fraction of the limit that the requests with this priority can use.
+         */
+        public double getLimitRatio() {
+            return limitRatio;
+        }
+
+    }
+
+    private final Algorithm algorithm;
+
+    private int minLimit = 1;
+    private int maxLimit = 1000;
+    private double smoothing = 0.2;
+    private double tolerance = 2.0;
+    private double backoffRatio = 0.9;
+    private long latencyThreshold = TimeUnit.SECONDS.toNanos(1);
+    private long minLatencyWindow = TimeUnit.SECONDS.toNanos(30);
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final LongAdder accepted = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+
+    private volatile double limit;
+    private volatile long minLatency = Long.MAX_VALUE;
+    private volatile long minLatencyTimestamp;
+
+    public ConcurrencyLimiter() {
+        this(Algorithm.GRADIENT, 20);
+    }
+
+    public ConcurrencyLimiter(Algorithm algorithm, int initialLimit) {
+        this.algorithm = algorithm;
+        this.limit = initialLimit;
+    }
+
+    /**
+     * Tries to acquire a permit for a request with the given priority.
+     * If it returns true, {@link #release(long, boolean)} must be called when the request completed.
+     */
+    public boolean tryAcquire(Priority priority) {
+        int allowed = Math.max(minLimit, (int) (limit * priority.getLimitRatio()));
+        while (true) {
+            int current = inFlight.get();
+            if (current >= allowed) {
+                rejected.increment();
+
+                return false;
+            }
+
+            if (inFlight.compareAndSet(current, current + 1)) {
+                accepted.increment();
+
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Releases a permit and adjusts the limit.
+     *
+     * @param latency the duration of the request, in nanoseconds
+     * @param failed true if the request failed (it's considered a sign of overload)
+     */
+    public void release(long latency, boolean failed) {
+        int current = inFlight.getAndDecrement();
+        synchronized (this) {
+            double newLimit = (algorithm == Algorithm.AIMD) ? aimd(latency, failed, current) : gradient(latency, failed, current);
+            newLimit = Math.max(minLimit, Math.min(maxLimit, newLimit));
+            if ((int) newLimit != (int) limit) {
+                log.trace("Concurrency limit changed from {} to {}", (int) limit, (int) newLimit);
+            }
+            limit = newLimit;
+        }
+    }
+
+    public Algorithm getAlgorithm() {
+        return algorithm;
+    }
+
+    public int getLimit() {
+        return (int) limit;
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    public long getAcceptedCount() {
+        return accepted.sum();
+    }
+
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+
+    public ConcurrencyLimiter minLimit(int minLimit) {
+        this.minLimit = minLimit;
+
+        return this;
+    }
+
+    public ConcurrencyLimiter maxLimit(int maxLimit) {
+        this.maxLimit = maxLimit;
+
+        return this;
+    }
+
+    /**
+     * The weight of a new limit computed by the gradient algorithm (0 &lt; smoothing &lt;= 1).
+     */
+    public ConcurrencyLimiter smoothing(double smoothing) {
+        this.smoothing = smoothing;
+
+        return this;
+    }
+
+    /**
+     * The gradient algorithm accepts latencies up to {@code tolerance * minLatency} without decreasing the limit.
+     */
+    public ConcurrencyLimiter tolerance(double tolerance) {
+        this.tolerance = tolerance;
+
+        return this;
+    }
+
+    /**
+     * The ratio used by the AIMD algorithm to decrease the limit.
+     */
+    public ConcurrencyLimiter backoffRatio(double backoffRatio) {
+        this.backoffRatio = backoffRatio;
+
+        return this;
+    }
+
+    /**
+     * The latency above which the AIMD algorithm decreases the limit.
+     */
+    public ConcurrencyLimiter latencyThreshold(long latencyThreshold, TimeUnit unit) {
+        this.latencyThreshold = unit.toNanos(latencyThreshold);
+
+        return this;
+    }
+
+    /**
+     * The interval after which the minimum latency is measured again (the no load latency can change in time).
+     */
+    public ConcurrencyLimiter minLatencyWindow(long minLatencyWindow, TimeUnit unit) {
+        this.minLatencyWindow = unit.toNanos(minLatencyWindow);
+
+        return this;
+    }
+
+    @Override
+    public String toString() {
+        return "ConcurrencyLimiter{" +
+            "algorithm=" + algorithm +
+            ", limit=" + getLimit() +
+            ", inFlight=" + getInFlight() +
+            ", accepted=" + getAcceptedCount() +
+            ", rejected=" + getRejectedCount() +
+            '}';
+    }
+
+    private double gradient(long latency, boolean failed, int inFlight) {
+        if (failed) {
+            return limit * backoffRatio;
+        }
+
+        long now = System.nanoTime();
+        if ((latency < minLatency) || (now - minLatencyTimestamp > minLatencyWindow)) {
+            minLatency = Math.max(1, latency);
+            minLatencyTimestamp = now;
+        }
+
+        double gradient = Math.max(0.5, Math.min(1.0, tolerance * minLatency / latency));
+        if ((gradient >= 1.0) && (inFlight * 2 < limit)) {
+            // the limit is not used, don't grow it without any evidence
+            return limit;
+        }
+
+        // leave room for a small queue, so the limit can grow when the latency is stable
+        double queueSize = Math.sqrt(limit);
+        double newLimit = limit * gradient + queueSize;
+
+        return limit * (1 - smoothing) + newLimit * smoothing;
+    }
+
+    private double aimd(long latency, boolean failed, int inFlight) {
+        if (failed || (latency > latencyThreshold)) {
+            return limit * backoffRatio;
+        }
+
+        // increase only if the limit is used, otherwise the limit grows without any evidence
+        if (inFlight * 2 >= limit) {
+            return limit + 1;
+        }
+
+        return limit;
+    }
+
+}
@@ -21,8 +21,17 @@ import ro.pippo.core.Application;
 import ro.pippo.core.ErrorHandler;
 import ro.pippo.core.Flash;
 import ro.pippo.core.HttpConstants;
+import ro.pippo.core.PippoConstants;
+import ro.pippo.core.PippoSettings;
 import ro.pippo.core.Request;
 import ro.pippo.core.Response;
+import ro.pippo.core.jfr.DispatchEvent;
+import ro.pippo.core.jfr.JfrPhaseTimings;
+import ro.pippo.core.jfr.JfrSupport;
+import ro.pippo.core.timing.Phase;
+import ro.pippo.core.timing.PhaseTimings;
+import ro.pippo.core.timing.PhaseTimingsListenerList;
+import ro.pippo.core.util.AllocationUtils;
 import ro.pippo.core.util.ServiceLocator;
 
 import javax.servlet.ServletException;
@@ -30,6 +39,8 @@ import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * RouteDispatcher is the common core of Pippo route dispatching.
@@ -52,6 +63,14 @@ public class RouteDispatcher {
     private Router router;
     private ErrorHandler errorHandler;
     private RouteHandler notFoundRouteHandler;
+    private PhaseTimingsListenerList phaseTimingsListeners;
+    private boolean serverTiming;
+    private boolean allocatedBytesHeader;
+    private boolean jfr;
+    private SlowRequestWatchdog slowRequestWatchdog;
+
+    private final AtomicInteger inFlightRequests = new AtomicInteger();
+    private final Object inFlightMonitor = new Object();
 
     @SuppressWarnings("unchecked")
     public static <T extends RouteContext> T getRouteContext() {
@@ -74,11 +93,52 @@ public class RouteDispatcher {
         errorHandler = application.getErrorHandler();
         notFoundRouteHandler = application.getNotFoundRouteHandler();
 
+        phaseTimingsListeners = application.getPhaseTimingsListeners();
+        serverTiming = application.getPippoSettings().getBoolean(PippoConstants.SETTING_HTTP_SERVER_TIMING, false);
+        // a debug header, only in dev mode
+        allocatedBytesHeader = application.getPippoSettings().isDev() && AllocationUtils.isSupported()
+            && application.getPippoSettings().getBoolean(PippoConstants.SETTING_HTTP_ALLOCATED_BYTES, false);
+        jfr = JfrSupport.isEnabled(application.getPippoSettings());
+
+        slowRequestWatchdog = createSlowRequestWatchdog();
+        if (slowRequestWatchdog != null) {
+            slowRequestWatchdog.start();
+        }
+
         routeContextFactory = getRouteContextFactory();
         routeContextFactory.init(application);
         log.debug("RouteContext factory is '{}'", routeContextFactory.getClass().getName());
     }
 
+    public void destroy() {
+        if (slowRequestWatchdog != null) {
+            slowRequestWatchdog.stop();
+        }
+    }
+
+    /**
+     * Creates the slow requests watchdog if {@code slowRequest.threshold} is set.
+     *
+     * @return the watchdog or null
+     */
+    protected SlowRequestWatchdog createSlowRequestWatchdog() {
+        PippoSettings pippoSettings = application.getPippoSettings();
+        long threshold = pippoSettings.getDurationInMilliseconds(PippoConstants.SETTING_SLOW_REQUEST_THRESHOLD, 0);
+        if (threshold <= 0) {
+            return null;
+        }
+
+        int samples = pippoSettings.getInteger(PippoConstants.SETTING_SLOW_REQUEST_SAMPLES,
+            SlowRequestWatchdog.DEFAULT_SAMPLES);
+        long sampleInterval = pippoSettings.getDurationInMilliseconds(PippoConstants.SETTING_SLOW_REQUEST_SAMPLE_INTERVAL,
+            SlowRequestWatchdog.DEFAULT_SAMPLE_INTERVAL);
+        int maxReportsPerMinute = pippoSettings.getInteger(PippoConstants.SETTING_SLOW_REQUEST_MAX_REPORTS_PER_MINUTE,
+            SlowRequestWatchdog.DEFAULT_MAX_REPORTS_PER_MINUTE);
+        log.debug("Slow requests threshold is {} ms", threshold);
+
+        return new SlowRequestWatchdog(threshold, samples, sampleInterval, maxReportsPerMinute);
+    }
+
     protected RouteContextFactory<?> getRouteContextFactory() {
         RouteContextFactory<?> factory = ServiceLocator.locate(RouteContextFactory.class);
         if (factory == null) {
@@ -97,9 +157,99 @@ public class RouteDispatcher {
      * @throws ServletException
      */
     public void dispatch(Request request, Response response) throws IOException, ServletException {
-        onPreDispatch(request, response);
-        onRouteDispatch(request, response);
-        onPostDispatch(request, response);
+        inFlightRequests.incrementAndGet();
+        try {
+            PhaseTimings phaseTimings = startPhaseTimings(request, response);
+            if (allocatedBytesHeader) {
+                addAllocatedBytesHeader(response);
+            }
+            onPreDispatch(request, response);
+            onRouteDispatch(request, response);
+            onPostDispatch(request, response);
+            if (phaseTimings.isEnabled()) {
+                phaseTimingsListeners.onPhaseTimings(request, response, phaseTimings);
+            }
+        } finally {
+            if (inFlightRequests.decrementAndGet() == 0) {
+                synchronized (inFlightMonitor) {
+                    inFlightMonitor.notifyAll();
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the number of requests that are dispatched right now.
+     */
+    public int getInFlightRequests() {
+        return inFlightRequests.get();
+    }
+
+    /**
+     * Waits until all in-flight requests are completed or the timeout elapses.
+     * It's used by the web servers on graceful shutdown, after they stopped to accept new requests.
+     *
+     * @param timeout the maximum time to wait, in milliseconds
+     * @return true if there are no more in-flight requests
+     */
+    public boolean awaitInFlightRequests(long timeout) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+        synchronized (inFlightMonitor) {
+            while (inFlightRequests.get() > 0) {
+                long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                if (remaining <= 0) {
+                    return false;
+                }
+
+                try {
+                    inFlightMonitor.wait(remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Binds new phase timings to the response if there is a consumer for them
+     * (the Server-Timing header, an enabled {@link ro.pippo.core.timing.PhaseTimingsListener}
+     * or a flight recording with the phase events enabled).
+     *
+     * @param request
+     * @param response
+     * @return the phase timings of the request
+     */
+    protected PhaseTimings startPhaseTimings(Request request, Response response) {
+        // the phases are timed for JFR only while a flight recording is running
+        boolean jfrRecording = jfr && JfrPhaseTimings.isRecording();
+        if (!serverTiming && !jfrRecording && ((phaseTimingsListeners == null) || !phaseTimingsListeners.isEnabled())) {
+            return PhaseTimings.DISABLED;
+        }
+
+        PhaseTimings phaseTimings = jfrRecording ? new JfrPhaseTimings(request) : new PhaseTimings();
+        response.setPhaseTimings(phaseTimings);
+        if (serverTiming) {
+            // the header is set just before the response is committed
+            response.getFinalizeListeners().add(r -> r.getHttpServletResponse()
+                .setHeader(HttpConstants.Header.SERVER_TIMING, phaseTimings.toServerTiming()));
+        }
+
+        return phaseTimings;
+    }
+
+    /**
+     * Sets the {@code X-Allocated-Bytes} header with the memory allocated by the current thread
+     * from now until the response is committed.
+     *
+     * @param response
+     */
+    protected void addAllocatedBytesHeader(Response response) {
+        long allocatedBytes = AllocationUtils.getAllocatedBytes();
+        response.getFinalizeListeners().add(r -> r.getHttpServletResponse().setHeader(HttpConstants.Header.X_ALLOCATED_BYTES,
+            String.valueOf(AllocationUtils.getAllocatedBytes() - allocatedBytes)));
     }
 
     /**
@@ -133,10 +283,21 @@ public class RouteDispatcher {
             return;
         }
 
+        DispatchEvent dispatchEvent = null;
+        if (jfr) {
+            dispatchEvent = new DispatchEvent();
+            dispatchEvent.begin();
+        }
+        PhaseTimings phaseTimings = response.getPhaseTimings();
+        long start = phaseTimings.start(Phase.MATCH);
         List<RouteMatch> routeMatches = router.findRoutes(requestMethod, requestPath);
+        phaseTimings.stop(Phase.MATCH, start);
         RouteContext routeContext = routeContextFactory.createRouteContext(application, request, response, routeMatches);
         ROUTE_CONTEXT_THREAD_LOCAL.set(routeContext);
+        SlowRequestWatchdog.InFlightRequest inFlightRequest = (slowRequestWatchdog != null)
+            ? slowRequestWatchdog.begin(request, getUriPattern(routeMatches)) : null;
 
+        start = phaseTimings.start(Phase.HANDLER);
         try {
             if (routeMatches.isEmpty()) {
                 if (notFoundRouteHandler != null) {
@@ -170,6 +331,17 @@ public class RouteDispatcher {
             errorHandler.handle(e, routeContext);
         } finally {
             routeContext.runFinallyRoutes();
+            phaseTimings.stop(Phase.HANDLER, start);
+            if (inFlightRequest != null) {
+                slowRequestWatchdog.end(inFlightRequest);
+            }
+            if ((dispatchEvent != null) && dispatchEvent.shouldCommit()) {
+                dispatchEvent.method = requestMethod;
+                dispatchEvent.path = requestPath;
+                dispatchEvent.route = getUriPattern(routeMatches);
+                dispatchEvent.status = response.getStatus();
+                dispatchEvent.commit();
+            }
             log.debug("Returned status code {} for {} '{}'", response.getStatus(), requestMethod, requestPath);
             ROUTE_CONTEXT_THREAD_LOCAL.remove();
         }
@@ -203,22 +375,19 @@ public class RouteDispatcher {
     }
 
     /**
-     * Removes a Flash instance from the session, binds it to the RouteContext,
-     * and creates a new Flash instance.
+     * Removes the Flash instance (with messages) from the session and binds it to the RouteContext.
+     * The outgoing Flash instance is created by {@link ro.pippo.core.Session#getFlash()}, only when
+     * a flash message is added, so a request without flash messages doesn't modify the session.
      *
      * @param routeContext
      */
     private void processFlash(RouteContext routeContext) {
-        Flash flash = null;
-
-        if (routeContext.hasSession()) {
-            // get flash from session
-            flash = routeContext.removeSession("flash");
-            // put an empty flash (outgoing flash) in session; defense against session.get("flash")
-            routeContext.setSession("flash", new Flash());
-        }
-
-        if (flash == null) {
+        // get flash from session
+        Flash flash = routeContext.getSession("flash");
+        if ((flash != null) && !flash.isEmpty()) {
+            routeContext.removeSession("flash");
+        } else {
+            // an empty flash is left in session (removing it means a session write)
             flash = new Flash();
         }
 
@@ -226,4 +395,21 @@ public class RouteDispatcher {
         routeContext.setLocal("flash", flash);
     }
 
+    /**
+     * Returns the URI pattern of the first matched route with a specific request method
+     * (the route that handles the request, not a filter), or null if there is no such route.
+     *
+     * @param routeMatches
+     */
+    protected String getUriPattern(List<RouteMatch> routeMatches) {
+        for (RouteMatch routeMatch : routeMatches) {
+            Route route = routeMatch.getRoute();
+            if (!HttpConstants.Method.ALL.equals(route.getRequestMethod()) && !route.isRunAsFinally()) {
+                return route.getUriPattern();
+            }
+        }
+
+        return null;
+    }
+
 }
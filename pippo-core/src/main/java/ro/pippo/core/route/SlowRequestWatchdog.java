@@ -0,0 +1,261 @@
+/*
+ * Copyright (C) 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ro.pippo.core.route;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import ro.pippo.core.ParameterValue;
+import ro.pippo.core.Request;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tracks the in-flight requests of a {@link RouteDispatcher} and logs the requests that take
+ * longer than a threshold.
+ * <p>
+ * When a request exceeds the threshold, the stack of the thread that handles it is sampled
+ * a few times, at an interval. The report is logged (warn level) when all samples are taken
+ * or when the request completes, with the route, the parameters, the elapsed time and the
+ * distinct stacks (the consecutive identical samples are merged).
+ * At most {@code maxReportsPerMinute} reports are logged in a minute, the slow requests over
+ * this limit are only counted.
+ * <p>
+ * The tracking costs a map insert and remove per request; the stacks are taken by a single
+ * background thread. The request data of a report (method, path, parameters) is captured
+ * by the thread that handles the request, the watchdog never reads the {@link Request}
+ * (it can be recycled by the web server once completed).
+ *
+ * @author agent
+ */
+public class SlowRequestWatchdog {
+
+    private static final Logger log = LoggerFactory.getLogger(SlowRequestWatchdog.class);
+
+    public static final int DEFAULT_SAMPLES = 5;
+    public static final long DEFAULT_SAMPLE_INTERVAL = 100; // milliseconds
+    public static final int DEFAULT_MAX_REPORTS_PER_MINUTE = 6;
+
+    private static final long MINUTE = TimeUnit.MINUTES.toNanos(1);
+
+    private final long threshold;
+    private final int samples;
+    private final long sampleInterval;
+    private final int maxReportsPerMinute;
+
+    private final Set<InFlightRequest> inFlightRequests = ConcurrentHashMap.newKeySet();
+    // used only by the watchdog thread
+    private final List<InFlightRequest> sampledRequests = new ArrayList<>();
+    private long windowStart;
+    private int windowReports;
+    private int suppressedReports;
+
+    private ScheduledExecutorService executor;
+
+    public SlowRequestWatchdog(long threshold) {
+        this(threshold, DEFAULT_SAMPLES, DEFAULT_SAMPLE_INTERVAL, DEFAULT_MAX_REPORTS_PER_MINUTE);
+    }
+
+    /**
+     * @param threshold the duration (in milliseconds) after which a request is slow
+     * @param samples the number of stack samples of a slow request
+     * @param sampleInterval the interval (in milliseconds) between two stack samples
+     * @param maxReportsPerMinute the maximum number of reports logged in a minute
+     */
+    public SlowRequestWatchdog(long threshold, int samples, long sampleInterval, int maxReportsPerMinute) {
+        this.threshold = TimeUnit.MILLISECONDS.toNanos(threshold);
+        this.samples = samples;
+        this.sampleInterval = sampleInterval;
+        this.maxReportsPerMinute = maxReportsPerMinute;
+    }
+
+    public void start() {
+        windowStart = System.nanoTime();
+        executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "pippo-slow-request-watchdog");
+            thread.setDaemon(true);
+
+            return thread;
+        });
+        executor.scheduleWithFixedDelay(this::check, sampleInterval, sampleInterval, TimeUnit.MILLISECONDS);
+    }
+
+    public void stop() {
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+    }
+
+    /**
+     * Starts to track a request handled by the current thread.
+     *
+     * @param request
+     * @param uriPattern the URI pattern of the route that handles the request (can be null)
+     * @return the tracked request, pass it to {@link #end(InFlightRequest)}
+     */
+    public InFlightRequest begin(Request request, String uriPattern) {
+        InFlightRequest inFlightRequest = new InFlightRequest(Thread.currentThread(), request, uriPattern);
+        inFlightRequests.add(inFlightRequest);
+
+        return inFlightRequest;
+    }
+
+    public void end(InFlightRequest inFlightRequest) {
+        // the path parameters are set after begin
+        inFlightRequest.parameters = inFlightRequest.request.getParameters();
+        inFlightRequest.request = null;
+        inFlightRequest.endTime = System.nanoTime();
+        inFlightRequests.remove(inFlightRequest);
+    }
+
+    private void check() {
+        try {
+            long now = System.nanoTime();
+
+            // start to sample the new slow requests
+            for (InFlightRequest inFlightRequest : inFlightRequests) {
+                if (!inFlightRequest.seen && (now - inFlightRequest.startTime >= threshold)) {
+                    inFlightRequest.seen = true;
+                    if (acquireReport(now)) {
+                        sampledRequests.add(inFlightRequest);
+                    } else {
+                        suppressedReports++;
+                    }
+                }
+            }
+
+            Iterator<InFlightRequest> iterator = sampledRequests.iterator();
+            while (iterator.hasNext()) {
+                InFlightRequest inFlightRequest = iterator.next();
+                if (inFlightRequest.endTime == 0) {
+                    inFlightRequest.addSample(inFlightRequest.thread.getStackTrace());
+                }
+                if ((inFlightRequest.endTime != 0) || (inFlightRequest.sampleCount >= samples)) {
+                    iterator.remove();
+                    report(inFlightRequest, now);
+                }
+            }
+        } catch (Exception e) {
+            log.error("Cannot check the slow requests", e);
+        }
+    }
+
+    private boolean acquireReport(long now) {
+        if (now - windowStart >= MINUTE) {
+            windowStart = now;
+            windowReports = 0;
+        }
+
+        if (windowReports < maxReportsPerMinute) {
+            windowReports++;
+            return true;
+        }
+
+        return false;
+    }
+
+    private void report(InFlightRequest inFlightRequest, long now) {
+        long endTime = (inFlightRequest.endTime != 0) ? inFlightRequest.endTime : now;
+
+        StringBuilder builder = new StringBuilder();
+        builder.append("Slow request ").append(inFlightRequest.method).append(" '").append(inFlightRequest.path).append('\'');
+        builder.append(", route '").append(inFlightRequest.uriPattern).append('\'');
+        builder.append(", parameters ").append(inFlightRequest.parameters);
+        builder.append(", ").append(TimeUnit.NANOSECONDS.toMillis(endTime - inFlightRequest.startTime)).append(" ms");
+        builder.append((inFlightRequest.endTime != 0) ? " (completed)" : " (in progress)");
+        builder.append(", thread '").append(inFlightRequest.thread.getName()).append('\'');
+        if (suppressedReports > 0) {
+            builder.append(", ").append(suppressedReports).append(" slow requests not reported");
+            suppressedReports = 0;
+        }
+
+        List<StackTraceElement[]> stacks = inFlightRequest.stacks;
+        List<Integer> counts = inFlightRequest.counts;
+        for (int i = 0; i < stacks.size(); i++) {
+            builder.append(System.lineSeparator());
+            builder.append("Stack ").append(i + 1).append(" (").append(counts.get(i));
+            builder.append(" of ").append(inFlightRequest.sampleCount).append(" samples):");
+            for (StackTraceElement element : stacks.get(i)) {
+                builder.append(System.lineSeparator()).append("\tat ").append(element);
+            }
+        }
+
+        onReport(builder.toString());
+    }
+
+    /**
+     * Logs the report of a slow request.
+     */
+    protected void onReport(String report) {
+        log.warn(report);
+    }
+
+    /**
+     * A request tracked by the watchdog.
+     */
+    public static class InFlightRequest {
+
+        private final Thread thread;
+        private final String method;
+        private final String path;
+        private final String uriPattern;
+        private final long startTime;
+        // an immutable map, replaced on end
+        private volatile Map<String, ParameterValue> parameters;
+        private volatile long endTime;
+
+        // used only by the thread that handles the request
+        private Request request;
+
+        // used only by the watchdog thread
+        private boolean seen;
+        private int sampleCount;
+        private final List<StackTraceElement[]> stacks = new ArrayList<>();
+        private final List<Integer> counts = new ArrayList<>();
+
+        InFlightRequest(Thread thread, Request request, String uriPattern) {
+            this.thread = thread;
+            this.request = request;
+            this.method = request.getMethod();
+            this.path = request.getPath();
+            this.parameters = request.getParameters();
+            this.uriPattern = uriPattern;
+            this.startTime = System.nanoTime();
+        }
+
+        private void addSample(StackTraceElement[] stack) {
+            sampleCount++;
+            int last = stacks.size() - 1;
+            if ((last >= 0) && Arrays.equals(stacks.get(last), stack)) {
+                counts.set(last, counts.get(last) + 1);
+            } else {
+                stacks.add(stack);
+                counts.add(1);
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright (C) 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ro.pippo.core.timing;
+
+/**
+ * The phases of a request that are timed by {@link PhaseTimings}.
+ * The phases can be nested, for example {@link #RENDER} is a part of {@link #HANDLER}.
+ *
+ * @author agent
+ */
+public enum Phase {
+
+    /**
+     * Finding the routes that match the request.
+     */
+    MATCH("match"),
+
+    /**
+     * Executing the route handlers (includes the error handler).
+     */
+    HANDLER("handler"),
+
+    /**
+     * Executing the interceptors of a controller method.
+     */
+    INTERCEPTORS("interceptors"),
+
+    /**
+     * Extracting the parameters of a controller method from request.
+     */
+    EXTRACTION("extraction"),
+
+    /**
+     * Rendering a template.
+     */
+    RENDER("render"),
+
+    /**
+     * Serializing an object with a content type engine.
+     */
+    SERIALIZATION("serialization"),
+
+    /**
+     * Committing the session.
+     */
+    SESSION("session");
+
+    private final String name;
+
+    Phase(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+}
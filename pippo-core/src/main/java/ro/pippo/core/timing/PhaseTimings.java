@@ -0,0 +1,142 @@
+/*
+ * Copyright (C) 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ro.pippo.core.timing;
+
+import java.util.function.LongSupplier;
+
+/**
+ * The time spent by a request in each {@link Phase}.
+ * A phase is timed with a {@link System#nanoTime()} checkpoint:
+ * <pre>
+ * PhaseTimings phaseTimings = response.getPhaseTimings();
+ * long start = phaseTimings.start(Phase.RENDER);
+ * // work
+ * phaseTimings.stop(Phase.RENDER, start);
+ * </pre>
+ * If the timings are disabled ({@link #DISABLED}, the default for a response) the checkpoints do nothing.
+ * An instance is used by a single request (thread), so it's not thread safe.
+ * <p>
+ * A subclass can observe the phases when they happen (to emit events for example)
+ * by overriding {@link #start(Phase)} and {@link #stop(Phase, long)}.
+ *
+ * @author agent
+ */
+public class PhaseTimings {
+
+    /**
+     * The timings of a request when there is no consumer for them.
+     */
+    public static final PhaseTimings DISABLED = new PhaseTimings(false);
+
+    private static final Phase[] PHASES = Phase.values();
+
+    private final boolean enabled;
+    private final LongSupplier ticker;
+    private final long startTime;
+    private final long[] durations;
+
+    public PhaseTimings() {
+        this(System::nanoTime);
+    }
+
+    /**
+     * @param ticker the source of the time, in nanoseconds
+     */
+    protected PhaseTimings(LongSupplier ticker) {
+        this(true, ticker);
+    }
+
+    private PhaseTimings(boolean enabled) {
+        this(enabled, System::nanoTime);
+    }
+
+    private PhaseTimings(boolean enabled, LongSupplier ticker) {
+        this.enabled = enabled;
+        this.ticker = ticker;
+        this.startTime = enabled ? ticker.getAsLong() : 0;
+        this.durations = enabled ? new long[PHASES.length] : null;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Starts a phase and returns its start time (see {@link #stop(Phase, long)}).
+     */
+    public long start(Phase phase) {
+        return enabled ? ticker.getAsLong() : 0;
+    }
+
+    /**
+     * Adds the time elapsed from the start time to the duration of the phase.
+     */
+    public void stop(Phase phase, long start) {
+        if (enabled) {
+            durations[phase.ordinal()] += ticker.getAsLong() - start;
+        }
+    }
+
+    /**
+     * Returns the duration (in nanoseconds) of a phase, zero if the phase was not executed.
+     */
+    public long getDuration(Phase phase) {
+        return enabled ? durations[phase.ordinal()] : 0;
+    }
+
+    /**
+     * Returns the time (in nanoseconds) elapsed from the start of the request.
+     */
+    public long getElapsedTime() {
+        return enabled ? ticker.getAsLong() - startTime : 0;
+    }
+
+    /**
+     * Returns the value of a {@code Server-Timing} header with the executed phases and
+     * the total time (until now), in milliseconds.
+     * For example {@code match;dur=0.012, session;dur=0.350, total;dur=4.210}.
+     */
+    public String toServerTiming() {
+        StringBuilder builder = new StringBuilder(128);
+        for (Phase phase : PHASES) {
+            long duration = getDuration(phase);
+            if (duration > 0) {
+                appendMetric(builder, phase.getName(), duration);
+            }
+        }
+        appendMetric(builder, "total", getElapsedTime());
+
+        return builder.toString();
+    }
+
+    private static void appendMetric(StringBuilder builder, String name, long duration) {
+        if (builder.length() > 0) {
+            builder.append(", ");
+        }
+
+        long micros = duration / 1000;
+        long fraction = micros % 1000;
+        builder.append(name).append(";dur=").append(micros / 1000).append('.');
+        if (fraction < 100) {
+            builder.append('0');
+        }
+        if (fraction < 10) {
+            builder.append('0');
+        }
+        builder.append(fraction);
+    }
+
+}
@@ -0,0 +1,38 @@
+/*
+ * Copyright (C) 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ro.pippo.core.timing;
+
+import ro.pippo.core.Request;
+import ro.pippo.core.Response;
+
+/**
+ * Receives the {@link PhaseTimings} of each request, after dispatch.
+ * The phases are timed only if at least one listener is enabled.
+ *
+ * @author agent
+ */
+public interface PhaseTimingsListener {
+
+    /**
+     * Returns true if the listener wants the timings of the request that starts now.
+     */
+    default boolean isEnabled() {
+        return true;
+    }
+
+    void onPhaseTimings(Request request, Response response, PhaseTimings phaseTimings);
+
+}
@@ -0,0 +1,51 @@
+/*
+ * Copyright (C) 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ro.pippo.core.timing;
+
+import ro.pippo.core.Request;
+import ro.pippo.core.Response;
+import ro.pippo.core.util.ListenerList;
+
+/**
+ * @author agent
+ */
+public class PhaseTimingsListenerList extends ListenerList<PhaseTimingsListener>
+    implements PhaseTimingsListener {
+
+    @Override
+    public boolean isEnabled() {
+        for (PhaseTimingsListener listener : this) {
+            if (listener.isEnabled()) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    @Override
+    public void onPhaseTimings(final Request request, final Response response, final PhaseTimings phaseTimings) {
+        notify(new Notifier<PhaseTimingsListener>() {
+
+            @Override
+            public void notify(PhaseTimingsListener listener) {
+                listener.onPhaseTimings(request, response, phaseTimings);
+            }
+
+        });
+    }
+
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright (C) 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ro.pippo.core.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Reads the number of bytes allocated (in the heap) by the current thread, using the
+ * {@code com.sun.management.ThreadMXBean} extension of HotSpot (and OpenJ9).
+ * The difference between two readings is the memory allocated by the thread between them,
+ * for example by a request.
+ *
+ * @author agent
+ */
+public class AllocationUtils {
+
+    private static final Logger log = LoggerFactory.getLogger(AllocationUtils.class);
+
+    private static final com.sun.management.ThreadMXBean threadMXBean = getThreadMXBean();
+
+    private AllocationUtils() {}
+
+    /**
+     * Returns true if the JVM measures the memory allocated by each thread.
+     */
+    public static boolean isSupported() {
+        return threadMXBean != null;
+    }
+
+    /**
+     * Returns the number of bytes allocated by the current thread since it started,
+     * or -1 if the measurement is not supported.
+     */
+    public static long getAllocatedBytes() {
+        if (threadMXBean == null) {
+            return -1;
+        }
+
+        return threadMXBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    private static com.sun.management.ThreadMXBean getThreadMXBean() {
+        try {
+            java.lang.management.ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+            if (threadMXBean instanceof com.sun.management.ThreadMXBean) {
+                com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean) threadMXBean;
+                if (bean.isThreadAllocatedMemorySupported() && bean.isThreadAllocatedMemoryEnabled()) {
+                    return bean;
+                }
+            }
+        } catch (LinkageError e) {
+            // com.sun.management is not available
+        }
+
+        log.debug("The allocated memory per thread is not available");
+
+        return null;
+    }
+
+}
@@ -0,0 +1,45 @@
+/*
+ * Copyright (C) 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ro.pippo.core;
+
+import org.junit.Test;
+
+import javax.servlet.http.HttpSession;
+
+import static org.junit.Assert.assertSame;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+/**
+ * @author agent
+ */
+public class SessionTest {
+
+    @Test
+    public void testGetFlashPutsTheFlashInSession() {
+        HttpSession httpSession = mock(HttpSession.class);
+        Flash flash = new Flash();
+        doReturn(flash).when(httpSession).getAttribute("flash");
+
+        Session session = new Session(httpSession);
+        assertSame(flash, session.getFlash());
+
+        // the flash is put again, so the session storage knows that it was modified
+        verify(httpSession).setAttribute("flash", flash);
+    }
+
+}
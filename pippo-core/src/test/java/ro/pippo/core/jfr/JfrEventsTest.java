@@ -0,0 +1,119 @@
+/*
+ * Copyright (C) 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ro.pippo.core.jfr;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.Test;
+import ro.pippo.core.Application;
+import ro.pippo.core.PippoConstants;
+import ro.pippo.core.PippoSettings;
+import ro.pippo.core.Request;
+import ro.pippo.core.Response;
+import ro.pippo.core.RuntimeMode;
+import ro.pippo.core.route.RouteDispatcher;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * @author agent
+ */
+public class JfrEventsTest {
+
+    @Test
+    public void testEventsAreRecorded() throws Exception {
+        assumeTrue(JfrSupport.isAvailable());
+
+        Set<String> events = recordPippoEvents(new PippoSettings(RuntimeMode.DEV));
+
+        assertTrue(events.toString(), events.contains("ro.pippo.Dispatch"));
+        assertTrue(events.toString(), events.contains("ro.pippo.Phase"));
+        assertTrue(events.toString(), events.contains("ro.pippo.Serialization"));
+    }
+
+    @Test
+    public void testEventsAreDisabled() throws Exception {
+        assumeTrue(JfrSupport.isAvailable());
+
+        PippoSettings pippoSettings = new PippoSettings(RuntimeMode.DEV);
+        pippoSettings.overrideSetting(PippoConstants.SETTING_JFR_ENABLED, false);
+        Set<String> events = recordPippoEvents(pippoSettings);
+
+        assertEquals(Collections.emptySet(), events);
+    }
+
+    private Set<String> recordPippoEvents(PippoSettings pippoSettings) throws Exception {
+        Application application = new Application(pippoSettings);
+        application.GET("/jfr", routeContext -> routeContext.getResponse().text("hello"));
+        RouteDispatcher routeDispatcher = new RouteDispatcher(application);
+        routeDispatcher.init();
+
+        StringWriter body = new StringWriter();
+        Path file = Files.createTempFile("pippo", ".jfr");
+        try (Recording recording = new Recording()) {
+            recording.start();
+            routeDispatcher.dispatch(mockRequest(application, "/jfr"), new Response(mockResponse(body), application));
+            recording.stop();
+            recording.dump(file);
+
+            assertEquals("hello", body.toString());
+            List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+
+            return events.stream()
+                .map(event -> event.getEventType().getName())
+                .filter(name -> name.startsWith("ro.pippo."))
+                .collect(Collectors.toSet());
+        } finally {
+            routeDispatcher.destroy();
+            Files.deleteIfExists(file);
+        }
+    }
+
+    private Request mockRequest(Application application, String path) {
+        HttpServletRequest servletRequest = mock(HttpServletRequest.class);
+        when(servletRequest.getMethod()).thenReturn("GET");
+        when(servletRequest.getRequestURL()).thenReturn(new StringBuffer("http://localhost" + path));
+        when(servletRequest.getRequestURI()).thenReturn(path);
+        when(servletRequest.getParameterNames()).thenReturn(Collections.emptyEnumeration());
+
+        return new Request(servletRequest, application);
+    }
+
+    private HttpServletResponse mockResponse(StringWriter body) throws Exception {
+        HttpServletResponse servletResponse = mock(HttpServletResponse.class);
+        when(servletResponse.getCharacterEncoding()).thenReturn("UTF-8");
+        when(servletResponse.getWriter()).thenReturn(new PrintWriter(body));
+
+        return servletResponse;
+    }
+
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright (C) 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ro.pippo.core.route;
+
+import org.junit.Test;
+import ro.pippo.core.Application;
+import ro.pippo.core.Request;
+import ro.pippo.core.Response;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * @author agent
+ */
+public class ConcurrencyLimitHandlerTest {
+
+    @Test
+    public void testOverlappingRoutesTakeOnePermit() {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(ConcurrencyLimiter.Algorithm.AIMD, 10);
+        ConcurrencyLimitHandler limitHandler = new ConcurrencyLimitHandler(limiter);
+        List<Integer> inFlight = new ArrayList<>();
+
+        Route admin = Route.ALL("/api/admin/.*", limitHandler)
+            .bind(ConcurrencyLimitHandler.PRIORITY, ConcurrencyLimiter.Priority.CRITICAL);
+        Route api = Route.ALL("/api/.*", limitHandler);
+        Route route = Route.GET("/api/admin/x", routeContext -> inFlight.add(limiter.getInFlight()));
+
+        dispatch(admin, api, route);
+
+        assertEquals(Collections.singletonList(1), inFlight);
+        assertEquals(0, limiter.getInFlight());
+        assertEquals(1, limiter.getAcceptedCount());
+    }
+
+    @Test
+    public void testRejectWhenLimitIsReached() {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(ConcurrencyLimiter.Algorithm.AIMD, 1);
+        assertTrue(limiter.tryAcquire(ConcurrencyLimiter.Priority.CRITICAL));
+        List<Integer> inFlight = new ArrayList<>();
+
+        Route route = Route.GET("/api/admin/x", new ConcurrencyLimitHandler(limiter,
+            routeContext -> inFlight.add(limiter.getInFlight())));
+        Response response = dispatch(route);
+
+        assertEquals(Collections.emptyList(), inFlight);
+        assertEquals(HttpServletResponse.SC_SERVICE_UNAVAILABLE, response.getStatus());
+        assertEquals(1, limiter.getRejectedCount());
+    }
+
+    private Response dispatch(Route... routes) {
+        Map<String, Object> attributes = new HashMap<>();
+        HttpServletRequest servletRequest = mock(HttpServletRequest.class);
+        when(servletRequest.getMethod()).thenReturn("GET");
+        when(servletRequest.getRequestURL()).thenReturn(new StringBuffer("http://localhost/api/admin/x"));
+        when(servletRequest.getParameterNames()).thenReturn(Collections.<String>emptyEnumeration());
+        when(servletRequest.getAttribute(anyString())).thenAnswer(invocation -> attributes.get(invocation.getArguments()[0]));
+        doAnswer(invocation -> attributes.put((String) invocation.getArguments()[0], invocation.getArguments()[1]))
+            .when(servletRequest).setAttribute(anyString(), any());
+        doAnswer(invocation -> attributes.remove(invocation.getArguments()[0]))
+            .when(servletRequest).removeAttribute(anyString());
+
+        Application application = new Application();
+        Request request = new Request(servletRequest, application);
+        Response response = new Response(mock(HttpServletResponse.class), application);
+
+        List<RouteMatch> routeMatches = new ArrayList<>();
+        for (Route route : Arrays.asList(routes)) {
+            routeMatches.add(new RouteMatch(route, null));
+        }
+        new DefaultRouteContext(application, request, response, routeMatches).next();
+
+        return response;
+    }
+
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright (C) 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ro.pippo.core.route;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author agent
+ */
+public class ConcurrencyLimiterTest {
+
+    @Test
+    public void testRejectWhenLimitIsReached() {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(ConcurrencyLimiter.Algorithm.AIMD, 2);
+
+        assertTrue(limiter.tryAcquire(ConcurrencyLimiter.Priority.CRITICAL));
+        assertTrue(limiter.tryAcquire(ConcurrencyLimiter.Priority.CRITICAL));
+        assertFalse(limiter.tryAcquire(ConcurrencyLimiter.Priority.CRITICAL));
+
+        assertEquals(2, limiter.getInFlight());
+        assertEquals(2, limiter.getAcceptedCount());
+        assertEquals(1, limiter.getRejectedCount());
+    }
+
+    @Test
+    public void testLowPriorityIsRejectedFirst() {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(ConcurrencyLimiter.Algorithm.AIMD, 10);
+        for (int i = 0; i < 5; i++) {
+            assertTrue(limiter.tryAcquire(ConcurrencyLimiter.Priority.NORMAL));
+        }
+
+        assertFalse(limiter.tryAcquire(ConcurrencyLimiter.Priority.LOW));
+        assertTrue(limiter.tryAcquire(ConcurrencyLimiter.Priority.NORMAL));
+        assertTrue(limiter.tryAcquire(ConcurrencyLimiter.Priority.CRITICAL));
+    }
+
+    @Test
+    public void testAimdDecreaseOnSlowRequests() {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(ConcurrencyLimiter.Algorithm.AIMD, 10)
+            .latencyThreshold(100, TimeUnit.MILLISECONDS);
+
+        limiter.tryAcquire(ConcurrencyLimiter.Priority.NORMAL);
+        limiter.release(TimeUnit.MILLISECONDS.toNanos(500), false);
+
+        assertEquals(9, limiter.getLimit());
+        assertEquals(0, limiter.getInFlight());
+    }
+
+    @Test
+    public void testGradientDecreaseWhenLatencyGrows() {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(ConcurrencyLimiter.Algorithm.GRADIENT, 100)
+            .smoothing(1.0)
+            .minLimit(1);
+
+        // no load latency
+        limiter.tryAcquire(ConcurrencyLimiter.Priority.NORMAL);
+        limiter.release(TimeUnit.MILLISECONDS.toNanos(10), false);
+        int limit = limiter.getLimit();
+
+        // the latency is ten times bigger (queueing)
+        limiter.tryAcquire(ConcurrencyLimiter.Priority.NORMAL);
+        limiter.release(TimeUnit.MILLISECONDS.toNanos(100), false);
+
+        assertTrue(limiter.getLimit() < limit);
+    }
+
+    @Test
+    public void testLimitBounds() {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(ConcurrencyLimiter.Algorithm.AIMD, 2)
+            .minLimit(2)
+            .maxLimit(3);
+
+        limiter.tryAcquire(ConcurrencyLimiter.Priority.NORMAL);
+        limiter.release(0, true);
+        assertEquals(2, limiter.getLimit());
+
+        for (int i = 0; i < 5; i++) {
+            limiter.tryAcquire(ConcurrencyLimiter.Priority.CRITICAL);
+            limiter.tryAcquire(ConcurrencyLimiter.Priority.CRITICAL);
+            limiter.release(0, false);
+            limiter.release(0, false);
+        }
+        assertEquals(3, limiter.getLimit());
+    }
+
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright (C) 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ro.pippo.core.route;
+
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import ro.pippo.core.Application;
+import ro.pippo.core.HttpConstants;
+import ro.pippo.core.PippoConstants;
+import ro.pippo.core.PippoRuntimeException;
+import ro.pippo.core.PippoSettings;
+import ro.pippo.core.Request;
+import ro.pippo.core.Response;
+import ro.pippo.core.RuntimeMode;
+import ro.pippo.core.util.AllocationUtils;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * @author agent
+ */
+public class RouteDispatcherTest {
+
+    @Test
+    public void testAllocatedBytesHeader() throws Exception {
+        assumeTrue(AllocationUtils.isSupported());
+
+        PippoSettings pippoSettings = new PippoSettings(RuntimeMode.DEV);
+        pippoSettings.overrideSetting(PippoConstants.SETTING_HTTP_ALLOCATED_BYTES, true);
+        Application application = new Application(pippoSettings);
+        application.GET("/", routeContext -> routeContext.send("hello"));
+        RouteDispatcher routeDispatcher = new RouteDispatcher(application);
+        routeDispatcher.init();
+
+        StringWriter body = new StringWriter();
+        HttpServletResponse servletResponse = mockResponse(body);
+        routeDispatcher.dispatch(mockRequest(application, "/"), new Response(servletResponse, application));
+
+        assertEquals("hello", body.toString());
+        ArgumentCaptor<String> allocatedBytes = ArgumentCaptor.forClass(String.class);
+        // the mocked response is never committed, so it can be finalized again
+        verify(servletResponse, atLeastOnce()).setHeader(eq(HttpConstants.Header.X_ALLOCATED_BYTES), allocatedBytes.capture());
+        assertTrue(Long.parseLong(allocatedBytes.getValue()) > 0);
+    }
+
+    @Test(timeout = 10_000)
+    public void testAwaitInFlightRequests() throws Exception {
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Application application = new Application(new PippoSettings(RuntimeMode.DEV));
+        application.GET("/slow", routeContext -> {
+            entered.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            routeContext.send("done");
+        });
+        RouteDispatcher routeDispatcher = new RouteDispatcher(application);
+        routeDispatcher.init();
+        assertTrue(routeDispatcher.awaitInFlightRequests(0));
+
+        StringWriter body = new StringWriter();
+        Request request = mockRequest(application, "/slow");
+        Response response = new Response(mockResponse(body), application);
+        Thread thread = new Thread(() -> {
+            try {
+                routeDispatcher.dispatch(request, response);
+            } catch (Exception e) {
+                throw new PippoRuntimeException(e);
+            }
+        });
+        thread.start();
+        entered.await();
+
+        assertEquals(1, routeDispatcher.getInFlightRequests());
+        assertFalse(routeDispatcher.awaitInFlightRequests(50));
+
+        release.countDown();
+        assertTrue(routeDispatcher.awaitInFlightRequests(5_000));
+        assertEquals(0, routeDispatcher.getInFlightRequests());
+        thread.join();
+        assertEquals("done", body.toString());
+    }
+
+    private Request mockRequest(Application application, String path) {
+        HttpServletRequest servletRequest = mock(HttpServletRequest.class);
+        when(servletRequest.getMethod()).thenReturn("GET");
+        when(servletRequest.getRequestURL()).thenReturn(new StringBuffer("http://localhost" + path));
+        when(servletRequest.getRequestURI()).thenReturn(path);
+        when(servletRequest.getParameterNames()).thenReturn(Collections.emptyEnumeration());
+
+        return new Request(servletRequest, application);
+    }
+
+    private HttpServletResponse mockResponse(StringWriter body) throws Exception {
+        HttpServletResponse servletResponse = mock(HttpServletResponse.class);
+        when(servletResponse.getCharacterEncoding()).thenReturn("UTF-8");
+        when(servletResponse.getWriter()).thenReturn(new PrintWriter(body));
+
+        return servletResponse;
+    }
+
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright (C) 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ro.pippo.core.route;
+
+import org.junit.Test;
+import ro.pippo.core.Application;
+import ro.pippo.core.Request;
+
+import javax.servlet.http.HttpServletRequest;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * @author agent
+ */
+public class SlowRequestWatchdogTest {
+
+    @Test
+    public void testReportSlowRequest() throws Exception {
+        TestWatchdog watchdog = new TestWatchdog(50, 3, 20, 10);
+        watchdog.start();
+        try {
+            SlowRequestWatchdog.InFlightRequest inFlightRequest = watchdog.begin(mockRequest(), "/slow/{id}");
+            Thread.sleep(500);
+            watchdog.end(inFlightRequest);
+            Thread.sleep(100);
+        } finally {
+            watchdog.stop();
+        }
+
+        assertEquals(1, watchdog.reports.size());
+        String report = watchdog.reports.get(0);
+        assertTrue(report, report.startsWith("Slow request GET '/slow/1', route '/slow/{id}'"));
+        assertTrue(report, report.contains("parameters {id=1}"));
+        assertTrue(report, report.contains("(3 of 3 samples)"));
+        assertTrue(report, report.contains("at java.lang.Thread.sleep"));
+    }
+
+    @Test
+    public void testFastRequestIsNotReported() throws Exception {
+        TestWatchdog watchdog = new TestWatchdog(1000, 3, 20, 10);
+        watchdog.start();
+        try {
+            watchdog.end(watchdog.begin(mockRequest(), "/slow/{id}"));
+            Thread.sleep(100);
+        } finally {
+            watchdog.stop();
+        }
+
+        assertTrue(watchdog.reports.isEmpty());
+    }
+
+    @Test
+    public void testRateLimit() throws Exception {
+        TestWatchdog watchdog = new TestWatchdog(20, 1, 10, 1);
+        watchdog.start();
+        try {
+            for (int i = 0; i < 3; i++) {
+                SlowRequestWatchdog.InFlightRequest inFlightRequest = watchdog.begin(mockRequest(), "/slow/{id}");
+                Thread.sleep(100);
+                watchdog.end(inFlightRequest);
+            }
+            Thread.sleep(100);
+        } finally {
+            watchdog.stop();
+        }
+
+        assertEquals(1, watchdog.reports.size());
+    }
+
+    private Request mockRequest() {
+        HttpServletRequest servletRequest = mock(HttpServletRequest.class);
+        when(servletRequest.getMethod()).thenReturn("GET");
+        when(servletRequest.getRequestURL()).thenReturn(new StringBuffer("http://localhost/slow/1"));
+        when(servletRequest.getParameterNames()).thenReturn(Collections.enumeration(Collections.singletonList("id")));
+        when(servletRequest.getParameterValues("id")).thenReturn(new String[] { "1" });
+
+        return new Request(servletRequest, new Application());
+    }
+
+    private static class TestWatchdog extends SlowRequestWatchdog {
+
+        private final List<String> reports = new CopyOnWriteArrayList<>();
+
+        TestWatchdog(long threshold, int samples, long sampleInterval, int maxReportsPerMinute) {
+            super(threshold, samples, sampleInterval, maxReportsPerMinute);
+        }
+
+        @Override
+        protected void onReport(String report) {
+            reports.add(report);
+        }
+
+    }
+
+}
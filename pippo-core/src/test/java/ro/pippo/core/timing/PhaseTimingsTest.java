@@ -0,0 +1,69 @@
+/*
+ * Copyright (C) 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ro.pippo.core.timing;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+/**
+ * @author agent
+ */
+public class PhaseTimingsTest {
+
+    private long time;
+
+    @Test
+    public void testStopAddsToPhase() {
+        PhaseTimings phaseTimings = new PhaseTimings(() -> time);
+        long start = phaseTimings.start(Phase.RENDER);
+        time += 1000;
+        phaseTimings.stop(Phase.RENDER, start);
+        start = phaseTimings.start(Phase.RENDER);
+        time += 2000;
+        phaseTimings.stop(Phase.RENDER, start);
+
+        assertEquals(3000, phaseTimings.getDuration(Phase.RENDER));
+        assertEquals(0, phaseTimings.getDuration(Phase.SESSION));
+        assertEquals(3000, phaseTimings.getElapsedTime());
+    }
+
+    @Test
+    public void testDisabled() {
+        PhaseTimings phaseTimings = PhaseTimings.DISABLED;
+        assertFalse(phaseTimings.isEnabled());
+
+        long start = phaseTimings.start(Phase.MATCH);
+        phaseTimings.stop(Phase.MATCH, start - 1000);
+        assertEquals(0, phaseTimings.getDuration(Phase.MATCH));
+    }
+
+    @Test
+    public void testServerTiming() {
+        PhaseTimings phaseTimings = new PhaseTimings(() -> time);
+        long start = phaseTimings.start(Phase.MATCH);
+        time += 1234567;
+        phaseTimings.stop(Phase.MATCH, start);
+        start = phaseTimings.start(Phase.SESSION);
+        time += 5000;
+        phaseTimings.stop(Phase.SESSION, start);
+        time += 60000;
+
+        assertEquals("match;dur=1.234, session;dur=0.005, total;dur=1.299", phaseTimings.toServerTiming());
+    }
+
+}
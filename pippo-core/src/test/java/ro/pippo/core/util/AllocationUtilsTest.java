@@ -0,0 +1,40 @@
+/*
+ * Copyright (C) 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ro.pippo.core.util;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author agent
+ */
+public class AllocationUtilsTest {
+
+    @Test
+    public void testGetAllocatedBytes() {
+        if (!AllocationUtils.isSupported()) {
+            assertEquals(-1, AllocationUtils.getAllocatedBytes());
+            return;
+        }
+
+        long allocatedBytes = AllocationUtils.getAllocatedBytes();
+        byte[] buffer = new byte[1024 * 1024];
+        assertTrue(AllocationUtils.getAllocatedBytes() - allocatedBytes >= buffer.length);
+    }
+
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright (C) 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ro.pippo.prometheus;
+
+import com.codahale.metrics.MetricRegistry;
+import ro.pippo.core.PippoRuntimeException;
+import ro.pippo.core.Response;
+import ro.pippo.core.route.RouteContext;
+import ro.pippo.core.route.RouteHandler;
+
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Supplier;
+
+/**
+ * Serves the metrics of a {@link MetricRegistry} in the Prometheus text format.
+ * <p>
+ * The response is cached for a short time, so rapid scrapes (several Prometheus servers
+ * for example) don't take new snapshots of all metrics. Without cache the metrics are
+ * written (streamed) directly to the response.
+ * <pre>
+ * GET("/metrics", new PrometheusHandler(metricRegistry));
+ * </pre>
+ *
+ * @author agent
+ */
+public class PrometheusHandler implements RouteHandler {
+
+    public static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+    public static final long DEFAULT_CACHE_TIME = 1000; // milliseconds
+
+    private final Supplier<MetricRegistry> metricRegistry;
+    private final long cacheTime;
+    private final PrometheusWriter prometheusWriter = new PrometheusWriter();
+
+    private byte[] cache;
+    private long cacheExpirationTime;
+
+    public PrometheusHandler(MetricRegistry metricRegistry) {
+        this(() -> metricRegistry, DEFAULT_CACHE_TIME);
+    }
+
+    /**
+     * @param metricRegistry supplies the metric registry (on each scrape)
+     * @param cacheTime the time (in milliseconds) a response is cached; zero disables the cache
+     */
+    public PrometheusHandler(Supplier<MetricRegistry> metricRegistry, long cacheTime) {
+        this.metricRegistry = metricRegistry;
+        this.cacheTime = cacheTime;
+    }
+
+    @Override
+    public void handle(RouteContext routeContext) {
+        MetricRegistry registry = metricRegistry.get();
+        if (registry == null) {
+            throw new PippoRuntimeException("No metric registry");
+        }
+
+        Response response = routeContext.getResponse().ok().noCache().contentType(CONTENT_TYPE);
+        try {
+            if (cacheTime > 0) {
+                byte[] data = getCachedData(registry);
+                response.contentLength(data.length);
+                OutputStream output = response.getOutputStream();
+                output.write(data);
+                output.flush();
+            } else {
+                Writer writer = new BufferedWriter(new OutputStreamWriter(response.getOutputStream(), StandardCharsets.UTF_8));
+                prometheusWriter.write(registry, writer);
+            }
+        } catch (IOException e) {
+            throw new PippoRuntimeException(e);
+        }
+    }
+
+    private synchronized byte[] getCachedData(MetricRegistry registry) throws IOException {
+        long now = System.currentTimeMillis();
+        if ((cache == null) || (now >= cacheExpirationTime)) {
+            int size = (cache != null) ? cache.length + 1024 : 8192;
+            ByteArrayOutputStream output = new ByteArrayOutputStream(size);
+            prometheusWriter.write(registry, new OutputStreamWriter(output, StandardCharsets.UTF_8));
+            cache = output.toByteArray();
+            cacheExpirationTime = now + cacheTime;
+        }
+
+        return cache;
+    }
+
+}
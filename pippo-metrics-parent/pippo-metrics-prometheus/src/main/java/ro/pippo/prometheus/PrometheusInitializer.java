@@ -0,0 +1,61 @@
+/*
+ * Copyright (C) 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ro.pippo.prometheus;
+
+import com.codahale.metrics.MetricRegistry;
+import org.kohsuke.MetaInfServices;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import ro.pippo.core.Application;
+import ro.pippo.core.Initializer;
+import ro.pippo.core.PippoSettings;
+import ro.pippo.metrics.MetricsInitializer;
+
+/**
+ * Registers the route that serves the Pippo metrics in the Prometheus text format,
+ * if {@code metrics.prometheus.enabled} is true.
+ * The path of the route is {@code metrics.prometheus.path} (default "/metrics") and the response
+ * is cached for {@code metrics.prometheus.cacheTime} (default 1 second).
+ *
+ * @author agent
+ */
+@MetaInfServices
+public class PrometheusInitializer implements Initializer {
+
+    private static final Logger log = LoggerFactory.getLogger(PrometheusInitializer.class);
+
+    @Override
+    public void init(Application application) {
+        PippoSettings pippoSettings = application.getPippoSettings();
+        if (!pippoSettings.getBoolean("metrics.prometheus.enabled", false)) {
+            log.debug("Prometheus Metrics endpoint is disabled");
+            return;
+        }
+
+        String path = pippoSettings.getString("metrics.prometheus.path", "/metrics");
+        long cacheTime = pippoSettings.getDurationInMilliseconds("metrics.prometheus.cacheTime", PrometheusHandler.DEFAULT_CACHE_TIME);
+
+        // the metric registry is resolved on scrape because the initializers order is not known
+        application.GET(path, new PrometheusHandler(() -> (MetricRegistry) application.getLocals().get(MetricsInitializer.METRIC_REGISTRY), cacheTime));
+
+        log.debug("Serving Prometheus Metrics on '{}'", path);
+    }
+
+    @Override
+    public void destroy(Application application) {
+    }
+
+}
@@ -0,0 +1,331 @@
+/*
+ * Copyright (C) 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ro.pippo.prometheus;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Snapshot;
+import com.codahale.metrics.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import ro.pippo.metrics.MetricsPhaseTimingsListener;
+import ro.pippo.metrics.RouteTimers;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writes the metrics of a {@link MetricRegistry} in the Prometheus text format (version 0.0.4).
+ * <p>
+ * The dotted names are converted to Prometheus names ({@code jvm.memory.heap.used} is
+ * {@code jvm_memory_heap_used}) and the pippo dispatcher metrics are converted to labeled series:
+ * <ul>
+ *     <li>{@code dispatcher.requests.allRequests} is {@code pippo_requests_total}</li>
+ *     <li>{@code dispatcher.requests.activeRequests} is {@code pippo_active_requests}</li>
+ *     <li>{@code dispatcher.requests.404NotFound} is {@code pippo_responses_total{status="404"}}</li>
+ *     <li>{@code dispatcher.routes.GET.2xx./contact/{id}} is
+ *     {@code pippo_route_duration_seconds{method="GET",status="2xx",route="/contact/{id}"}}</li>
+ *     <li>{@code dispatcher.phases.render} is {@code pippo_phase_duration_seconds{phase="render"}}</li>
+ *     <li>{@code dispatcher.allocations.GET./contact/{id}} is
+ *     {@code pippo_route_allocated_bytes{method="GET",route="/contact/{id}"}}</li>
+ * </ul>
+ * The counters are written as gauges (they can decrease), the meters as counters and
+ * the histograms and timers (in seconds) as summaries.
+ * The series are grouped by family (two metric names can be converted to the same family);
+ * a metric converted to a series already written, or to a family of another type, is skipped.
+ * The converted names are cached.
+ *
+ * @author agent
+ */
+public class PrometheusWriter {
+
+    private static final Logger log = LoggerFactory.getLogger(PrometheusWriter.class);
+
+    private static final String REQUESTS_PREFIX = "dispatcher.requests.";
+    private static final String ROUTES_PREFIX = RouteTimers.PREFIX + ".";
+    private static final String PHASES_PREFIX = MetricsPhaseTimingsListener.PREFIX + ".";
+    private static final String ALLOCATIONS_PREFIX = RouteTimers.ALLOCATIONS_PREFIX + ".";
+
+    private static final double[] QUANTILES = { 0.5, 0.75, 0.95, 0.98, 0.99, 0.999 };
+    private static final String[] QUANTILE_LABELS = { "quantile=\"0.5\"", "quantile=\"0.75\"", "quantile=\"0.95\"",
+        "quantile=\"0.98\"", "quantile=\"0.99\"", "quantile=\"0.999\"" };
+
+    private static final double SECONDS_PER_NANOSECOND = 1.0 / TimeUnit.SECONDS.toNanos(1);
+
+    private final ConcurrentMap<String, Series> series = new ConcurrentHashMap<>();
+
+    public void write(MetricRegistry metricRegistry, Writer writer) throws IOException {
+        Map<String, Family> families = new TreeMap<>();
+        for (Map.Entry<String, Gauge> entry : metricRegistry.getGauges().entrySet()) {
+            Object value = entry.getValue().getValue();
+            if (value instanceof Number) {
+                addSample(families, entry.getKey(), "gauge", ((Number) value).doubleValue());
+            } else if (value instanceof Boolean) {
+                addSample(families, entry.getKey(), "gauge", ((Boolean) value) ? 1.0 : 0.0);
+            }
+        }
+        for (Map.Entry<String, Counter> entry : metricRegistry.getCounters().entrySet()) {
+            addSample(families, entry.getKey(), "gauge", entry.getValue());
+        }
+        for (Map.Entry<String, Meter> entry : metricRegistry.getMeters().entrySet()) {
+            addSample(families, entry.getKey(), "counter", entry.getValue());
+        }
+        for (Map.Entry<String, Histogram> entry : metricRegistry.getHistograms().entrySet()) {
+            addSample(families, entry.getKey(), "summary", entry.getValue());
+        }
+        for (Map.Entry<String, Timer> entry : metricRegistry.getTimers().entrySet()) {
+            addSample(families, entry.getKey(), "summary", entry.getValue());
+        }
+
+        for (Map.Entry<String, Family> entry : families.entrySet()) {
+            Family family = entry.getValue();
+            writer.write("# TYPE ");
+            writer.write(entry.getKey());
+            writer.write(' ');
+            writer.write(family.type);
+            writer.write('\n');
+
+            for (int i = 0; i < family.series.size(); i++) {
+                Series series = family.series.get(i);
+                Object sample = family.samples.get(i);
+                if (sample instanceof Double) {
+                    writeSample(writer, series.name, null, series.labels, null, (Double) sample);
+                } else if (sample instanceof Counter) {
+                    writeSample(writer, series.name, null, series.labels, null, ((Counter) sample).getCount());
+                } else if (sample instanceof Meter) {
+                    writeSample(writer, series.name, "_total", series.labels, null, ((Meter) sample).getCount());
+                } else if (sample instanceof Histogram) {
+                    Histogram histogram = (Histogram) sample;
+                    writeSummary(writer, series, histogram.getSnapshot(), histogram.getCount(), 1);
+                } else if (sample instanceof Timer) {
+                    Timer timer = (Timer) sample;
+                    writeSummary(writer, series, timer.getSnapshot(), timer.getCount(), SECONDS_PER_NANOSECOND);
+                }
+            }
+        }
+
+        writer.flush();
+    }
+
+    /**
+     * Returns the Prometheus series (name and labels) of a metric.
+     */
+    protected Series getSeries(String metricName) {
+        Series value = series.get(metricName);
+        if (value == null) {
+            value = createSeries(metricName);
+            series.put(metricName, value);
+        }
+
+        return value;
+    }
+
+    protected Series createSeries(String metricName) {
+        if (metricName.startsWith(ROUTES_PREFIX)) {
+            // dispatcher.routes.<method>.<status class>[.<uri pattern>]
+            String[] parts = metricName.substring(ROUTES_PREFIX.length()).split("\\.", 3);
+            if (parts.length >= 2) {
+                StringBuilder labels = new StringBuilder();
+                appendLabel(labels, "method", parts[0]);
+                appendLabel(labels, "status", parts[1]);
+                if (parts.length == 3) {
+                    appendLabel(labels, "route", parts[2]);
+                }
+
+                return new Series("pippo_route_duration_seconds", labels.toString());
+            }
+        } else if (metricName.startsWith(ALLOCATIONS_PREFIX)) {
+            // dispatcher.allocations.<method>[.<uri pattern>]
+            String[] parts = metricName.substring(ALLOCATIONS_PREFIX.length()).split("\\.", 2);
+            StringBuilder labels = new StringBuilder();
+            appendLabel(labels, "method", parts[0]);
+            if (parts.length == 2) {
+                appendLabel(labels, "route", parts[1]);
+            }
+
+            return new Series("pippo_route_allocated_bytes", labels.toString());
+        } else if (metricName.startsWith(PHASES_PREFIX)) {
+            StringBuilder labels = new StringBuilder();
+            appendLabel(labels, "phase", metricName.substring(PHASES_PREFIX.length()));
+
+            return new Series("pippo_phase_duration_seconds", labels.toString());
+        } else if (metricName.startsWith(REQUESTS_PREFIX)) {
+            String name = metricName.substring(REQUESTS_PREFIX.length());
+            if ("allRequests".equals(name)) {
+                return new Series("pippo_requests", "");
+            } else if ("activeRequests".equals(name)) {
+                return new Series("pippo_active_requests", "");
+            } else if ((name.length() > 3) && Character.isDigit(name.charAt(0))) {
+                // <status code><reason>, for example 404NotFound
+                StringBuilder labels = new StringBuilder();
+                appendLabel(labels, "status", name.substring(0, 3));
+
+                return new Series("pippo_responses", labels.toString());
+            }
+        }
+
+        return new Series(sanitize(metricName), "");
+    }
+
+    /**
+     * Adds a sample (a gauge value or a metric) to its family.
+     */
+    private void addSample(Map<String, Family> families, String metricName, String type, Object sample) {
+        Series series = getSeries(metricName);
+        String familyName = "counter".equals(type) ? series.name + "_total" : series.name;
+        Family family = families.get(familyName);
+        if (family == null) {
+            family = new Family(type);
+            families.put(familyName, family);
+        } else if (!type.equals(family.type)) {
+            log.debug("Skip metric '{}', its family '{}' is a {}", metricName, familyName, family.type);
+            return;
+        }
+        if (!family.labels.add(series.labels)) {
+            log.debug("Skip metric '{}', its series is already in family '{}'", metricName, familyName);
+            return;
+        }
+
+        family.series.add(series);
+        family.samples.add(sample);
+    }
+
+    private void writeSummary(Writer writer, Series series, Snapshot snapshot, long count, double factor) throws IOException {
+        for (int i = 0; i < QUANTILES.length; i++) {
+            writeSample(writer, series.name, null, series.labels, QUANTILE_LABELS[i], snapshot.getValue(QUANTILES[i]) * factor);
+        }
+        writeSample(writer, series.name, "_count", series.labels, null, count);
+    }
+
+    private void writeSample(Writer writer, String name, String suffix, String labels, String extraLabel, long value) throws IOException {
+        writeName(writer, name, suffix, labels, extraLabel);
+        writer.write(Long.toString(value));
+        writer.write('\n');
+    }
+
+    private void writeSample(Writer writer, String name, String suffix, String labels, String extraLabel, double value) throws IOException {
+        writeName(writer, name, suffix, labels, extraLabel);
+        writer.write(formatDouble(value));
+        writer.write('\n');
+    }
+
+    private void writeName(Writer writer, String name, String suffix, String labels, String extraLabel) throws IOException {
+        writer.write(name);
+        if (suffix != null) {
+            writer.write(suffix);
+        }
+
+        boolean hasLabels = !labels.isEmpty();
+        if (hasLabels || (extraLabel != null)) {
+            writer.write('{');
+            writer.write(labels);
+            if (extraLabel != null) {
+                if (hasLabels) {
+                    writer.write(',');
+                }
+                writer.write(extraLabel);
+            }
+            writer.write('}');
+        }
+        writer.write(' ');
+    }
+
+    private static String formatDouble(double value) {
+        if (Double.isNaN(value)) {
+            return "NaN";
+        } else if (Double.isInfinite(value)) {
+            return (value > 0) ? "+Inf" : "-Inf";
+        }
+
+        return Double.toString(value);
+    }
+
+    private static void appendLabel(StringBuilder labels, String name, String value) {
+        if (labels.length() > 0) {
+            labels.append(',');
+        }
+        labels.append(name).append("=\"");
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '\\' || c == '"') {
+                labels.append('\\').append(c);
+            } else if (c == '\n') {
+                labels.append("\\n");
+            } else {
+                labels.append(c);
+            }
+        }
+        labels.append('"');
+    }
+
+    private static String sanitize(String metricName) {
+        StringBuilder name = new StringBuilder(metricName.length() + 1);
+        if ((metricName.length() > 0) && Character.isDigit(metricName.charAt(0))) {
+            name.append('_');
+        }
+        for (int i = 0; i < metricName.length(); i++) {
+            char c = metricName.charAt(i);
+            boolean valid = (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '_' || c == ':';
+            name.append(valid ? c : '_');
+        }
+
+        return name.toString();
+    }
+
+    /**
+     * The Prometheus name and the labels (without braces) of a metric.
+     */
+    protected static class Series {
+
+        final String name;
+        final String labels;
+
+        public Series(String name, String labels) {
+            this.name = name;
+            this.labels = labels;
+        }
+
+    }
+
+    /**
+     * The series of a family, with their samples.
+     */
+    private static class Family {
+
+        final String type;
+        final List<Series> series = new ArrayList<>();
+        final List<Object> samples = new ArrayList<>();
+        final Set<String> labels = new HashSet<>();
+
+        Family(String type) {
+            this.type = type;
+        }
+
+    }
+
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright (C) 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ro.pippo.prometheus;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author agent
+ */
+public class PrometheusWriterTest {
+
+    @Test
+    public void testTypes() throws IOException {
+        MetricRegistry metricRegistry = new MetricRegistry();
+        metricRegistry.register("jvm.threads.count", (Gauge<Integer>) () -> 12);
+        metricRegistry.counter("dispatcher.requests.activeRequests").inc(2);
+        metricRegistry.meter("dispatcher.requests.allRequests").mark(3);
+        metricRegistry.histogram("sizes").update(5);
+
+        String output = write(metricRegistry);
+
+        assertTrue(output.contains("# TYPE jvm_threads_count gauge\njvm_threads_count 12.0\n"));
+        assertTrue(output.contains("# TYPE pippo_active_requests gauge\npippo_active_requests 2\n"));
+        // the counter family and samples have the _total suffix
+        assertTrue(output.contains("# TYPE pippo_requests_total counter\npippo_requests_total 3\n"));
+        assertTrue(output.contains("# TYPE sizes summary\nsizes{quantile=\"0.5\"} 5.0\n"));
+        assertTrue(output.contains("sizes_count 1\n"));
+    }
+
+    @Test
+    public void testRouteLabels() throws IOException {
+        MetricRegistry metricRegistry = new MetricRegistry();
+        metricRegistry.timer("dispatcher.routes.GET.2xx./search/{q: \"a\\b\"}").update(2, TimeUnit.SECONDS);
+
+        String output = write(metricRegistry);
+
+        String labels = "method=\"GET\",status=\"2xx\",route=\"/search/{q: \\\"a\\\\b\\\"}\"";
+        assertTrue(output.contains("# TYPE pippo_route_duration_seconds summary\n"));
+        assertTrue(output.contains("pippo_route_duration_seconds{" + labels + ",quantile=\"0.5\"} 2.0\n"));
+        assertTrue(output.contains("pippo_route_duration_seconds_count{" + labels + "} 1\n"));
+    }
+
+    @Test
+    public void testFamilies() throws IOException {
+        MetricRegistry metricRegistry = new MetricRegistry();
+        metricRegistry.meter("dispatcher.requests.404NotFound").mark();
+        metricRegistry.meter("dispatcher.requests.500InternalError").mark(2);
+        // converted to the same series, with another name sorted between them
+        metricRegistry.counter("queue.size").inc();
+        metricRegistry.counter("queue.time").inc();
+        metricRegistry.counter("queue_size").inc(2);
+        // a family of another type
+        metricRegistry.histogram("queue-size").update(1);
+
+        String output = write(metricRegistry);
+
+        assertEquals(1, count(output, "# TYPE pippo_responses_total counter\n"));
+        assertTrue(output.contains("pippo_responses_total{status=\"404\"} 1\npippo_responses_total{status=\"500\"} 2\n"));
+        assertEquals(1, count(output, "# TYPE queue_size "));
+        assertTrue(output.contains("# TYPE queue_size gauge\nqueue_size 1\n# TYPE"));
+        assertFalse(output.contains("queue_size_count"));
+    }
+
+    private String write(MetricRegistry metricRegistry) throws IOException {
+        StringWriter writer = new StringWriter();
+        new PrometheusWriter().write(metricRegistry, writer);
+
+        return writer.toString();
+    }
+
+    private int count(String output, String text) {
+        int count = 0;
+        for (int index = output.indexOf(text); index >= 0; index = output.indexOf(text, index + 1)) {
+            count++;
+        }
+
+        return count;
+    }
+
+}
@@ -23,14 +23,29 @@ import ro.pippo.core.Request;
 import ro.pippo.core.Response;
 import ro.pippo.core.route.RoutePostDispatchListener;
 import ro.pippo.core.route.RoutePreDispatchListener;
+import ro.pippo.core.util.AllocationUtils;
+
+import javax.servlet.http.HttpServletRequest;
 
 /**
  * {@code MetricsDispatchListener} collects general Request & Response metrics.
+ * <p>
+ * If the route timers are enabled, the duration of each request is recorded in the {@link RouteTimers}
+ * of the route that handled it (see {@link MetricsTransformer}), by status class.
+ * The requests that were not handled by a route with a specific method are recorded in the
+ * {@code dispatcher.routes.other.<status class>} timers.
+ * <p>
+ * If the allocations are measured too, the memory allocated by the thread of each request (between
+ * the pre-dispatch and the post-dispatch) is recorded in the allocation histogram of the route
+ * (see {@link RouteTimers#updateAllocatedBytes(long)}).
  *
  * @author James Moger
  */
 public class MetricsDispatchListener implements RoutePreDispatchListener, RoutePostDispatchListener {
 
+    private static final String START_TIME = "__requestStartTime";
+    private static final String START_ALLOCATED_BYTES = "__requestStartAllocatedBytes";
+
     protected Meter allRequestsMeter;
     protected Counter activeRequests;
     protected Meter badRequests;
@@ -39,8 +54,24 @@ public class MetricsDispatchListener implements RoutePreDispatchListener, RouteP
     protected Meter routesNotFound;
     protected Meter conflictRequests;
     protected Meter internalServerErrors;
+    protected RouteTimers otherRouteTimers;
+    protected boolean allocations;
 
     public MetricsDispatchListener(MetricRegistry metricRegistry) {
+        this(metricRegistry, false);
+    }
+
+    public MetricsDispatchListener(MetricRegistry metricRegistry, boolean routeTimers) {
+        this(metricRegistry, routeTimers, false);
+    }
+
+    /**
+     * @param metricRegistry the metric registry
+     * @param routeTimers if true, the duration of each request is recorded in the timers of its route
+     * @param allocations if true (and the route timers are enabled), the memory allocated by each
+     *                    request is recorded in the allocation histogram of its route
+     */
+    public MetricsDispatchListener(MetricRegistry metricRegistry, boolean routeTimers, boolean allocations) {
         // general request metrics
         allRequestsMeter = metricRegistry.meter("dispatcher.requests.allRequests");
         activeRequests = metricRegistry.counter("dispatcher.requests.activeRequests");
@@ -52,19 +83,55 @@ public class MetricsDispatchListener implements RoutePreDispatchListener, RouteP
         routesNotFound = metricRegistry.meter("dispatcher.requests.404NotFound");
         conflictRequests = metricRegistry.meter("dispatcher.requests.409Conflict");
         internalServerErrors = metricRegistry.meter("dispatcher.requests.500InternalError");
+
+        // route metrics
+        if (routeTimers) {
+            otherRouteTimers = new RouteTimers(metricRegistry, RouteTimers.OTHER, null);
+            this.allocations = allocations && AllocationUtils.isSupported();
+        }
     }
 
     @Override
     public void onPreDispatch(Request request, Response response) {
         activeRequests.inc();
+        if (otherRouteTimers != null) {
+            request.getHttpServletRequest().setAttribute(START_TIME, System.nanoTime());
+        }
+        if (allocations) {
+            request.getHttpServletRequest().setAttribute(START_ALLOCATED_BYTES, AllocationUtils.getAllocatedBytes());
+        }
     }
 
     @Override
     public void onPostDispatch(Request request, Response response) {
         updateStatusCodeMetrics(response);
+        if (otherRouteTimers != null) {
+            updateRouteTimers(request, response);
+        }
         activeRequests.dec();
     }
 
+    protected void updateRouteTimers(Request request, Response response) {
+        HttpServletRequest httpServletRequest = request.getHttpServletRequest();
+        Long startTime = (Long) httpServletRequest.getAttribute(START_TIME);
+        if (startTime == null) {
+            return;
+        }
+
+        RouteTimers routeTimers = (RouteTimers) httpServletRequest.getAttribute(RouteTimersHandler.ROUTE_TIMERS);
+        if (routeTimers == null) {
+            routeTimers = otherRouteTimers;
+        }
+        routeTimers.update(response.getStatus(), System.nanoTime() - startTime);
+
+        if (allocations) {
+            Long startAllocatedBytes = (Long) httpServletRequest.getAttribute(START_ALLOCATED_BYTES);
+            if (startAllocatedBytes != null) {
+                routeTimers.updateAllocatedBytes(AllocationUtils.getAllocatedBytes() - startAllocatedBytes);
+            }
+        }
+    }
+
     protected void updateStatusCodeMetrics(Response response) {
         allRequestsMeter.mark();
         switch (response.getStatus()) {
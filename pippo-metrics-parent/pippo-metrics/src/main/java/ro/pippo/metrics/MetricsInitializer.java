@@ -50,16 +50,22 @@ public class MetricsInitializer implements Initializer {
 
     private static final Logger log = LoggerFactory.getLogger(MetricsInitializer.class);
 
+    /**
+     * The name of the application local with the metric registry.
+     */
+    public static final String METRIC_REGISTRY = "metricRegistry";
+
     private MetricRegistry metricRegistry;
     private List<Closeable> reporters;
 
     @Override
     public void init(Application application) {
         // init metricRegistry
-        metricRegistry = (MetricRegistry) application.getLocals().get("metricRegistry");
+        metricRegistry = (MetricRegistry) application.getLocals().get(METRIC_REGISTRY);
         if (metricRegistry == null) {
             metricRegistry = new MetricRegistry();
-//            application.getLocals().put("metricRegistry", metricRegistry);
+            // used by the metrics endpoints (for example Prometheus)
+            application.getLocals().put(METRIC_REGISTRY, metricRegistry);
         }
 
         // init reporters
@@ -93,13 +99,29 @@ public class MetricsInitializer implements Initializer {
             reporters.add(reporter);
         }
 
+        // the latency timers of each route (by uri pattern, method and status class)
+        boolean routeTimers = pippoSettings.getBoolean("metrics.routes.enabled", false);
+
+        // the memory allocated by the requests of each route (needs the route timers)
+        boolean allocations = pippoSettings.getBoolean("metrics.allocations.enabled", false);
+        if (allocations && !routeTimers) {
+            log.warn("The allocations are measured only if 'metrics.routes.enabled' is true");
+        }
+
         // add the metrics dispatch listener
-        MetricsDispatchListener metricsDispatchListener = new MetricsDispatchListener(metricRegistry);
+        MetricsDispatchListener metricsDispatchListener = new MetricsDispatchListener(metricRegistry, routeTimers, allocations);
         application.getRoutePreDispatchListeners().add(metricsDispatchListener);
         application.getRoutePostDispatchListeners().add(metricsDispatchListener);
 
+        // the time spent by the requests in each phase (route matching, rendering, session, ...)
+        if (pippoSettings.getBoolean("metrics.phases.enabled", false)) {
+            application.getPhaseTimingsListeners().add(new MetricsPhaseTimingsListener(metricRegistry));
+
+            log.debug("Registered phase timers");
+        }
+
         // add MetricsTransformer
-        RouteTransformer transformer = new MetricsTransformer(metricRegistry);
+        RouteTransformer transformer = new MetricsTransformer(metricRegistry, routeTimers);
         application.addRouteTransformer(transformer);
     }
 
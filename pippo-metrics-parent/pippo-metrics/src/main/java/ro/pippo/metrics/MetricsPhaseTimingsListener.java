@@ -0,0 +1,57 @@
+/*
+ * Copyright (C) 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ro.pippo.metrics;
+
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import ro.pippo.core.Request;
+import ro.pippo.core.Response;
+import ro.pippo.core.timing.Phase;
+import ro.pippo.core.timing.PhaseTimings;
+import ro.pippo.core.timing.PhaseTimingsListener;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records the time spent by the requests in each phase in the {@code dispatcher.phases.<phase>} timers.
+ *
+ * @author agent
+ */
+public class MetricsPhaseTimingsListener implements PhaseTimingsListener {
+
+    public static final String PREFIX = "dispatcher.phases";
+
+    private static final Phase[] PHASES = Phase.values();
+
+    private final Timer[] timers = new Timer[PHASES.length];
+
+    public MetricsPhaseTimingsListener(MetricRegistry metricRegistry) {
+        for (Phase phase : PHASES) {
+            timers[phase.ordinal()] = metricRegistry.timer(MetricRegistry.name(PREFIX, phase.getName()));
+        }
+    }
+
+    @Override
+    public void onPhaseTimings(Request request, Response response, PhaseTimings phaseTimings) {
+        for (Phase phase : PHASES) {
+            long duration = phaseTimings.getDuration(phase);
+            if (duration > 0) {
+                timers[phase.ordinal()].update(duration, TimeUnit.NANOSECONDS);
+            }
+        }
+    }
+
+}
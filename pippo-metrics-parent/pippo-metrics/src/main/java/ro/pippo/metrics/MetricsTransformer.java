@@ -18,7 +18,9 @@ package ro.pippo.metrics;
 import com.codahale.metrics.MetricRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import ro.pippo.core.HttpConstants;
 import ro.pippo.core.PippoRuntimeException;
+import ro.pippo.core.route.ResourceHandler;
 import ro.pippo.core.route.Route;
 import ro.pippo.core.route.RouteContext;
 import ro.pippo.core.route.RouteHandler;
@@ -35,9 +37,20 @@ public class MetricsTransformer implements RouteTransformer {
     private static final Logger log = LoggerFactory.getLogger(MetricsTransformer.class);
 
     private MetricRegistry metricRegistry;
+    private boolean routeTimers;
 
     public MetricsTransformer(MetricRegistry metricRegistry) {
+        this(metricRegistry, false);
+    }
+
+    /**
+     * @param metricRegistry the metric registry
+     * @param routeTimers if true, each route with a specific method (except the resource routes)
+     *                    is bound to its {@link RouteTimers}
+     */
+    public MetricsTransformer(MetricRegistry metricRegistry, boolean routeTimers) {
         this.metricRegistry = metricRegistry;
+        this.routeTimers = routeTimers;
     }
 
     @Override
@@ -84,6 +97,14 @@ public class MetricsTransformer implements RouteTransformer {
             route.setRouteHandler(handler);
         }
 
+        // the ALL routes are usually filters; the resource handlers are not wrapped because
+        // the router finds the resource routes by the class of their handler (uriPatternFor)
+        if (routeTimers && !HttpConstants.Method.ALL.equals(route.getRequestMethod())
+            && !(route.getRouteHandler() instanceof ResourceHandler)) {
+            RouteTimers timers = new RouteTimers(metricRegistry, route.getRequestMethod(), route.getUriPattern());
+            route.setRouteHandler(new RouteTimersHandler(timers, route.getRouteHandler()));
+        }
+
         return route;
     }
 
@@ -0,0 +1,118 @@
+/*
+ * Copyright (C) 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ro.pippo.metrics;
+
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The latency timers of a route, one for each status class (1xx, 2xx, 3xx, 4xx, 5xx).
+ * The timers are named {@code dispatcher.routes.<method>.<status class>.<uri pattern>},
+ * for example {@code dispatcher.routes.GET.2xx./contact/{id}}, and they are created on first use.
+ * The uri pattern (not the request path) keeps the number of timers small.
+ * <p>
+ * If the allocations are measured, the memory allocated by each request of the route is recorded
+ * in the histogram {@code dispatcher.allocations.<method>.<uri pattern>}, in bytes.
+ *
+ * @author agent
+ */
+public class RouteTimers {
+
+    public static final String PREFIX = "dispatcher.routes";
+
+    public static final String ALLOCATIONS_PREFIX = "dispatcher.allocations";
+
+    /**
+     * The method of the timers for the requests that don't match a route with a specific method.
+     */
+    public static final String OTHER = "other";
+
+    private static final String[] STATUS_CLASSES = { "1xx", "2xx", "3xx", "4xx", "5xx" };
+
+    private final MetricRegistry metricRegistry;
+    private final String method;
+    private final String uriPattern;
+    private final Timer[] timers = new Timer[STATUS_CLASSES.length];
+    private Histogram allocations;
+
+    public RouteTimers(MetricRegistry metricRegistry, String method, String uriPattern) {
+        this.metricRegistry = metricRegistry;
+        this.method = method;
+        this.uriPattern = uriPattern;
+    }
+
+    /**
+     * Records the duration of a request.
+     *
+     * @param status the response status code
+     * @param duration the duration in nanoseconds
+     */
+    public void update(int status, long duration) {
+        int index = status / 100 - 1;
+        if ((index < 0) || (index >= timers.length)) {
+            // status code not set
+            index = 4;
+        }
+
+        Timer timer = timers[index];
+        if (timer == null) {
+            // the registry returns the same timer for the same name (a race is harmless)
+            timer = metricRegistry.timer(getName(method, STATUS_CLASSES[index], uriPattern));
+            timers[index] = timer;
+        }
+
+        timer.update(duration, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Records the memory allocated by a request.
+     *
+     * @param allocatedBytes the allocated memory in bytes
+     */
+    public void updateAllocatedBytes(long allocatedBytes) {
+        Histogram histogram = allocations;
+        if (histogram == null) {
+            histogram = metricRegistry.histogram(getAllocationsName(method, uriPattern));
+            allocations = histogram;
+        }
+
+        histogram.update(allocatedBytes);
+    }
+
+    public String getMethod() {
+        return method;
+    }
+
+    public String getUriPattern() {
+        return uriPattern;
+    }
+
+    public static String getName(String method, String statusClass, String uriPattern) {
+        String name = MetricRegistry.name(PREFIX, method, statusClass);
+
+        return (uriPattern != null) ? name + "." + uriPattern : name;
+    }
+
+    public static String getAllocationsName(String method, String uriPattern) {
+        String name = MetricRegistry.name(ALLOCATIONS_PREFIX, method);
+
+        return (uriPattern != null) ? name + "." + uriPattern : name;
+    }
+
+}
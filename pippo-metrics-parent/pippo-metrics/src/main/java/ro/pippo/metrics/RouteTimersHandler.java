@@ -0,0 +1,45 @@
+/*
+ * Copyright (C) 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ro.pippo.metrics;
+
+import ro.pippo.core.route.RouteContext;
+import ro.pippo.core.route.RouteHandler;
+
+/**
+ * Binds the {@link RouteTimers} of the route to the request, so {@link MetricsDispatchListener}
+ * records the duration of the request in the timers of the route.
+ *
+ * @author agent
+ */
+public class RouteTimersHandler implements RouteHandler {
+
+    public static final String ROUTE_TIMERS = "__routeTimers";
+
+    final RouteTimers routeTimers;
+    final RouteHandler routeHandler;
+
+    public RouteTimersHandler(RouteTimers routeTimers, RouteHandler routeHandler) {
+        this.routeTimers = routeTimers;
+        this.routeHandler = routeHandler;
+    }
+
+    @Override
+    public void handle(RouteContext routeContext) {
+        routeContext.getRequest().getHttpServletRequest().setAttribute(ROUTE_TIMERS, routeTimers);
+        routeHandler.handle(routeContext);
+    }
+
+}
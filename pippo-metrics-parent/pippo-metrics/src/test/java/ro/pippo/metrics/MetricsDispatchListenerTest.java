@@ -0,0 +1,103 @@
+/*
+ * Copyright (C) 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ro.pippo.metrics;
+
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.MetricRegistry;
+import org.junit.Test;
+import ro.pippo.core.Application;
+import ro.pippo.core.Request;
+import ro.pippo.core.Response;
+import ro.pippo.core.util.AllocationUtils;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * @author agent
+ */
+public class MetricsDispatchListenerTest {
+
+    @Test
+    public void testRouteAllocations() {
+        assumeTrue(AllocationUtils.isSupported());
+
+        MetricRegistry metricRegistry = new MetricRegistry();
+        MetricsDispatchListener listener = new MetricsDispatchListener(metricRegistry, true, true);
+        Application application = new Application();
+        Request request = mockRequest(application);
+        Response response = new Response(mock(HttpServletResponse.class), application);
+
+        listener.onPreDispatch(request, response);
+        // bound by the route handler
+        RouteTimers routeTimers = new RouteTimers(metricRegistry, "GET", "/users/{id}");
+        request.getHttpServletRequest().setAttribute(RouteTimersHandler.ROUTE_TIMERS, routeTimers);
+        byte[][] buffers = new byte[16][];
+        for (int i = 0; i < buffers.length; i++) {
+            buffers[i] = new byte[64 * 1024];
+        }
+        response.status(200);
+        listener.onPostDispatch(request, response);
+
+        assertEquals(1, metricRegistry.timer("dispatcher.routes.GET.2xx./users/{id}").getCount());
+        Histogram allocations = metricRegistry.histogram("dispatcher.allocations.GET./users/{id}");
+        assertEquals(1, allocations.getCount());
+        assertTrue(allocations.getSnapshot().getMax() >= buffers.length * 64 * 1024);
+    }
+
+    @Test
+    public void testOtherRequests() {
+        MetricRegistry metricRegistry = new MetricRegistry();
+        MetricsDispatchListener listener = new MetricsDispatchListener(metricRegistry, true, AllocationUtils.isSupported());
+        Application application = new Application();
+        Request request = mockRequest(application);
+        Response response = new Response(mock(HttpServletResponse.class), application);
+
+        listener.onPreDispatch(request, response);
+        response.status(404);
+        listener.onPostDispatch(request, response);
+
+        assertEquals(1, metricRegistry.meter("dispatcher.requests.404NotFound").getCount());
+        assertEquals(1, metricRegistry.timer("dispatcher.routes.other.4xx").getCount());
+        assertEquals(0, metricRegistry.counter("dispatcher.requests.activeRequests").getCount());
+    }
+
+    private Request mockRequest(Application application) {
+        Map<String, Object> attributes = new HashMap<>();
+        HttpServletRequest servletRequest = mock(HttpServletRequest.class);
+        when(servletRequest.getMethod()).thenReturn("GET");
+        when(servletRequest.getRequestURL()).thenReturn(new StringBuffer("http://localhost/users/1"));
+        when(servletRequest.getParameterNames()).thenReturn(Collections.<String>emptyEnumeration());
+        when(servletRequest.getAttribute(anyString())).thenAnswer(invocation -> attributes.get(invocation.getArguments()[0]));
+        doAnswer(invocation -> attributes.put((String) invocation.getArguments()[0], invocation.getArguments()[1]))
+            .when(servletRequest).setAttribute(anyString(), any());
+
+        return new Request(servletRequest, application);
+    }
+
+}
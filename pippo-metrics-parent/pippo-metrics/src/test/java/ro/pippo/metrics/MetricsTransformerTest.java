@@ -0,0 +1,67 @@
+/*
+ * Copyright (C) 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ro.pippo.metrics;
+
+import com.codahale.metrics.MetricRegistry;
+import org.junit.Test;
+import ro.pippo.core.Application;
+import ro.pippo.core.route.PublicResourceHandler;
+import ro.pippo.core.route.Route;
+import ro.pippo.core.route.WebjarsResourceHandler;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author agent
+ */
+public class MetricsTransformerTest {
+
+    @Test
+    public void testRouteTimers() {
+        Application application = new Application();
+        application.addRouteTransformer(new MetricsTransformer(new MetricRegistry(), true));
+        application.GET("/users/{id}", routeContext -> routeContext.send("user"));
+        application.ALL("/.*", routeContext -> routeContext.next());
+        application.getRouter().compileRoutes();
+
+        for (Route route : application.getRouter().getRoutes()) {
+            if ("/users/{id}".equals(route.getUriPattern())) {
+                assertTrue(route.getRouteHandler() instanceof RouteTimersHandler);
+                RouteTimers routeTimers = ((RouteTimersHandler) route.getRouteHandler()).routeTimers;
+                assertEquals("GET", routeTimers.getMethod());
+                assertEquals("/users/{id}", routeTimers.getUriPattern());
+            } else {
+                // a filter
+                assertFalse(route.getRouteHandler() instanceof RouteTimersHandler);
+            }
+        }
+    }
+
+    @Test
+    public void testResourceRoutes() {
+        Application application = new Application();
+        application.addRouteTransformer(new MetricsTransformer(new MetricRegistry(), true));
+        application.addPublicResourceRoute();
+        application.addWebjarsResourceRoute();
+        application.getRouter().compileRoutes();
+
+        assertEquals("/public/{path: .+}", application.getRouter().uriPatternFor(PublicResourceHandler.class));
+        assertEquals("/webjars/{path: .+}", application.getRouter().uriPatternFor(WebjarsResourceHandler.class));
+    }
+
+}
@@ -0,0 +1,46 @@
+/*
+ * Copyright (C) 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ro.pippo.metrics;
+
+import com.codahale.metrics.MetricRegistry;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * @author agent
+ */
+public class RouteTimersTest {
+
+    @Test
+    public void testUpdate() {
+        MetricRegistry metricRegistry = new MetricRegistry();
+        RouteTimers routeTimers = new RouteTimers(metricRegistry, "GET", "/users/{id}");
+        routeTimers.update(200, TimeUnit.MILLISECONDS.toNanos(5));
+        routeTimers.update(204, TimeUnit.MILLISECONDS.toNanos(7));
+        routeTimers.update(404, TimeUnit.MILLISECONDS.toNanos(1));
+        // the status code is not set
+        routeTimers.update(0, TimeUnit.MILLISECONDS.toNanos(1));
+
+        assertEquals(2, metricRegistry.timer("dispatcher.routes.GET.2xx./users/{id}").getCount());
+        assertEquals(1, metricRegistry.timer("dispatcher.routes.GET.4xx./users/{id}").getCount());
+        assertEquals(1, metricRegistry.timer("dispatcher.routes.GET.5xx./users/{id}").getCount());
+        assertEquals("dispatcher.routes.other.2xx", RouteTimers.getName(RouteTimers.OTHER, "2xx", null));
+    }
+
+}
@@ -15,10 +15,20 @@
  */
 package ro.pippo.jetty;
 
+import org.eclipse.jetty.alpn.server.ALPNServerConnectionFactory;
+import org.eclipse.jetty.http2.HTTP2Cipher;
+import org.eclipse.jetty.http2.server.HTTP2CServerConnectionFactory;
+import org.eclipse.jetty.http2.server.HTTP2ServerConnectionFactory;
+import org.eclipse.jetty.server.ConnectionFactory;
 import org.eclipse.jetty.server.Handler;
+import org.eclipse.jetty.server.HttpConfiguration;
+import org.eclipse.jetty.server.HttpConnectionFactory;
 import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.SecureRequestCustomizer;
 import org.eclipse.jetty.server.Server;
 import org.eclipse.jetty.server.ServerConnector;
+import org.eclipse.jetty.server.SslConnectionFactory;
+import org.eclipse.jetty.server.handler.StatisticsHandler;
 import org.eclipse.jetty.servlet.FilterHolder;
 import org.eclipse.jetty.servlet.ServletContextHandler;
 import org.eclipse.jetty.util.ssl.SslContextFactory;
@@ -43,7 +53,6 @@ import java.util.EnumSet;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
-import java.util.concurrent.TimeUnit;
 
 /**
  * Must have a zero-argument constructor so that they can be instantiated during loading.
@@ -98,7 +107,12 @@ public class JettyServer extends AbstractWebServer<JettySettings> {
         server = createServer();
 
         ServerConnector serverConnector = createServerConnector(server);
-        serverConnector.setIdleTimeout(TimeUnit.HOURS.toMillis(1));
+        if (getSettings().getConnectorIdleTimeout() > 0) {
+            serverConnector.setIdleTimeout(getSettings().getConnectorIdleTimeout());
+        }
+        if (getSettings().getAcceptQueueSize() > 0) {
+            serverConnector.setAcceptQueueSize(getSettings().getAcceptQueueSize());
+        }
         serverConnector.setSoLingerTime(-1);
         serverConnector.setHost(getSettings().getHost());
         serverConnector.setPort(getSettings().getPort());
@@ -108,6 +122,13 @@ public class JettyServer extends AbstractWebServer<JettySettings> {
         server.setConnectors(connectors);
 
         Handler pippoHandler = createPippoHandler();
+        if (getSettings().getShutdownTimeout() > 0) {
+            // graceful shutdown: close the connectors and wait for the active requests (tracked by statistics handler)
+            StatisticsHandler statisticsHandler = new StatisticsHandler();
+            statisticsHandler.setHandler(pippoHandler);
+            pippoHandler = statisticsHandler;
+            server.setStopTimeout(getSettings().getShutdownTimeout());
+        }
         server.setHandler(pippoHandler);
 
         try {
@@ -141,8 +162,22 @@ public class JettyServer extends AbstractWebServer<JettySettings> {
     }
 
     protected ServerConnector createServerConnector(Server server) {
+        HttpConfiguration httpConfiguration = createHttpConfiguration();
+        // values less than zero mean that Jetty picks the number based on the available processors
+        int acceptors = (getSettings().getAcceptors() > 0) ? getSettings().getAcceptors() : -1;
+        int selectors = (getSettings().getSelectors() > 0) ? getSettings().getSelectors() : -1;
+
         if (getSettings().getKeystoreFile() == null) {
-            return new ServerConnector(server);
+            HttpConnectionFactory http = new HttpConnectionFactory(httpConfiguration);
+            if (getSettings().getHttp2()) {
+                // HTTP/2 over cleartext (h2c)
+                HTTP2CServerConnectionFactory h2c = new HTTP2CServerConnectionFactory(httpConfiguration);
+                log.debug("HTTP/2 cleartext (h2c) is enabled");
+
+                return new ServerConnector(server, acceptors, selectors, http, h2c);
+            }
+
+            return new ServerConnector(server, acceptors, selectors, http);
         }
 
         SslContextFactory sslContextFactory = new SslContextFactory(getSettings().getKeystoreFile());
@@ -157,7 +192,39 @@ public class JettyServer extends AbstractWebServer<JettySettings> {
             sslContextFactory.setTrustStorePassword(getSettings().getTruststorePassword());
         }
 
-        return new ServerConnector(server, sslContextFactory);
+        httpConfiguration.addCustomizer(new SecureRequestCustomizer());
+        HttpConnectionFactory http = new HttpConnectionFactory(httpConfiguration);
+
+        ConnectionFactory[] connectionFactories;
+        if (getSettings().getHttp2()) {
+            // HTTP/2 over TLS (h2) negotiated via ALPN, with fallback to HTTP/1.1
+            sslContextFactory.setCipherComparator(HTTP2Cipher.COMPARATOR);
+            sslContextFactory.setUseCipherSuitesOrder(true);
+
+            HTTP2ServerConnectionFactory h2 = new HTTP2ServerConnectionFactory(httpConfiguration);
+            ALPNServerConnectionFactory alpn = new ALPNServerConnectionFactory();
+            alpn.setDefaultProtocol(http.getProtocol());
+            SslConnectionFactory ssl = new SslConnectionFactory(sslContextFactory, alpn.getProtocol());
+            connectionFactories = new ConnectionFactory[] { ssl, alpn, h2, http };
+            log.debug("HTTP/2 (h2) is enabled");
+        } else {
+            SslConnectionFactory ssl = new SslConnectionFactory(sslContextFactory, http.getProtocol());
+            connectionFactories = new ConnectionFactory[] { ssl, http };
+        }
+
+        return new ServerConnector(server, acceptors, selectors, connectionFactories);
+    }
+
+    protected HttpConfiguration createHttpConfiguration() {
+        HttpConfiguration httpConfiguration = new HttpConfiguration();
+        if (getSettings().getOutputBufferSize() > 0) {
+            httpConfiguration.setOutputBufferSize(getSettings().getOutputBufferSize());
+        }
+        if (getSettings().getRequestHeaderSize() > 0) {
+            httpConfiguration.setRequestHeaderSize(getSettings().getRequestHeaderSize());
+        }
+
+        return httpConfiguration;
     }
 
     protected ServletContextHandler createPippoHandler() {
@@ -26,14 +26,29 @@ public class JettySettings extends WebServerSettings {
     public static final String MAX_THREADS = "jetty.maxThreads";
     public static final String MIN_THREADS = "jetty.minThreads";
     public static final String IDLE_TIMEOUT = "jetty.idleTimeout";
+    public static final String ACCEPTORS = "jetty.acceptors";
+    public static final String SELECTORS = "jetty.selectors";
+    public static final String ACCEPT_QUEUE_SIZE = "jetty.acceptQueueSize";
+    public static final String CONNECTOR_IDLE_TIMEOUT = "jetty.connectorIdleTimeout";
+    public static final String OUTPUT_BUFFER_SIZE = "jetty.outputBufferSize";
+    public static final String REQUEST_HEADER_SIZE = "jetty.requestHeaderSize";
+    public static final String HTTP2 = "jetty.http2";
 
     public static final int DEFAULT_MAX_THREADS = 200;
     public static final int DEFAULT_MIN_THREADS = 8;
     public static final int DEFAULT_IDLE_TIMEOUT = 30000;
+    public static final int DEFAULT_CONNECTOR_IDLE_TIMEOUT = 30000;
 
     private int maxThreads;
     private int minThreads;
     private int idleTimeout; // in miliseconds
+    private int acceptors;
+    private int selectors;
+    private int acceptQueueSize;
+    private int connectorIdleTimeout; // in miliseconds
+    private int outputBufferSize;
+    private int requestHeaderSize;
+    private boolean http2;
 
     public JettySettings(PippoSettings pippoSettings) {
         super(pippoSettings);
@@ -41,6 +56,13 @@ public class JettySettings extends WebServerSettings {
         maxThreads = pippoSettings.getInteger(JettySettings.MAX_THREADS, 0);
         minThreads = pippoSettings.getInteger(JettySettings.MIN_THREADS, 0);
         idleTimeout = pippoSettings.getInteger(JettySettings.IDLE_TIMEOUT, 0);
+        acceptors = pippoSettings.getInteger(JettySettings.ACCEPTORS, 0);
+        selectors = pippoSettings.getInteger(JettySettings.SELECTORS, 0);
+        acceptQueueSize = pippoSettings.getInteger(JettySettings.ACCEPT_QUEUE_SIZE, 0);
+        connectorIdleTimeout = pippoSettings.getInteger(JettySettings.CONNECTOR_IDLE_TIMEOUT, DEFAULT_CONNECTOR_IDLE_TIMEOUT);
+        outputBufferSize = pippoSettings.getInteger(JettySettings.OUTPUT_BUFFER_SIZE, 0);
+        requestHeaderSize = pippoSettings.getInteger(JettySettings.REQUEST_HEADER_SIZE, 0);
+        http2 = pippoSettings.getBoolean(JettySettings.HTTP2, false);
     }
 
     public int getMaxThreads() {
@@ -51,10 +73,48 @@ public class JettySettings extends WebServerSettings {
         return minThreads;
     }
 
+    /**
+     * The idle timeout of the thread pool.
+     */
     public int getIdleTimeout() {
         return idleTimeout;
     }
 
+    public int getAcceptors() {
+        return acceptors;
+    }
+
+    public int getSelectors() {
+        return selectors;
+    }
+
+    public int getAcceptQueueSize() {
+        return acceptQueueSize;
+    }
+
+    /**
+     * The maximum time (in milliseconds) a connection can be idle before it's closed.
+     */
+    public int getConnectorIdleTimeout() {
+        return connectorIdleTimeout;
+    }
+
+    public int getOutputBufferSize() {
+        return outputBufferSize;
+    }
+
+    public int getRequestHeaderSize() {
+        return requestHeaderSize;
+    }
+
+    /**
+     * If true, HTTP/2 is enabled (h2c for plain HTTP, h2 for HTTPS).
+     * For h2 the ALPN boot jar (that matches the JVM version) must be added on the boot classpath.
+     */
+    public boolean getHttp2() {
+        return http2;
+    }
+
     public JettySettings maxThreads(int maxThreads) {
         this.maxThreads = maxThreads;
         return this;
@@ -70,4 +130,39 @@ public class JettySettings extends WebServerSettings {
         return this;
     }
 
+    public JettySettings acceptors(int acceptors) {
+        this.acceptors = acceptors;
+        return this;
+    }
+
+    public JettySettings selectors(int selectors) {
+        this.selectors = selectors;
+        return this;
+    }
+
+    public JettySettings acceptQueueSize(int acceptQueueSize) {
+        this.acceptQueueSize = acceptQueueSize;
+        return this;
+    }
+
+    public JettySettings connectorIdleTimeout(int connectorIdleTimeout) {
+        this.connectorIdleTimeout = connectorIdleTimeout;
+        return this;
+    }
+
+    public JettySettings outputBufferSize(int outputBufferSize) {
+        this.outputBufferSize = outputBufferSize;
+        return this;
+    }
+
+    public JettySettings requestHeaderSize(int requestHeaderSize) {
+        this.requestHeaderSize = requestHeaderSize;
+        return this;
+    }
+
+    public JettySettings http2(boolean http2) {
+        this.http2 = http2;
+        return this;
+    }
+
 }
@@ -26,6 +26,7 @@ import ro.pippo.core.PippoRuntimeException;
 import ro.pippo.core.PippoServlet;
 import ro.pippo.core.WebServer;
 import ro.pippo.core.WebServerSettings;
+import ro.pippo.core.route.RouteDispatcher;
 
 import javax.servlet.ServletContextListener;
 import java.io.IOException;
@@ -53,6 +54,14 @@ public class TjwsServer extends AbstractWebServer<WebServerSettings> {
 
     private static final Logger log = LoggerFactory.getLogger(TjwsServer.class);
 
+    /**
+     * TJWS ends the response (it flushes the buffer and writes the last chunk, in {@code closeStreams()})
+     * on the connection thread after the servlet returns, so after the dispatch of the last request.
+     * TJWS doesn't expose the end of this write and {@link Serve#stopBackground()} closes the sockets,
+     * so the stop waits this time (in milliseconds) after the drain, only if there were in-flight requests.
+     */
+    private static final long RESPONSE_WRITE_DELAY = 200;
+
     private Application application;
 
     private Serve server;
@@ -99,6 +108,15 @@ public class TjwsServer extends AbstractWebServer<WebServerSettings> {
     public void stop() {
         if (server != null) {
             try {
+                // stop the acceptor, wait for the in-flight requests and after that close the connections
+                server.notifyStop();
+                RouteDispatcher routeDispatcher = getRouteDispatcher();
+                if ((getSettings().getShutdownTimeout() > 0) && (routeDispatcher != null)
+                    && (routeDispatcher.getInFlightRequests() > 0)) {
+                    awaitInFlightRequests();
+                    // let TJWS write the end of the last responses (see RESPONSE_WRITE_DELAY)
+                    Thread.sleep(RESPONSE_WRITE_DELAY);
+                }
                 server.stopBackground();
                 // We must manually destroy PippoServlet because
                 // TJWS does not destroy the root servlet. :(
@@ -114,6 +132,11 @@ public class TjwsServer extends AbstractWebServer<WebServerSettings> {
         throw new PippoRuntimeException("This feature is not available for this server type");
     }
 
+    @Override
+    protected RouteDispatcher getRouteDispatcher() {
+        return (pippoServlet != null) ? pippoServlet.getRouteDispatcher() : null;
+    }
+
     @Override
     protected WebServerSettings createDefaultSettings() {
         return new WebServerSettings(pippoSettings);
@@ -19,7 +19,10 @@ import org.apache.catalina.Context;
 import org.apache.catalina.LifecycleException;
 import org.apache.catalina.Wrapper;
 import org.apache.catalina.connector.Connector;
+import org.apache.catalina.core.StandardThreadExecutor;
 import org.apache.catalina.startup.Tomcat;
+import org.apache.coyote.AbstractProtocol;
+import org.apache.coyote.http2.Http2Protocol;
 import org.kohsuke.MetaInfServices;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -30,6 +33,7 @@ import ro.pippo.core.PippoRuntimeException;
 import ro.pippo.core.PippoServlet;
 import ro.pippo.core.PippoServletContextListener;
 import ro.pippo.core.WebServer;
+import ro.pippo.core.route.RouteDispatcher;
 import ro.pippo.core.util.StringUtils;
 
 import java.io.File;
@@ -47,6 +51,7 @@ public class TomcatServer extends AbstractWebServer<TomcatSettings> {
 
     private Application application;
     private Tomcat tomcat;
+    private PippoServlet pippoServlet;
 
     private final ExecutorService executor = Executors.newSingleThreadExecutor();
     private final CountDownLatch startLatch = new CountDownLatch(1);
@@ -65,6 +70,14 @@ public class TomcatServer extends AbstractWebServer<TomcatSettings> {
     public void stop() {
         if (tomcat != null) {
             try {
+                if (getSettings().getShutdownTimeout() > 0) {
+                    // stop to accept new requests and wait for the in-flight requests
+                    for (Connector connector : tomcat.getService().findConnectors()) {
+                        connector.pause();
+                    }
+                    awaitInFlightRequests();
+                }
+
                 tomcat.stop();
                 executor.shutdownNow();
             } catch (Exception e) {
@@ -82,6 +95,11 @@ public class TomcatServer extends AbstractWebServer<TomcatSettings> {
         return this;
     }
 
+    @Override
+    protected RouteDispatcher getRouteDispatcher() {
+        return (pippoServlet != null) ? pippoServlet.getRouteDispatcher() : null;
+    }
+
     @Override
     protected TomcatSettings createDefaultSettings() {
         return new TomcatSettings(pippoSettings);
@@ -95,16 +113,14 @@ public class TomcatServer extends AbstractWebServer<TomcatSettings> {
         tomcat = new Tomcat();
         tomcat.setBaseDir(getSettings().getBaseFolder());
 
-        if (getSettings().getKeystoreFile() == null) {
-            enablePlainConnector(tomcat);
-        } else {
-            enableSSLConnector(tomcat);
-        }
+        Connector connector = createConnector();
+        tomcat.getService().addConnector(connector);
+        tomcat.setConnector(connector);
 
         File docBase = new File(System.getProperty("java.io.tmpdir"));
         Context context = tomcat.addContext(getSettings().getContextPath(), docBase.getAbsolutePath());
         context.setAllowCasualMultipartParsing(true);
-        PippoServlet pippoServlet = new PippoServlet();
+        pippoServlet = new PippoServlet();
         pippoServlet.setApplication(application);
 
         Wrapper wrapper = context.createWrapper();
@@ -137,15 +153,84 @@ public class TomcatServer extends AbstractWebServer<TomcatSettings> {
         tomcat.getServer().await();
     }
 
-    private void enablePlainConnector(Tomcat tomcat) {
-        log.info("Using http protocol");
-        tomcat.setPort(getSettings().getPort());
+    protected Connector createConnector() {
+        Connector connector = new Connector(getProtocolHandlerClassName());
+        connector.setPort(getSettings().getPort());
+
+        if (getSettings().getKeystoreFile() == null) {
+            log.info("Using http protocol");
+        } else {
+            enableSSL(connector);
+        }
+
+        configureConnector(connector);
+
+        return connector;
+    }
+
+    protected void configureConnector(Connector connector) {
+        if (getSettings().getSharedExecutor()) {
+            StandardThreadExecutor executor = new StandardThreadExecutor();
+            executor.setName("pippoExecutor");
+            executor.setNamePrefix("pippo-exec-");
+            if (getSettings().getMaxThreads() > 0) {
+                executor.setMaxThreads(getSettings().getMaxThreads());
+            }
+            if (getSettings().getMinSpareThreads() > 0) {
+                executor.setMinSpareThreads(getSettings().getMinSpareThreads());
+            }
+            tomcat.getService().addExecutor(executor);
+            ((AbstractProtocol<?>) connector.getProtocolHandler()).setExecutor(executor);
+        } else {
+            if (getSettings().getMaxThreads() > 0) {
+                connector.setAttribute("maxThreads", getSettings().getMaxThreads());
+            }
+            if (getSettings().getMinSpareThreads() > 0) {
+                connector.setAttribute("minSpareThreads", getSettings().getMinSpareThreads());
+            }
+        }
+
+        if (getSettings().getAcceptCount() > 0) {
+            connector.setAttribute("acceptCount", getSettings().getAcceptCount());
+        }
+        if (getSettings().getMaxConnections() > 0) {
+            connector.setAttribute("maxConnections", getSettings().getMaxConnections());
+        }
+        if (getSettings().getKeepAliveTimeout() > 0) {
+            connector.setAttribute("keepAliveTimeout", getSettings().getKeepAliveTimeout());
+        }
+        if (getSettings().getMaxKeepAliveRequests() != 0) {
+            connector.setAttribute("maxKeepAliveRequests", getSettings().getMaxKeepAliveRequests());
+        }
+        if (getSettings().getCompression() != null) {
+            connector.setAttribute("compression", getSettings().getCompression());
+        }
+        if (getSettings().getCompressionMinSize() > 0) {
+            connector.setAttribute("compressionMinSize", getSettings().getCompressionMinSize());
+        }
+        if (getSettings().getCompressibleMimeType() != null) {
+            connector.setAttribute("compressibleMimeType", getSettings().getCompressibleMimeType());
+        }
+        if (getSettings().getHttp2()) {
+            // h2c (via upgrade) for http; h2 for https requires ALPN support (APR/OpenSSL or Java 9+)
+            connector.addUpgradeProtocol(new Http2Protocol());
+            log.debug("HTTP/2 upgrade protocol is enabled");
+        }
+    }
+
+    private String getProtocolHandlerClassName() {
+        String protocol = getSettings().getProtocol();
+        if (TomcatSettings.PROTOCOL_NIO.equalsIgnoreCase(protocol)) {
+            return "org.apache.coyote.http11.Http11NioProtocol";
+        } else if (TomcatSettings.PROTOCOL_NIO2.equalsIgnoreCase(protocol)) {
+            return "org.apache.coyote.http11.Http11Nio2Protocol";
+        }
+
+        return protocol;
     }
 
-    private void enableSSLConnector(Tomcat tomcat) {
+    private void enableSSL(Connector connector) {
         log.info("Using https protocol");
-        Connector connector = tomcat.getConnector();
-        connector.setPort(getSettings().getPort());
         connector.setSecure(true);
         connector.setScheme("https");
         connector.setAttribute("keyAlias", getSettings().getKeyAlias());
@@ -157,10 +242,7 @@ public class TomcatServer extends AbstractWebServer<TomcatSettings> {
             connector.setAttribute("truststoreFile", getSettings().getTruststoreFile());
             connector.setAttribute("truststorePass", getSettings().getTruststorePassword());
         }
-        connector.setAttribute("protocol", "HTTP/1.1");
         connector.setAttribute("sslProtocol", "TLS");
-        connector.setAttribute("maxThreads", getSettings().getMaxConnections());
-        connector.setAttribute("protocol", "org.apache.coyote.http11.Http11AprProtocol");
         connector.setAttribute("SSLEnabled", true);
     }
 
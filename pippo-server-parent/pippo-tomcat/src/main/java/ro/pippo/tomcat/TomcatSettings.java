@@ -28,21 +28,57 @@ public class TomcatSettings extends WebServerSettings {
     public static final String KEY_ALIAS = "tomcat.keyAlias";
     public static final String KEY_TYPE = "tomcat.keyType";
     public static final String CLIENT_AUTH = "tomcat.clientAuth";
+    public static final String PROTOCOL = "tomcat.protocol";
+    public static final String MAX_THREADS = "tomcat.maxThreads";
+    public static final String MIN_SPARE_THREADS = "tomcat.minSpareThreads";
+    public static final String ACCEPT_COUNT = "tomcat.acceptCount";
+    public static final String KEEP_ALIVE_TIMEOUT = "tomcat.keepAliveTimeout";
+    public static final String MAX_KEEP_ALIVE_REQUESTS = "tomcat.maxKeepAliveRequests";
+    public static final String COMPRESSION = "tomcat.compression";
+    public static final String COMPRESSION_MIN_SIZE = "tomcat.compressionMinSize";
+    public static final String COMPRESSIBLE_MIME_TYPE = "tomcat.compressibleMimeType";
+    public static final String HTTP2 = "tomcat.http2";
+    public static final String SHARED_EXECUTOR = "tomcat.sharedExecutor";
+
+    public static final String PROTOCOL_NIO = "nio";
+    public static final String PROTOCOL_NIO2 = "nio2";
 
     private String baseFolder;
     private int maxConnections;
     private String keyAlias;
     private String keyType;
     private boolean clientAuth;
+    private String protocol;
+    private int maxThreads;
+    private int minSpareThreads;
+    private int acceptCount;
+    private int keepAliveTimeout; // in milliseconds
+    private int maxKeepAliveRequests;
+    private String compression;
+    private int compressionMinSize;
+    private String compressibleMimeType;
+    private boolean http2;
+    private boolean sharedExecutor;
 
     public TomcatSettings(PippoSettings pippoSettings) {
         super(pippoSettings);
 
         this.baseFolder = pippoSettings.getString(TomcatSettings.BASE_FOLDER, "tomcat_home");
-        this.maxConnections = pippoSettings.getInteger(TomcatSettings.MAX_CONNECTIONS, 100);
+        this.maxConnections = pippoSettings.getInteger(TomcatSettings.MAX_CONNECTIONS, 0);
         this.keyAlias = pippoSettings.getString(TomcatSettings.KEY_ALIAS, "tomcat");
         this.keyType = pippoSettings.getString(TomcatSettings.KEY_TYPE, "JKS");
         this.clientAuth = pippoSettings.getBoolean(TomcatSettings.CLIENT_AUTH, false);
+        this.protocol = pippoSettings.getString(TomcatSettings.PROTOCOL, PROTOCOL_NIO);
+        this.maxThreads = pippoSettings.getInteger(TomcatSettings.MAX_THREADS, 0);
+        this.minSpareThreads = pippoSettings.getInteger(TomcatSettings.MIN_SPARE_THREADS, 0);
+        this.acceptCount = pippoSettings.getInteger(TomcatSettings.ACCEPT_COUNT, 0);
+        this.keepAliveTimeout = pippoSettings.getInteger(TomcatSettings.KEEP_ALIVE_TIMEOUT, 0);
+        this.maxKeepAliveRequests = pippoSettings.getInteger(TomcatSettings.MAX_KEEP_ALIVE_REQUESTS, 0);
+        this.compression = pippoSettings.getString(TomcatSettings.COMPRESSION, null);
+        this.compressionMinSize = pippoSettings.getInteger(TomcatSettings.COMPRESSION_MIN_SIZE, 0);
+        this.compressibleMimeType = pippoSettings.getString(TomcatSettings.COMPRESSIBLE_MIME_TYPE, null);
+        this.http2 = pippoSettings.getBoolean(TomcatSettings.HTTP2, false);
+        this.sharedExecutor = pippoSettings.getBoolean(TomcatSettings.SHARED_EXECUTOR, false);
     }
 
     public String getBaseFolder() {
@@ -65,6 +101,63 @@ public class TomcatSettings extends WebServerSettings {
         return clientAuth;
     }
 
+    /**
+     * The connector protocol: {@code nio} (default), {@code nio2} or a protocol handler class name.
+     */
+    public String getProtocol() {
+        return protocol;
+    }
+
+    public int getMaxThreads() {
+        return maxThreads;
+    }
+
+    public int getMinSpareThreads() {
+        return minSpareThreads;
+    }
+
+    public int getAcceptCount() {
+        return acceptCount;
+    }
+
+    public int getKeepAliveTimeout() {
+        return keepAliveTimeout;
+    }
+
+    public int getMaxKeepAliveRequests() {
+        return maxKeepAliveRequests;
+    }
+
+    /**
+     * The connector compression: {@code off}, {@code on}, {@code force}.
+     */
+    public String getCompression() {
+        return compression;
+    }
+
+    public int getCompressionMinSize() {
+        return compressionMinSize;
+    }
+
+    public String getCompressibleMimeType() {
+        return compressibleMimeType;
+    }
+
+    /**
+     * If true, the HTTP/2 upgrade protocol is added to the connector.
+     */
+    public boolean getHttp2() {
+        return http2;
+    }
+
+    /**
+     * If true, the connector uses a service level executor (a Tomcat {@code Executor})
+     * configured with maxThreads and minSpareThreads.
+     */
+    public boolean getSharedExecutor() {
+        return sharedExecutor;
+    }
+
     public TomcatSettings baseFolder(String baseFolder) {
         this.baseFolder = baseFolder;
 
@@ -95,4 +188,70 @@ public class TomcatSettings extends WebServerSettings {
         return this;
     }
 
+    public TomcatSettings protocol(String protocol) {
+        this.protocol = protocol;
+
+        return this;
+    }
+
+    public TomcatSettings maxThreads(int maxThreads) {
+        this.maxThreads = maxThreads;
+
+        return this;
+    }
+
+    public TomcatSettings minSpareThreads(int minSpareThreads) {
+        this.minSpareThreads = minSpareThreads;
+
+        return this;
+    }
+
+    public TomcatSettings acceptCount(int acceptCount) {
+        this.acceptCount = acceptCount;
+
+        return this;
+    }
+
+    public TomcatSettings keepAliveTimeout(int keepAliveTimeout) {
+        this.keepAliveTimeout = keepAliveTimeout;
+
+        return this;
+    }
+
+    public TomcatSettings maxKeepAliveRequests(int maxKeepAliveRequests) {
+        this.maxKeepAliveRequests = maxKeepAliveRequests;
+
+        return this;
+    }
+
+    public TomcatSettings compression(String compression) {
+        this.compression = compression;
+
+        return this;
+    }
+
+    public TomcatSettings compressionMinSize(int compressionMinSize) {
+        this.compressionMinSize = compressionMinSize;
+
+        return this;
+    }
+
+    public TomcatSettings compressibleMimeType(String compressibleMimeType) {
+        this.compressibleMimeType = compressibleMimeType;
+
+        return this;
+    }
+
+    public TomcatSettings http2(boolean http2) {
+        this.http2 = http2;
+
+        return this;
+    }
+
+    public TomcatSettings sharedExecutor(boolean sharedExecutor) {
+        this.sharedExecutor = sharedExecutor;
+
+        return this;
+    }
+
 }
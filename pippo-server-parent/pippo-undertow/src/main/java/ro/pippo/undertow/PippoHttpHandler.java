@@ -0,0 +1,155 @@
+/*
+ * Copyright (C) 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ro.pippo.undertow;
+
+import io.undertow.server.HttpHandler;
+import io.undertow.server.HttpServerExchange;
+import io.undertow.server.handlers.form.FormParserFactory;
+import io.undertow.server.handlers.form.MultiPartParserDefinition;
+import io.undertow.util.Headers;
+import io.undertow.util.StatusCodes;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import ro.pippo.core.Application;
+import ro.pippo.core.Request;
+import ro.pippo.core.RequestResponse;
+import ro.pippo.core.RequestResponseFactory;
+import ro.pippo.core.Response;
+import ro.pippo.core.route.RouteDispatcher;
+import ro.pippo.core.util.PippoUtils;
+import ro.pippo.core.util.StringUtils;
+
+import java.io.File;
+
+/**
+ * An Undertow {@link HttpHandler} that dispatches the requests directly to the pippo
+ * {@link RouteDispatcher}, without the servlet layer (deployment, filter chain, servlet request/response).
+ * It's the equivalent of {@link ro.pippo.core.PippoFilter} for the native mode of {@link UndertowServer}.
+ *
+ * <p>
+ * By default each request is dispatched to a worker thread (blocking IO).
+ * If {@code nonBlocking} is enabled, the requests without body are handled directly on the IO thread
+ * and the response is sent with a non-blocking sender. Use it only if your routes don't block.
+ * </p>
+ *
+ * @author agent
+ */
+public class PippoHttpHandler implements HttpHandler {
+
+    private static final Logger log = LoggerFactory.getLogger(PippoHttpHandler.class);
+
+    private final Application application;
+    private final String contextPath;
+    private final String filterPath;
+    private final boolean nonBlocking;
+
+    private RouteDispatcher routeDispatcher;
+    private FormParserFactory formParserFactory;
+
+    public PippoHttpHandler(Application application, String contextPath, String filterPath, boolean nonBlocking) {
+        this.application = application;
+        this.contextPath = StringUtils.addStart(contextPath, "/");
+        this.filterPath = filterPath;
+        this.nonBlocking = nonBlocking;
+    }
+
+    public void init() {
+        if (System.getProperty("pippo.hideLogo") == null) {
+            log.info(PippoUtils.getPippoLogo());
+        }
+
+        application.getRouter().setContextPath(contextPath);
+        String applicationPath = StringUtils.addEnd(contextPath, "/") + StringUtils.removeStart(filterPath, "/");
+        application.getRouter().setApplicationPath(applicationPath);
+        log.debug("Serving application on path '{}'", applicationPath);
+
+        MultiPartParserDefinition multiPartParser = new MultiPartParserDefinition();
+        String uploadLocation = application.getUploadLocation();
+        if (!StringUtils.isNullOrEmpty(uploadLocation)) {
+            multiPartParser.setTempFileLocation(new File(uploadLocation).toPath());
+        }
+        multiPartParser.setMaxIndividualFileSize(application.getMaximumUploadSize());
+        FormParserFactory.Builder formParserBuilder = FormParserFactory.builder();
+        formParserBuilder.addParser(multiPartParser);
+        formParserBuilder.setDefaultCharset("UTF-8");
+        formParserFactory = formParserBuilder.build();
+
+        log.debug("Initializing Route Dispatcher");
+        routeDispatcher = new RouteDispatcher(application);
+        routeDispatcher.init();
+
+        String runtimeMode = application.getRuntimeMode().toString().toUpperCase();
+        log.info("Pippo started ({}, Undertow native mode)", runtimeMode);
+    }
+
+    public void destroy() {
+        if (routeDispatcher != null) {
+            routeDispatcher.destroy();
+        }
+        application.destroy();
+
+        log.info("Pippo destroyed");
+    }
+
+    @Override
+    public void handleRequest(HttpServerExchange exchange) throws Exception {
+        boolean buffered = nonBlocking && !hasRequestBody(exchange);
+        if (exchange.isInIoThread() && !buffered) {
+            exchange.dispatch(this);
+            return;
+        }
+
+        if (!exchange.isInIoThread()) {
+            buffered = false;
+            exchange.startBlocking();
+        }
+
+        UndertowHttpServletRequest httpServletRequest = new UndertowHttpServletRequest(exchange, formParserFactory, contextPath);
+        UndertowHttpServletResponse httpServletResponse = new UndertowHttpServletResponse(exchange, buffered);
+
+        String applicationPath = application.getRouter().getApplicationPath();
+        if (!httpServletRequest.getRequestURI().startsWith(applicationPath)) {
+            exchange.setStatusCode(StatusCodes.NOT_FOUND);
+            exchange.endExchange();
+
+            return;
+        }
+
+        // create Request, Response objects
+        RequestResponseFactory requestResponseFactory = application.getRequestResponseFactory();
+        RequestResponse requestResponse = requestResponseFactory.createRequestResponse(httpServletRequest, httpServletResponse);
+        Request request = requestResponse.getRequest();
+        Response response = requestResponse.getResponse();
+
+        log.debug("Request {} '{}'", request.getMethod(), request.getPath());
+
+        try {
+            // dispatch route(s)
+            routeDispatcher.dispatch(request, response);
+        } finally {
+            httpServletResponse.finish();
+        }
+    }
+
+    public Application getApplication() {
+        return application;
+    }
+
+    private boolean hasRequestBody(HttpServerExchange exchange) {
+        return (exchange.getRequestContentLength() > 0) || exchange.getRequestHeaders().contains(Headers.TRANSFER_ENCODING);
+    }
+
+}
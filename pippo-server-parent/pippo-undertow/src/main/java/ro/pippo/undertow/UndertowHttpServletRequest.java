@@ -0,0 +1,723 @@
+/*
+ * Copyright (C) 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ro.pippo.undertow;
+
+import io.undertow.server.HttpServerExchange;
+import io.undertow.server.handlers.form.FormData;
+import io.undertow.server.handlers.form.FormDataParser;
+import io.undertow.server.handlers.form.FormParserFactory;
+import io.undertow.util.DateUtils;
+import io.undertow.util.HeaderValues;
+import io.undertow.util.Headers;
+import io.undertow.util.HttpString;
+import io.undertow.util.LocaleUtils;
+import ro.pippo.core.HttpConstants;
+import ro.pippo.core.PippoRuntimeException;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.DispatcherType;
+import javax.servlet.ReadListener;
+import javax.servlet.RequestDispatcher;
+import javax.servlet.ServletContext;
+import javax.servlet.ServletException;
+import javax.servlet.ServletInputStream;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpSession;
+import javax.servlet.http.HttpUpgradeHandler;
+import javax.servlet.http.Part;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UnsupportedEncodingException;
+import java.net.InetSocketAddress;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.security.Principal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.Deque;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Adapts an Undertow {@link HttpServerExchange} to {@link HttpServletRequest}
+ * without going through the Undertow servlet container.
+ * It's used by {@link PippoHttpHandler} (the native mode of {@link UndertowServer}).
+ *
+ * <p>
+ * Only the subset of the servlet API used by Pippo is fully supported.
+ * There is no servlet context, no container session (use the pippo-session module), no async support
+ * and no request dispatcher.
+ * </p>
+ *
+ * @author agent
+ */
+public class UndertowHttpServletRequest implements HttpServletRequest {
+
+    private final HttpServerExchange exchange;
+    private final FormParserFactory formParserFactory;
+    private final String contextPath;
+
+    private Map<String, Object> attributes;
+    private Map<String, String[]> parameters;
+    private FormData formData;
+    private String characterEncoding;
+    private Cookie[] cookies;
+    private ServletInputStream inputStream;
+    private BufferedReader reader;
+
+    public UndertowHttpServletRequest(HttpServerExchange exchange, FormParserFactory formParserFactory, String contextPath) {
+        this.exchange = exchange;
+        this.formParserFactory = formParserFactory;
+        this.contextPath = "/".equals(contextPath) ? "" : contextPath;
+    }
+
+    public HttpServerExchange getExchange() {
+        return exchange;
+    }
+
+    @Override
+    public String getAuthType() {
+        return null;
+    }
+
+    @Override
+    public Cookie[] getCookies() {
+        if (cookies == null) {
+            Map<String, io.undertow.server.handlers.Cookie> requestCookies = exchange.getRequestCookies();
+            if (requestCookies.isEmpty()) {
+                return null;
+            }
+
+            List<Cookie> list = new ArrayList<>(requestCookies.size());
+            for (io.undertow.server.handlers.Cookie requestCookie : requestCookies.values()) {
+                try {
+                    Cookie cookie = new Cookie(requestCookie.getName(), requestCookie.getValue());
+                    if (requestCookie.getDomain() != null) {
+                        cookie.setDomain(requestCookie.getDomain());
+                    }
+                    if (requestCookie.getPath() != null) {
+                        cookie.setPath(requestCookie.getPath());
+                    }
+                    list.add(cookie);
+                } catch (IllegalArgumentException e) {
+                    // invalid cookie name; ignore it like the servlet containers do
+                }
+            }
+            cookies = list.toArray(new Cookie[list.size()]);
+        }
+
+        return cookies;
+    }
+
+    @Override
+    public long getDateHeader(String name) {
+        String header = getHeader(name);
+        if (header == null) {
+            return -1;
+        }
+
+        Date date = DateUtils.parseDate(header);
+        if (date == null) {
+            throw new IllegalArgumentException("Header '" + name + "' cannot be converted to date");
+        }
+
+        return date.getTime();
+    }
+
+    @Override
+    public String getHeader(String name) {
+        return exchange.getRequestHeaders().getFirst(name);
+    }
+
+    @Override
+    public Enumeration<String> getHeaders(String name) {
+        HeaderValues values = exchange.getRequestHeaders().get(name);
+        if (values == null) {
+            return Collections.emptyEnumeration();
+        }
+
+        return Collections.enumeration(values);
+    }
+
+    @Override
+    public Enumeration<String> getHeaderNames() {
+        List<String> names = new ArrayList<>();
+        for (HttpString name : exchange.getRequestHeaders().getHeaderNames()) {
+            names.add(name.toString());
+        }
+
+        return Collections.enumeration(names);
+    }
+
+    @Override
+    public int getIntHeader(String name) {
+        String header = getHeader(name);
+
+        return (header != null) ? Integer.parseInt(header) : -1;
+    }
+
+    @Override
+    public String getMethod() {
+        return exchange.getRequestMethod().toString();
+    }
+
+    @Override
+    public String getPathInfo() {
+        return exchange.getRelativePath();
+    }
+
+    @Override
+    public String getPathTranslated() {
+        return null;
+    }
+
+    @Override
+    public String getContextPath() {
+        return contextPath;
+    }
+
+    @Override
+    public String getQueryString() {
+        String queryString = exchange.getQueryString();
+
+        return queryString.isEmpty() ? null : queryString;
+    }
+
+    @Override
+    public String getRemoteUser() {
+        return null;
+    }
+
+    @Override
+    public boolean isUserInRole(String role) {
+        return false;
+    }
+
+    @Override
+    public Principal getUserPrincipal() {
+        return null;
+    }
+
+    @Override
+    public String getRequestedSessionId() {
+        return null;
+    }
+
+    @Override
+    public String getRequestURI() {
+        String requestURI = exchange.getRequestURI();
+        if (exchange.isHostIncludedInRequestURI()) {
+            // absolute-form (http://host:port/path); keep only the path
+            int schemeEnd = requestURI.indexOf("://");
+            int pathStart = requestURI.indexOf('/', schemeEnd + 3);
+            requestURI = (pathStart == -1) ? "/" : requestURI.substring(pathStart);
+        }
+
+        return requestURI;
+    }
+
+    @Override
+    public StringBuffer getRequestURL() {
+        return new StringBuffer(exchange.getRequestURL());
+    }
+
+    @Override
+    public String getServletPath() {
+        return "";
+    }
+
+    @Override
+    public HttpSession getSession(boolean create) {
+        if (create) {
+            throw new PippoRuntimeException("There is no servlet container session in Undertow native mode. Use the pippo-session module");
+        }
+
+        return null;
+    }
+
+    @Override
+    public HttpSession getSession() {
+        return getSession(true);
+    }
+
+    @Override
+    public String changeSessionId() {
+        throw new IllegalStateException("No session");
+    }
+
+    @Override
+    public boolean isRequestedSessionIdValid() {
+        return false;
+    }
+
+    @Override
+    public boolean isRequestedSessionIdFromCookie() {
+        return false;
+    }
+
+    @Override
+    public boolean isRequestedSessionIdFromURL() {
+        return false;
+    }
+
+    @Override
+    @Deprecated
+    public boolean isRequestedSessionIdFromUrl() {
+        return false;
+    }
+
+    @Override
+    public boolean authenticate(HttpServletResponse response) throws IOException, ServletException {
+        throw new ServletException("Authentication is not supported in Undertow native mode");
+    }
+
+    @Override
+    public void login(String username, String password) throws ServletException {
+        throw new ServletException("Authentication is not supported in Undertow native mode");
+    }
+
+    @Override
+    public void logout() throws ServletException {
+        throw new ServletException("Authentication is not supported in Undertow native mode");
+    }
+
+    @Override
+    public Collection<Part> getParts() throws IOException, ServletException {
+        if (!isMultipartRequest()) {
+            throw new ServletException("Not a multipart request");
+        }
+
+        FormData formData = getFormData();
+        List<Part> parts = new ArrayList<>();
+        if (formData != null) {
+            for (String name : formData) {
+                for (FormData.FormValue value : formData.get(name)) {
+                    parts.add(new UndertowPart(name, value));
+                }
+            }
+        }
+
+        return parts;
+    }
+
+    @Override
+    public Part getPart(String name) throws IOException, ServletException {
+        for (Part part : getParts()) {
+            if (part.getName().equals(name)) {
+                return part;
+            }
+        }
+
+        return null;
+    }
+
+    @Override
+    public <T extends HttpUpgradeHandler> T upgrade(Class<T> handlerClass) throws IOException, ServletException {
+        throw new ServletException("HTTP upgrade is not supported in Undertow native mode");
+    }
+
+    @Override
+    public Object getAttribute(String name) {
+        return (attributes != null) ? attributes.get(name) : null;
+    }
+
+    @Override
+    public Enumeration<String> getAttributeNames() {
+        if (attributes == null) {
+            return Collections.emptyEnumeration();
+        }
+
+        return Collections.enumeration(new ArrayList<>(attributes.keySet()));
+    }
+
+    @Override
+    public String getCharacterEncoding() {
+        if (characterEncoding != null) {
+            return characterEncoding;
+        }
+
+        return exchange.getRequestCharset();
+    }
+
+    @Override
+    public void setCharacterEncoding(String env) throws UnsupportedEncodingException {
+        if (!Charset.isSupported(env)) {
+            throw new UnsupportedEncodingException(env);
+        }
+
+        characterEncoding = env;
+    }
+
+    @Override
+    public int getContentLength() {
+        long length = getContentLengthLong();
+
+        return (length > Integer.MAX_VALUE) ? -1 : (int) length;
+    }
+
+    @Override
+    public long getContentLengthLong() {
+        return exchange.getRequestContentLength();
+    }
+
+    @Override
+    public String getContentType() {
+        return getHeader(HttpConstants.Header.CONTENT_TYPE);
+    }
+
+    @Override
+    public ServletInputStream getInputStream() throws IOException {
+        if (reader != null) {
+            throw new IllegalStateException("getReader() has already been called");
+        }
+
+        if (inputStream == null) {
+            inputStream = new ExchangeInputStream(exchange.getInputStream());
+        }
+
+        return inputStream;
+    }
+
+    @Override
+    public String getParameter(String name) {
+        String[] values = getParameterMap().get(name);
+
+        return (values != null) ? values[0] : null;
+    }
+
+    @Override
+    public Enumeration<String> getParameterNames() {
+        return Collections.enumeration(getParameterMap().keySet());
+    }
+
+    @Override
+    public String[] getParameterValues(String name) {
+        return getParameterMap().get(name);
+    }
+
+    @Override
+    public Map<String, String[]> getParameterMap() {
+        if (parameters == null) {
+            Map<String, List<String>> tmp = new LinkedHashMap<>();
+            for (Map.Entry<String, Deque<String>> entry : exchange.getQueryParameters().entrySet()) {
+                tmp.computeIfAbsent(entry.getKey(), k -> new ArrayList<>()).addAll(entry.getValue());
+            }
+
+            if (HttpConstants.Method.POST.equals(getMethod())) {
+                FormData formData = getFormData();
+                if (formData != null) {
+                    for (String name : formData) {
+                        for (FormData.FormValue value : formData.get(name)) {
+                            if (!value.isFile()) {
+                                tmp.computeIfAbsent(name, k -> new ArrayList<>()).add(value.getValue());
+                            }
+                        }
+                    }
+                }
+            }
+
+            parameters = new LinkedHashMap<>();
+            for (Map.Entry<String, List<String>> entry : tmp.entrySet()) {
+                List<String> values = entry.getValue();
+                parameters.put(entry.getKey(), values.toArray(new String[values.size()]));
+            }
+        }
+
+        return parameters;
+    }
+
+    @Override
+    public String getProtocol() {
+        return exchange.getProtocol().toString();
+    }
+
+    @Override
+    public String getScheme() {
+        return exchange.getRequestScheme();
+    }
+
+    @Override
+    public String getServerName() {
+        return exchange.getHostName();
+    }
+
+    @Override
+    public int getServerPort() {
+        return exchange.getHostPort();
+    }
+
+    @Override
+    public BufferedReader getReader() throws IOException {
+        if (inputStream != null) {
+            throw new IllegalStateException("getInputStream() has already been called");
+        }
+
+        if (reader == null) {
+            String encoding = getCharacterEncoding();
+            Charset charset = (encoding != null) ? Charset.forName(encoding) : StandardCharsets.ISO_8859_1;
+            reader = new BufferedReader(new InputStreamReader(exchange.getInputStream(), charset));
+        }
+
+        return reader;
+    }
+
+    @Override
+    public String getRemoteAddr() {
+        InetSocketAddress address = exchange.getSourceAddress();
+        if (address == null) {
+            return "";
+        }
+
+        return (address.getAddress() != null) ? address.getAddress().getHostAddress() : address.getHostString();
+    }
+
+    @Override
+    public String getRemoteHost() {
+        InetSocketAddress address = exchange.getSourceAddress();
+
+        return (address != null) ? address.getHostString() : "";
+    }
+
+    @Override
+    public void setAttribute(String name, Object o) {
+        if (o == null) {
+            removeAttribute(name);
+            return;
+        }
+
+        if (attributes == null) {
+            attributes = new HashMap<>();
+        }
+        attributes.put(name, o);
+    }
+
+    @Override
+    public void removeAttribute(String name) {
+        if (attributes != null) {
+            attributes.remove(name);
+        }
+    }
+
+    @Override
+    public Locale getLocale() {
+        Enumeration<Locale> locales = getLocales();
+
+        return locales.nextElement();
+    }
+
+    @Override
+    public Enumeration<Locale> getLocales() {
+        List<String> acceptLanguage = exchange.getRequestHeaders().get(Headers.ACCEPT_LANGUAGE);
+        List<Locale> locales = (acceptLanguage != null) ? LocaleUtils.getLocalesFromHeader(acceptLanguage) : null;
+        if ((locales == null) || locales.isEmpty()) {
+            return Collections.enumeration(Collections.singletonList(Locale.getDefault()));
+        }
+
+        return Collections.enumeration(locales);
+    }
+
+    @Override
+    public boolean isSecure() {
+        return "https".equalsIgnoreCase(getScheme());
+    }
+
+    @Override
+    public RequestDispatcher getRequestDispatcher(String path) {
+        return null;
+    }
+
+    @Override
+    @Deprecated
+    public String getRealPath(String path) {
+        return null;
+    }
+
+    @Override
+    public int getRemotePort() {
+        InetSocketAddress address = exchange.getSourceAddress();
+
+        return (address != null) ? address.getPort() : -1;
+    }
+
+    @Override
+    public String getLocalName() {
+        InetSocketAddress address = exchange.getDestinationAddress();
+
+        return (address != null) ? address.getHostString() : "";
+    }
+
+    @Override
+    public String getLocalAddr() {
+        InetSocketAddress address = exchange.getDestinationAddress();
+        if (address == null) {
+            return "";
+        }
+
+        return (address.getAddress() != null) ? address.getAddress().getHostAddress() : address.getHostString();
+    }
+
+    @Override
+    public int getLocalPort() {
+        InetSocketAddress address = exchange.getDestinationAddress();
+
+        return (address != null) ? address.getPort() : -1;
+    }
+
+    /**
+     * There is no servlet context in native mode.
+     *
+     * @return null
+     */
+    @Override
+    public ServletContext getServletContext() {
+        return null;
+    }
+
+    @Override
+    public AsyncContext startAsync() throws IllegalStateException {
+        throw new IllegalStateException("Async is not supported in Undertow native mode");
+    }
+
+    @Override
+    public AsyncContext startAsync(ServletRequest servletRequest, ServletResponse servletResponse) throws IllegalStateException {
+        throw new IllegalStateException("Async is not supported in Undertow native mode");
+    }
+
+    @Override
+    public boolean isAsyncStarted() {
+        return false;
+    }
+
+    @Override
+    public boolean isAsyncSupported() {
+        return false;
+    }
+
+    @Override
+    public AsyncContext getAsyncContext() {
+        throw new IllegalStateException("Async is not supported in Undertow native mode");
+    }
+
+    @Override
+    public DispatcherType getDispatcherType() {
+        return DispatcherType.REQUEST;
+    }
+
+    private boolean isMultipartRequest() {
+        String contentType = getContentType();
+
+        return (contentType != null) && contentType.toLowerCase().startsWith(HttpConstants.ContentType.MULTIPART_FORM_DATA);
+    }
+
+    private FormData getFormData() {
+        if ((formData == null) && exchange.isBlocking()) {
+            FormDataParser parser = formParserFactory.createParser(exchange);
+            if (parser != null) {
+                if (characterEncoding != null) {
+                    parser.setCharacterEncoding(characterEncoding);
+                }
+                // the parser removes the uploaded (temporary) files on close
+                exchange.addExchangeCompleteListener((exchange, nextListener) -> {
+                    try {
+                        parser.close();
+                    } catch (IOException e) {
+                        // ignore
+                    } finally {
+                        nextListener.proceed();
+                    }
+                });
+
+                try {
+                    formData = parser.parseBlocking();
+                } catch (IOException e) {
+                    throw new PippoRuntimeException(e, "Cannot parse the request body");
+                }
+            }
+        }
+
+        return formData;
+    }
+
+    private static class ExchangeInputStream extends ServletInputStream {
+
+        private final InputStream inputStream;
+
+        private boolean finished;
+
+        ExchangeInputStream(InputStream inputStream) {
+            this.inputStream = inputStream;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = inputStream.read();
+            if (b == -1) {
+                finished = true;
+            }
+
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int count = inputStream.read(b, off, len);
+            if (count == -1) {
+                finished = true;
+            }
+
+            return count;
+        }
+
+        @Override
+        public int available() throws IOException {
+            return inputStream.available();
+        }
+
+        @Override
+        public void close() throws IOException {
+            inputStream.close();
+        }
+
+        @Override
+        public boolean isFinished() {
+            return finished;
+        }
+
+        @Override
+        public boolean isReady() {
+            return true;
+        }
+
+        @Override
+        public void setReadListener(ReadListener readListener) {
+            throw new UnsupportedOperationException("Async IO is not supported in Undertow native mode");
+        }
+
+    }
+
+}
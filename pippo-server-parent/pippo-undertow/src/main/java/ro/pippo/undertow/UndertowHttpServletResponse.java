@@ -0,0 +1,551 @@
+/*
+ * Copyright (C) 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ro.pippo.undertow;
+
+import io.undertow.server.HttpServerExchange;
+import io.undertow.server.handlers.CookieImpl;
+import io.undertow.util.DateUtils;
+import io.undertow.util.HeaderValues;
+import io.undertow.util.Headers;
+import io.undertow.util.HttpString;
+import io.undertow.util.StatusCodes;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Adapts an Undertow {@link HttpServerExchange} to {@link HttpServletResponse}
+ * without going through the Undertow servlet container.
+ * It's used by {@link PippoHttpHandler} (the native mode of {@link UndertowServer}).
+ *
+ * <p>
+ * In buffered mode (the request is handled on an IO thread) the content is collected in memory
+ * and it's sent with a non-blocking {@link io.undertow.io.Sender} when the response is finished.
+ * Otherwise (the request is handled on a worker thread) the content is written to the blocking
+ * exchange output stream.
+ * </p>
+ *
+ * @author agent
+ */
+public class UndertowHttpServletResponse implements HttpServletResponse {
+
+    private static final String DEFAULT_CHARACTER_ENCODING = "ISO-8859-1";
+
+    private final HttpServerExchange exchange;
+    private final boolean buffered;
+
+    private String contentType;
+    private String characterEncoding;
+    private Locale locale;
+    private ExchangeOutputStream outputStream;
+    private PrintWriter writer;
+    private boolean committed;
+
+    public UndertowHttpServletResponse(HttpServerExchange exchange, boolean buffered) {
+        this.exchange = exchange;
+        this.buffered = buffered;
+    }
+
+    public HttpServerExchange getExchange() {
+        return exchange;
+    }
+
+    @Override
+    public void addCookie(Cookie cookie) {
+        if (exchange.isResponseStarted()) {
+            return;
+        }
+
+        CookieImpl responseCookie = new CookieImpl(cookie.getName(), cookie.getValue());
+        responseCookie.setPath(cookie.getPath());
+        responseCookie.setDomain(cookie.getDomain());
+        responseCookie.setSecure(cookie.getSecure());
+        responseCookie.setHttpOnly(cookie.isHttpOnly());
+        responseCookie.setVersion(cookie.getVersion());
+        responseCookie.setComment(cookie.getComment());
+        int maxAge = cookie.getMaxAge();
+        if (maxAge >= 0) {
+            responseCookie.setMaxAge(maxAge);
+            long expires = (maxAge == 0) ? 0 : System.currentTimeMillis() + maxAge * 1000L;
+            responseCookie.setExpires(new Date(expires));
+        }
+
+        exchange.setResponseCookie(responseCookie);
+    }
+
+    @Override
+    public boolean containsHeader(String name) {
+        if (Headers.CONTENT_TYPE_STRING.equalsIgnoreCase(name)) {
+            return contentType != null;
+        }
+
+        return exchange.getResponseHeaders().contains(name);
+    }
+
+    @Override
+    public String encodeURL(String url) {
+        return url;
+    }
+
+    @Override
+    public String encodeRedirectURL(String url) {
+        return url;
+    }
+
+    @Override
+    @Deprecated
+    public String encodeUrl(String url) {
+        return url;
+    }
+
+    @Override
+    @Deprecated
+    public String encodeRedirectUrl(String url) {
+        return url;
+    }
+
+    @Override
+    public void sendError(int sc, String msg) throws IOException {
+        if (isCommitted()) {
+            throw new IllegalStateException("The response has already been committed");
+        }
+
+        setStatus(sc);
+        if (msg != null) {
+            exchange.setReasonPhrase(msg);
+        }
+        commitHeaders();
+    }
+
+    @Override
+    public void sendError(int sc) throws IOException {
+        sendError(sc, null);
+    }
+
+    @Override
+    public void sendRedirect(String location) throws IOException {
+        if (isCommitted()) {
+            throw new IllegalStateException("The response has already been committed");
+        }
+
+        setStatus(StatusCodes.FOUND);
+        exchange.getResponseHeaders().put(Headers.LOCATION, toAbsoluteLocation(location));
+        commitHeaders();
+    }
+
+    @Override
+    public void setDateHeader(String name, long date) {
+        setHeader(name, DateUtils.toDateString(new Date(date)));
+    }
+
+    @Override
+    public void addDateHeader(String name, long date) {
+        addHeader(name, DateUtils.toDateString(new Date(date)));
+    }
+
+    @Override
+    public void setHeader(String name, String value) {
+        if (exchange.isResponseStarted()) {
+            return;
+        }
+
+        if (Headers.CONTENT_TYPE_STRING.equalsIgnoreCase(name)) {
+            setContentType(value);
+        } else if (value == null) {
+            exchange.getResponseHeaders().remove(name);
+        } else {
+            exchange.getResponseHeaders().put(HttpString.tryFromString(name), value);
+        }
+    }
+
+    @Override
+    public void addHeader(String name, String value) {
+        if (exchange.isResponseStarted() || (value == null)) {
+            return;
+        }
+
+        if (Headers.CONTENT_TYPE_STRING.equalsIgnoreCase(name)) {
+            setContentType(value);
+        } else {
+            exchange.getResponseHeaders().add(HttpString.tryFromString(name), value);
+        }
+    }
+
+    @Override
+    public void setIntHeader(String name, int value) {
+        setHeader(name, Integer.toString(value));
+    }
+
+    @Override
+    public void addIntHeader(String name, int value) {
+        addHeader(name, Integer.toString(value));
+    }
+
+    @Override
+    public void setStatus(int sc) {
+        if (!exchange.isResponseStarted()) {
+            exchange.setStatusCode(sc);
+        }
+    }
+
+    @Override
+    @Deprecated
+    public void setStatus(int sc, String sm) {
+        setStatus(sc);
+        if (!exchange.isResponseStarted()) {
+            exchange.setReasonPhrase(sm);
+        }
+    }
+
+    @Override
+    public int getStatus() {
+        return exchange.getStatusCode();
+    }
+
+    @Override
+    public String getHeader(String name) {
+        if (Headers.CONTENT_TYPE_STRING.equalsIgnoreCase(name)) {
+            return getContentType();
+        }
+
+        return exchange.getResponseHeaders().getFirst(name);
+    }
+
+    @Override
+    public Collection<String> getHeaders(String name) {
+        HeaderValues values = exchange.getResponseHeaders().get(name);
+
+        return (values != null) ? new ArrayList<>(values) : Collections.emptyList();
+    }
+
+    @Override
+    public Collection<String> getHeaderNames() {
+        List<String> names = new ArrayList<>();
+        for (HttpString name : exchange.getResponseHeaders().getHeaderNames()) {
+            names.add(name.toString());
+        }
+
+        return names;
+    }
+
+    @Override
+    public String getCharacterEncoding() {
+        return (characterEncoding != null) ? characterEncoding : DEFAULT_CHARACTER_ENCODING;
+    }
+
+    @Override
+    public String getContentType() {
+        if (contentType == null) {
+            return null;
+        }
+
+        if (characterEncoding != null) {
+            return contentType + ";charset=" + characterEncoding;
+        }
+
+        return contentType;
+    }
+
+    @Override
+    public ServletOutputStream getOutputStream() throws IOException {
+        if (writer != null) {
+            throw new IllegalStateException("getWriter() has already been called");
+        }
+
+        return getExchangeOutputStream();
+    }
+
+    @Override
+    public PrintWriter getWriter() throws IOException {
+        if (writer == null) {
+            if (outputStream != null) {
+                throw new IllegalStateException("getOutputStream() has already been called");
+            }
+
+            Charset charset = Charset.forName(getCharacterEncoding());
+            writer = new PrintWriter(new OutputStreamWriter(getExchangeOutputStream(), charset));
+        }
+
+        return writer;
+    }
+
+    @Override
+    public void setCharacterEncoding(String charset) {
+        if ((writer != null) || isCommitted()) {
+            return;
+        }
+
+        characterEncoding = charset;
+    }
+
+    @Override
+    public void setContentLength(int len) {
+        setContentLengthLong(len);
+    }
+
+    @Override
+    public void setContentLengthLong(long len) {
+        if (!exchange.isResponseStarted()) {
+            exchange.setResponseContentLength(len);
+        }
+    }
+
+    @Override
+    public void setContentType(String type) {
+        if (isCommitted()) {
+            return;
+        }
+
+        if (type == null) {
+            contentType = null;
+            return;
+        }
+
+        int index = type.toLowerCase().indexOf("charset=");
+        if (index == -1) {
+            contentType = type.trim();
+        } else {
+            String charset = type.substring(index + "charset=".length()).trim();
+            int end = charset.indexOf(';');
+            if (end != -1) {
+                charset = charset.substring(0, end);
+            }
+            charset = charset.replace("\"", "");
+            if (writer == null) {
+                characterEncoding = charset;
+            }
+
+            contentType = type.substring(0, index).trim();
+            if (contentType.endsWith(";")) {
+                contentType = contentType.substring(0, contentType.length() - 1).trim();
+            }
+        }
+    }
+
+    @Override
+    public void setBufferSize(int size) {
+        // the buffering is handled by Undertow
+    }
+
+    @Override
+    public int getBufferSize() {
+        return 0;
+    }
+
+    @Override
+    public void flushBuffer() throws IOException {
+        if (writer != null) {
+            writer.flush();
+        }
+        getExchangeOutputStream().flush();
+    }
+
+    @Override
+    public void resetBuffer() {
+        if (isCommitted()) {
+            throw new IllegalStateException("The response has already been committed");
+        }
+
+        if (outputStream != null) {
+            outputStream.resetBuffer();
+        }
+    }
+
+    @Override
+    public boolean isCommitted() {
+        return committed || exchange.isResponseStarted();
+    }
+
+    @Override
+    public void reset() {
+        resetBuffer();
+
+        exchange.getResponseHeaders().clear();
+        exchange.getResponseCookies().clear();
+        exchange.setStatusCode(StatusCodes.OK);
+        contentType = null;
+        writer = null;
+        outputStream = null;
+    }
+
+    @Override
+    public void setLocale(Locale locale) {
+        if (isCommitted()) {
+            return;
+        }
+
+        this.locale = locale;
+        exchange.getResponseHeaders().put(Headers.CONTENT_LANGUAGE, locale.toLanguageTag());
+    }
+
+    @Override
+    public Locale getLocale() {
+        return (locale != null) ? locale : Locale.getDefault();
+    }
+
+    /**
+     * Completes the response (flushes the writer, sends the buffered content and ends the exchange).
+     * It's called by {@link PippoHttpHandler} after the request was dispatched.
+     */
+    public void finish() throws IOException {
+        if (writer != null) {
+            writer.flush();
+        }
+        commitHeaders();
+
+        if (buffered) {
+            byte[] bytes = (outputStream != null) ? outputStream.toByteArray() : null;
+            if ((bytes != null) && (bytes.length > 0)) {
+                // the sender ends the exchange when the content was written
+                exchange.getResponseSender().send(ByteBuffer.wrap(bytes));
+                return;
+            }
+        } else if (outputStream != null) {
+            outputStream.close();
+        }
+
+        exchange.endExchange();
+    }
+
+    private void commitHeaders() {
+        if (exchange.isResponseStarted()) {
+            committed = true;
+            return;
+        }
+
+        String value = getContentType();
+        if (value != null) {
+            exchange.getResponseHeaders().put(Headers.CONTENT_TYPE, value);
+        }
+        committed = true;
+    }
+
+    private ExchangeOutputStream getExchangeOutputStream() {
+        if (outputStream == null) {
+            outputStream = new ExchangeOutputStream();
+            // pippo considers the response committed once the content is written (the writer
+            // buffers the content, so a servlet container would see it only when it's flushed)
+            commitHeaders();
+        }
+
+        return outputStream;
+    }
+
+    private String toAbsoluteLocation(String location) {
+        if (location.contains("://")) {
+            return location;
+        }
+
+        String base = exchange.getRequestScheme() + "://" + exchange.getHostAndPort();
+        if (location.startsWith("/")) {
+            return base + location;
+        }
+
+        String requestPath = exchange.getRequestPath();
+        String parent = requestPath.substring(0, requestPath.lastIndexOf('/') + 1);
+
+        return base + parent + location;
+    }
+
+    private class ExchangeOutputStream extends ServletOutputStream {
+
+        private ByteArrayOutputStream buffer;
+        private OutputStream target;
+        private boolean closed;
+
+        @Override
+        public void write(int b) throws IOException {
+            getTarget().write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            getTarget().write(b, off, len);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            getTarget().flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed) {
+                return;
+            }
+
+            if (!buffered) {
+                getTarget().close();
+            }
+            closed = true;
+        }
+
+        @Override
+        public boolean isReady() {
+            return true;
+        }
+
+        @Override
+        public void setWriteListener(WriteListener writeListener) {
+            throw new UnsupportedOperationException("Async IO is not supported in Undertow native mode");
+        }
+
+        private OutputStream getTarget() throws IOException {
+            if (closed && !buffered) {
+                throw new IOException("The output stream has already been closed");
+            }
+
+            if (target == null) {
+                commitHeaders();
+                if (buffered) {
+                    buffer = new ByteArrayOutputStream();
+                    target = buffer;
+                } else {
+                    target = exchange.getOutputStream();
+                }
+            }
+
+            return target;
+        }
+
+        private byte[] toByteArray() {
+            return (buffer != null) ? buffer.toByteArray() : null;
+        }
+
+        private void resetBuffer() {
+            if (buffer != null) {
+                buffer.reset();
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright (C) 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ro.pippo.undertow;
+
+import io.undertow.server.handlers.form.FormData;
+import io.undertow.util.HeaderValues;
+import io.undertow.util.Headers;
+import io.undertow.util.HttpString;
+
+import javax.servlet.http.Part;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A {@link Part} backed by an Undertow {@link FormData.FormValue}.
+ *
+ * @author agent
+ */
+class UndertowPart implements Part {
+
+    private final String name;
+    private final FormData.FormValue formValue;
+
+    UndertowPart(String name, FormData.FormValue formValue) {
+        this.name = name;
+        this.formValue = formValue;
+    }
+
+    @Override
+    public InputStream getInputStream() throws IOException {
+        if (formValue.isFile()) {
+            return Files.newInputStream(formValue.getPath());
+        }
+
+        return new ByteArrayInputStream(formValue.getValue().getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public String getContentType() {
+        return getHeader(Headers.CONTENT_TYPE_STRING);
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public String getSubmittedFileName() {
+        return formValue.getFileName();
+    }
+
+    @Override
+    public long getSize() {
+        if (formValue.isFile()) {
+            try {
+                return Files.size(formValue.getPath());
+            } catch (IOException e) {
+                return -1;
+            }
+        }
+
+        return formValue.getValue().getBytes(StandardCharsets.UTF_8).length;
+    }
+
+    @Override
+    public void write(String fileName) throws IOException {
+        Path target = new File(fileName).toPath();
+        if (formValue.isFile()) {
+            Files.copy(formValue.getPath(), target, StandardCopyOption.REPLACE_EXISTING);
+        } else {
+            Files.write(target, formValue.getValue().getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    @Override
+    public void delete() throws IOException {
+        if (formValue.isFile()) {
+            Files.deleteIfExists(formValue.getPath());
+        }
+    }
+
+    @Override
+    public String getHeader(String name) {
+        return (formValue.getHeaders() != null) ? formValue.getHeaders().getFirst(name) : null;
+    }
+
+    @Override
+    public Collection<String> getHeaders(String name) {
+        HeaderValues values = (formValue.getHeaders() != null) ? formValue.getHeaders().get(name) : null;
+
+        return (values != null) ? new ArrayList<>(values) : Collections.emptyList();
+    }
+
+    @Override
+    public Collection<String> getHeaderNames() {
+        if (formValue.getHeaders() == null) {
+            return Collections.emptyList();
+        }
+
+        List<String> names = new ArrayList<>();
+        for (HttpString name : formValue.getHeaders().getHeaderNames()) {
+            names.add(name.toString());
+        }
+
+        return names;
+    }
+
+}
@@ -22,6 +22,7 @@ import io.undertow.UndertowOptions;
 import io.undertow.server.HttpHandler;
 import io.undertow.server.handlers.GracefulShutdownHandler;
 import io.undertow.server.handlers.PathHandler;
+import io.undertow.server.protocol.http2.Http2UpgradeHandler;
 import io.undertow.servlet.Servlets;
 import io.undertow.servlet.api.DeploymentInfo;
 import io.undertow.servlet.api.DeploymentManager;
@@ -33,6 +34,7 @@ import io.undertow.servlet.util.ImmediateInstanceFactory;
 import org.kohsuke.MetaInfServices;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.xnio.Options;
 import ro.pippo.core.AbstractWebServer;
 import ro.pippo.core.Application;
 import ro.pippo.core.PippoFilter;
@@ -67,15 +69,23 @@ public class UndertowServer extends AbstractWebServer<UndertowSettings> {
 
     private Undertow server;
     private DeploymentManager pippoDeploymentManager;
+    private PippoHttpHandler pippoHttpHandler;
+    private GracefulShutdownHandler rootHandler;
 
     @Override
     public void start() {
         try {
-            pippoDeploymentManager = createPippoDeploymentManager();
-            HttpHandler pippoHandler = pippoDeploymentManager.start();
+            HttpHandler pippoHandler;
+            if (getSettings().getNativeMode()) {
+                pippoHttpHandler = createPippoHttpHandler();
+                pippoHandler = pippoHttpHandler;
+            } else {
+                pippoDeploymentManager = createPippoDeploymentManager();
+                pippoHandler = pippoDeploymentManager.start();
+            }
 
             HttpHandler contextHandler = createContextHandler(pippoHandler);
-            GracefulShutdownHandler rootHandler = new GracefulShutdownHandler(contextHandler);
+            rootHandler = new GracefulShutdownHandler(contextHandler);
             server = createServer(rootHandler);
 
             String version = server.getClass().getPackage().getImplementationVersion();
@@ -94,9 +104,22 @@ public class UndertowServer extends AbstractWebServer<UndertowSettings> {
                 String version = server.getClass().getPackage().getImplementationVersion();
                 log.info("Stopping Undertow {} on port {}", version, getSettings().getPort());
 
+                long shutdownTimeout = getSettings().getShutdownTimeout();
+                if (shutdownTimeout > 0) {
+                    // reject the new requests (503) and wait for the active requests
+                    rootHandler.shutdown();
+                    if (!rootHandler.awaitShutdown(shutdownTimeout)) {
+                        log.warn("Shutdown timeout of {} ms elapsed with active requests", shutdownTimeout);
+                    }
+                }
+
                 server.stop();
 
-                pippoDeploymentManager.undeploy();
+                if (pippoHttpHandler != null) {
+                    pippoHttpHandler.destroy();
+                } else {
+                    pippoDeploymentManager.undeploy();
+                }
             } catch (Exception e) {
                 throw new PippoRuntimeException(e, "Cannot stop Undertow Server");
             }
@@ -114,12 +137,10 @@ public class UndertowServer extends AbstractWebServer<UndertowSettings> {
         if (getSettings().getBufferSize() > 0) {
             builder.setBufferSize(getSettings().getBufferSize());
         }
-        // method builder.setBuffersPerRegion is deprecated
-        /*
         if (getSettings().getBuffersPerRegion() > 0) {
-            builder.setBuffersPerRegion(getSettings().getBuffersPerRegion());
+            // Undertow 1.4 ignores this value (the buffer pool is sized from bufferSize)
+            log.warn("Setting '{}' is not supported by this Undertow version", UndertowSettings.BUFFERS_PER_REGION);
         }
-        */
         if (getSettings().getDirectBuffers()) {
             builder.setDirectBuffers(getSettings().getDirectBuffers());
         }
@@ -129,9 +150,31 @@ public class UndertowServer extends AbstractWebServer<UndertowSettings> {
         if (getSettings().getWorkerThreads() > 0) {
             builder.setWorkerThreads(getSettings().getWorkerThreads());
         }
+        if (getSettings().getBacklog() > 0) {
+            builder.setSocketOption(Options.BACKLOG, getSettings().getBacklog());
+        }
+        if (getSettings().getMaxEntitySize() > 0) {
+            builder.setServerOption(UndertowOptions.MAX_ENTITY_SIZE, getSettings().getMaxEntitySize());
+        }
+        if (getSettings().getIdleTimeout() > 0) {
+            builder.setServerOption(UndertowOptions.IDLE_TIMEOUT, getSettings().getIdleTimeout());
+        }
+        if (getSettings().getRequestParseTimeout() > 0) {
+            builder.setServerOption(UndertowOptions.REQUEST_PARSE_TIMEOUT, getSettings().getRequestParseTimeout());
+        }
+        if (getSettings().getNoRequestTimeout() > 0) {
+            builder.setServerOption(UndertowOptions.NO_REQUEST_TIMEOUT, getSettings().getNoRequestTimeout());
+        }
+        builder.setServerOption(UndertowOptions.ALWAYS_SET_KEEP_ALIVE, getSettings().getAlwaysSetKeepAlive());
 
         if (getSettings().getKeystoreFile() == null) {
             // HTTP
+            if (getSettings().getHttp2Cleartext()) {
+                // HTTP/2 over cleartext (h2c) via the HTTP/1.1 upgrade mechanism
+                builder.setServerOption(UndertowOptions.ENABLE_HTTP2, true);
+                contextHandler = new Http2UpgradeHandler(contextHandler);
+                log.debug("HTTP/2 cleartext (h2c) is enabled");
+            }
             builder.addHttpListener(getSettings().getPort(), getSettings().getHost());
         } else {
             // HTTPS
@@ -163,6 +206,24 @@ public class UndertowServer extends AbstractWebServer<UndertowSettings> {
         return contextHandler;
     }
 
+    protected PippoHttpHandler createPippoHttpHandler() {
+        if (pippoFilterPath == null) {
+            pippoFilterPath = "/*"; // default value
+        }
+        if (!listeners.isEmpty()) {
+            log.warn("Servlet listeners are not supported in Undertow native mode and they are ignored");
+        }
+
+        // remove leading "/" and trailing "*"
+        String filterPath = pippoFilterPath.substring(1, pippoFilterPath.length() - 1);
+        PippoHttpHandler handler = new PippoHttpHandler(pippoFilter.getApplication(), getSettings().getContextPath(),
+            filterPath, getSettings().getNativeNonBlocking());
+        handler.init();
+        log.debug("Using pippo native handler for path '{}'", pippoFilterPath);
+
+        return handler;
+    }
+
     protected DeploymentManager createPippoDeploymentManager() throws ServletException {
         DeploymentInfo info = Servlets.deployment();
         info.setDeploymentName("Pippo");
@@ -28,12 +28,30 @@ public class UndertowSettings extends WebServerSettings {
     public static final String DIRECT_BUFFERS = "undertow.directBuffers";
     public static final String IO_THREADS = "undertow.ioThreads";
     public static final String WORKER_THREADS = "undertow.workerThreads";
+    public static final String BACKLOG = "undertow.backlog";
+    public static final String MAX_ENTITY_SIZE = "undertow.maxEntitySize";
+    public static final String ALWAYS_SET_KEEP_ALIVE = "undertow.alwaysSetKeepAlive";
+    public static final String IDLE_TIMEOUT = "undertow.idleTimeout";
+    public static final String REQUEST_PARSE_TIMEOUT = "undertow.requestParseTimeout";
+    public static final String NO_REQUEST_TIMEOUT = "undertow.noRequestTimeout";
+    public static final String HTTP2_CLEARTEXT = "undertow.http2Cleartext";
+    public static final String NATIVE_MODE = "undertow.nativeMode";
+    public static final String NATIVE_NON_BLOCKING = "undertow.nativeNonBlocking";
 
     private int bufferSize;
     private int buffersPerRegion;
     private int ioThreads;
     private int workerThreads;
     private Boolean directBuffers;
+    private int backlog;
+    private long maxEntitySize; // in bytes
+    private boolean alwaysSetKeepAlive;
+    private int idleTimeout; // in milliseconds
+    private int requestParseTimeout; // in milliseconds
+    private int noRequestTimeout; // in milliseconds
+    private boolean http2Cleartext;
+    private boolean nativeMode;
+    private boolean nativeNonBlocking;
 
     public UndertowSettings(PippoSettings pippoSettings) {
         super(pippoSettings);
@@ -43,12 +61,25 @@ public class UndertowSettings extends WebServerSettings {
         directBuffers = pippoSettings.getBoolean(UndertowSettings.DIRECT_BUFFERS, false);
         ioThreads = pippoSettings.getInteger(UndertowSettings.IO_THREADS, 0);
         workerThreads = pippoSettings.getInteger(UndertowSettings.WORKER_THREADS, 0);
+        backlog = pippoSettings.getInteger(UndertowSettings.BACKLOG, 0);
+        maxEntitySize = pippoSettings.getLong(UndertowSettings.MAX_ENTITY_SIZE, 0);
+        alwaysSetKeepAlive = pippoSettings.getBoolean(UndertowSettings.ALWAYS_SET_KEEP_ALIVE, true);
+        idleTimeout = pippoSettings.getInteger(UndertowSettings.IDLE_TIMEOUT, 0);
+        requestParseTimeout = pippoSettings.getInteger(UndertowSettings.REQUEST_PARSE_TIMEOUT, 0);
+        noRequestTimeout = pippoSettings.getInteger(UndertowSettings.NO_REQUEST_TIMEOUT, 0);
+        http2Cleartext = pippoSettings.getBoolean(UndertowSettings.HTTP2_CLEARTEXT, false);
+        nativeMode = pippoSettings.getBoolean(UndertowSettings.NATIVE_MODE, false);
+        nativeNonBlocking = pippoSettings.getBoolean(UndertowSettings.NATIVE_NON_BLOCKING, false);
     }
 
     public int getBufferSize() {
         return bufferSize;
     }
 
+    /**
+     * Undertow 1.4 sizes its buffer pool from {@link #getBufferSize()} and {@link #getDirectBuffers()},
+     * so this value is only honored by older Undertow versions.
+     */
     public int getBuffersPerRegion() {
         return buffersPerRegion;
     }
@@ -65,6 +96,54 @@ public class UndertowSettings extends WebServerSettings {
         return workerThreads;
     }
 
+    public int getBacklog() {
+        return backlog;
+    }
+
+    public long getMaxEntitySize() {
+        return maxEntitySize;
+    }
+
+    public boolean getAlwaysSetKeepAlive() {
+        return alwaysSetKeepAlive;
+    }
+
+    public int getIdleTimeout() {
+        return idleTimeout;
+    }
+
+    public int getRequestParseTimeout() {
+        return requestParseTimeout;
+    }
+
+    public int getNoRequestTimeout() {
+        return noRequestTimeout;
+    }
+
+    /**
+     * Returns true if HTTP/2 over cleartext (h2c) is enabled on the plain HTTP listener.
+     * It's useful when Undertow runs behind a TLS-terminating proxy.
+     * For HTTPS listeners, HTTP/2 is always enabled (via ALPN).
+     */
+    public boolean getHttp2Cleartext() {
+        return http2Cleartext;
+    }
+
+    /**
+     * If true, the requests are dispatched by a native Undertow handler,
+     * without the servlet deployment (servlet listeners and initializers are not supported).
+     */
+    public boolean getNativeMode() {
+        return nativeMode;
+    }
+
+    /**
+     * If true (and native mode is on), the requests without body are handled on the IO thread.
+     */
+    public boolean getNativeNonBlocking() {
+        return nativeNonBlocking;
+    }
+
     public UndertowSettings setBufferSize(int bufferSize) {
         this.bufferSize = bufferSize;
         return this;
@@ -90,4 +169,49 @@ public class UndertowSettings extends WebServerSettings {
         return this;
     }
 
+    public UndertowSettings setBacklog(int backlog) {
+        this.backlog = backlog;
+        return this;
+    }
+
+    public UndertowSettings setMaxEntitySize(long maxEntitySize) {
+        this.maxEntitySize = maxEntitySize;
+        return this;
+    }
+
+    public UndertowSettings setAlwaysSetKeepAlive(boolean alwaysSetKeepAlive) {
+        this.alwaysSetKeepAlive = alwaysSetKeepAlive;
+        return this;
+    }
+
+    public UndertowSettings setIdleTimeout(int idleTimeout) {
+        this.idleTimeout = idleTimeout;
+        return this;
+    }
+
+    public UndertowSettings setRequestParseTimeout(int requestParseTimeout) {
+        this.requestParseTimeout = requestParseTimeout;
+        return this;
+    }
+
+    public UndertowSettings setNoRequestTimeout(int noRequestTimeout) {
+        this.noRequestTimeout = noRequestTimeout;
+        return this;
+    }
+
+    public UndertowSettings setHttp2Cleartext(boolean http2Cleartext) {
+        this.http2Cleartext = http2Cleartext;
+        return this;
+    }
+
+    public UndertowSettings setNativeMode(boolean nativeMode) {
+        this.nativeMode = nativeMode;
+        return this;
+    }
+
+    public UndertowSettings setNativeNonBlocking(boolean nativeNonBlocking) {
+        this.nativeNonBlocking = nativeNonBlocking;
+        return this;
+    }
+
 }
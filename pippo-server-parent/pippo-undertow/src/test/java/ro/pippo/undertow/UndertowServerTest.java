@@ -0,0 +1,226 @@
+/*
+ * Copyright (C) 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ro.pippo.undertow;
+
+import org.junit.After;
+import org.junit.Test;
+import ro.pippo.core.Application;
+import ro.pippo.core.Pippo;
+import ro.pippo.core.PippoConstants;
+import ro.pippo.core.PippoSettings;
+import ro.pippo.core.RuntimeMode;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.ServerSocket;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author agent
+ */
+public class UndertowServerTest {
+
+    private Pippo pippo;
+    private int port;
+
+    @After
+    public void tearDown() {
+        if (pippo != null) {
+            pippo.stop();
+        }
+    }
+
+    @Test
+    public void testNativeMode() throws IOException {
+        AtomicBoolean committed = new AtomicBoolean();
+        Application application = createApplication(true);
+        application.GET("/hello/{name}", routeContext -> {
+            boolean nativeMode = routeContext.getRequest().getHttpServletRequest() instanceof UndertowHttpServletRequest;
+            routeContext.send("Hello " + routeContext.getParameter("name").toString() + (nativeMode ? " (native)" : ""));
+        });
+        application.GET("/committed", routeContext -> {
+            routeContext.send("sent");
+            committed.set(routeContext.getResponse().isCommitted());
+        });
+        start(application);
+
+        assertEquals("200 Hello pippo (native)", get("/hello/pippo"));
+        assertEquals("200 sent", get("/committed"));
+        assertTrue(committed.get());
+        // the not found page is written once, with the right content length
+        String notFound = get("/missing");
+        assertTrue(notFound.startsWith("404 "));
+        assertEquals(notFound.indexOf("Cannot find a route"), notFound.lastIndexOf("Cannot find a route"));
+    }
+
+    @Test
+    public void testNativeNonBlockingMode() throws IOException {
+        StringBuilder large = new StringBuilder();
+        while (large.length() < 100_000) {
+            large.append("pippo ");
+        }
+        Application application = createApplication(true, true);
+        application.GET("/thread", routeContext -> routeContext.send(Thread.currentThread().getName()));
+        application.GET("/large", routeContext -> routeContext.send(large));
+        application.POST("/echo", routeContext -> {
+            String thread = Thread.currentThread().getName();
+            routeContext.send(routeContext.getRequest().getBody() + " " + thread);
+        });
+        start(application);
+
+        // a request without body is handled on the IO thread, the response is sent with the non-blocking sender
+        String thread = get("/thread");
+        assertTrue(thread, thread.startsWith("200 ") && thread.contains("I/O"));
+        assertEquals("200 " + large, get("/large"));
+        String notFound = get("/missing");
+        assertTrue(notFound.startsWith("404 "));
+        assertEquals(notFound.indexOf("Cannot find a route"), notFound.lastIndexOf("Cannot find a route"));
+
+        // a request with body is dispatched to a worker thread
+        String echo = post("/echo", "hello");
+        assertTrue(echo, echo.startsWith("200 hello ") && !echo.contains("I/O"));
+    }
+
+    @Test(timeout = 30_000)
+    public void testDrainOnStop() throws Exception {
+        testDrainOnStop(false);
+    }
+
+    @Test(timeout = 30_000)
+    public void testDrainOnStopInNativeMode() throws Exception {
+        testDrainOnStop(true);
+    }
+
+    private void testDrainOnStop(boolean nativeMode) throws Exception {
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Application application = createApplication(nativeMode);
+        application.GET("/slow", routeContext -> {
+            entered.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            routeContext.send("done");
+        });
+        start(application);
+
+        AtomicReference<String> response = new AtomicReference<>();
+        Thread client = new Thread(() -> {
+            try {
+                response.set(get("/slow"));
+            } catch (IOException e) {
+                response.set(e.toString());
+            }
+        });
+        client.start();
+        assertTrue(entered.await(10, TimeUnit.SECONDS));
+
+        Pippo stopping = pippo;
+        pippo = null;
+        Thread stopper = new Thread(stopping::stop);
+        stopper.start();
+
+        // the stop waits for the in-flight request
+        stopper.join(200);
+        assertTrue(stopper.isAlive());
+
+        release.countDown();
+        client.join();
+        stopper.join();
+        assertEquals("200 done", response.get());
+        assertFalse(stopper.isAlive());
+    }
+
+    private Application createApplication(boolean nativeMode) {
+        return createApplication(nativeMode, false);
+    }
+
+    private Application createApplication(boolean nativeMode, boolean nonBlocking) {
+        PippoSettings pippoSettings = new PippoSettings(RuntimeMode.DEV);
+        pippoSettings.overrideSetting(UndertowSettings.NATIVE_MODE, nativeMode);
+        pippoSettings.overrideSetting(UndertowSettings.NATIVE_NON_BLOCKING, nonBlocking);
+        pippoSettings.overrideSetting(PippoConstants.SETTING_SERVER_SHUTDOWN_TIMEOUT, 10_000L);
+
+        return new Application(pippoSettings);
+    }
+
+    private void start(Application application) throws IOException {
+        try (ServerSocket serverSocket = new ServerSocket(0)) {
+            port = serverSocket.getLocalPort();
+        }
+        pippo = new Pippo(application).setServer(new UndertowServer());
+        pippo.start(port);
+    }
+
+    private String get(String path) throws IOException {
+        return send(open(path));
+    }
+
+    private String post(String path, String body) throws IOException {
+        HttpURLConnection connection = open(path);
+        connection.setRequestMethod("POST");
+        connection.setRequestProperty("Content-Type", "text/plain");
+        connection.setDoOutput(true);
+        try (OutputStream output = connection.getOutputStream()) {
+            output.write(body.getBytes(StandardCharsets.UTF_8));
+        }
+
+        return send(connection);
+    }
+
+    private HttpURLConnection open(String path) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL("http://localhost:" + port + path).openConnection();
+        connection.setReadTimeout(20_000);
+
+        return connection;
+    }
+
+    private String send(HttpURLConnection connection) throws IOException {
+        try {
+            int status = connection.getResponseCode();
+            try (InputStream input = (status < 400) ? connection.getInputStream() : connection.getErrorStream()) {
+                return status + " " + readAll(input);
+            }
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    private static String readAll(InputStream input) throws IOException {
+        StringBuilder builder = new StringBuilder();
+        byte[] buffer = new byte[1024];
+        int read;
+        while ((read = input.read(buffer)) >= 0) {
+            builder.append(new String(buffer, 0, read, StandardCharsets.UTF_8));
+        }
+
+        return builder.toString();
+    }
+
+}
@@ -54,6 +54,7 @@ public class CookieSessionDataStorage implements SessionDataStorage {
     @Override
     public void save(SessionData sessionData) {
         String data = transcoder.encode(sessionData);
+        sessionData.setStoredSize(data.length());
         Cookie cookie = createSessionCookie(getHttpServletRequest(), data);
         getHttpServletResponse().addCookie(cookie);
     }
@@ -66,7 +67,13 @@ public class CookieSessionDataStorage implements SessionDataStorage {
             return null;
         }
 
-        return transcoder.decode(cookie.getValue());
+        String data = cookie.getValue();
+        SessionData sessionData = transcoder.decode(data);
+        if (sessionData != null) {
+            sessionData.setStoredSize(data.length());
+        }
+
+        return sessionData;
     }
 
     @Override
@@ -76,6 +83,17 @@ public class CookieSessionDataStorage implements SessionDataStorage {
         getHttpServletResponse().addCookie(cookie);
     }
 
+    @Override
+    public void touch(String sessionId) {
+        if (settings.getMaxAge() <= 0) {
+            // the cookie doesn't expire while the browser is open
+            return;
+        }
+
+        // send back the session with the new last accessed time and a new max age
+        SessionDataStorage.super.touch(sessionId);
+    }
+
     protected Cookie createSessionCookie(HttpServletRequest request, String data) {
         Cookie cookie = new Cookie(settings.getCookieName(), data);
 //        cookie.setHttpOnly(true);
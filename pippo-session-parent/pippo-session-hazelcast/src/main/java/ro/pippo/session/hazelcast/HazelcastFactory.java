@@ -0,0 +1,101 @@
+/*
+ * Copyright (C) 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ro.pippo.session.hazelcast;
+
+import com.hazelcast.config.Config;
+import com.hazelcast.config.InMemoryFormat;
+import com.hazelcast.config.MapConfig;
+import com.hazelcast.config.NearCacheConfig;
+import com.hazelcast.core.Hazelcast;
+import com.hazelcast.core.HazelcastInstance;
+import ro.pippo.core.PippoRuntimeException;
+
+/**
+ * Utility to configure the session map, with a near cache.
+ * <p>
+ * A near cache keeps the sessions read by a member (or client) locally, so a session read again
+ * on the same member (sticky sessions) doesn't go over the network. The near cache is invalidated
+ * when the session is changed on another member.
+ * For a Hazelcast client add {@link #createNearCacheConfig(String)} to the {@code ClientConfig}.
+ *
+ * @author agent
+ */
+public class HazelcastFactory {
+
+    public static final int DEFAULT_NEAR_CACHE_SIZE = 10000;
+    public static final int DEFAULT_NEAR_CACHE_TIME_TO_LIVE = 60; // seconds
+
+    private static final String SESSION_NAME = "session";
+
+    private HazelcastFactory() {
+        throw new PippoRuntimeException("You can't make a instance of factory.");
+    }
+
+    /**
+     * Create a Hazelcast instance with a near cache for the map named "session".
+     *
+     * @return hazelcast instance
+     */
+    public static HazelcastInstance create() {
+        return create(new Config(), SESSION_NAME);
+    }
+
+    /**
+     * Create a Hazelcast instance with a near cache for the session map.
+     *
+     * @param config the Hazelcast configuration
+     * @param name name of the session map
+     * @return hazelcast instance
+     */
+    public static HazelcastInstance create(Config config, String name) {
+        addNearCache(config, name);
+
+        return Hazelcast.newHazelcastInstance(config);
+    }
+
+    /**
+     * Adds a near cache to the session map (the map configuration is created if it doesn't exist).
+     *
+     * @param config the Hazelcast configuration
+     * @param name name of the session map
+     * @return the configuration of the session map
+     */
+    public static MapConfig addNearCache(Config config, String name) {
+        MapConfig mapConfig = config.getMapConfig(name);
+        mapConfig.setNearCacheConfig(createNearCacheConfig(name));
+
+        return mapConfig;
+    }
+
+    /**
+     * Create a near cache configuration for the session map.
+     * The sessions are stored in binary format, so each read returns a new instance.
+     * A cached session is kept at most one minute, so an expired session is not returned
+     * for long from the near cache.
+     *
+     * @param name name of the session map
+     * @return near cache configuration
+     */
+    public static NearCacheConfig createNearCacheConfig(String name) {
+        return new NearCacheConfig(name)
+            .setInMemoryFormat(InMemoryFormat.BINARY)
+            .setInvalidateOnChange(true)
+            .setMaxSize(DEFAULT_NEAR_CACHE_SIZE)
+            .setTimeToLiveSeconds(DEFAULT_NEAR_CACHE_TIME_TO_LIVE)
+            .setEvictionPolicy("LRU");
+    }
+
+}
@@ -17,11 +17,20 @@ package ro.pippo.session.hazelcast;
 
 import com.hazelcast.core.HazelcastInstance;
 import com.hazelcast.core.IMap;
+import com.hazelcast.map.AbstractEntryProcessor;
 import ro.pippo.session.SessionData;
 import ro.pippo.session.SessionDataStorage;
 
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
 /**
  * SessionDataStorage implementation with Hazelcast.
+ * <p>
+ * A session is written with {@code IMap.set} (the previous value is not returned) and it expires
+ * after its max inactive interval (per entry time to live). A touch updates the session on the
+ * member that owns it, with an entry processor, and restarts its time to live.
+ * See {@link HazelcastFactory} for a near cache configuration.
  *
  * @author Herman Barrantes
  */
@@ -69,7 +78,9 @@ public class HazelcastSessionDataStorage implements SessionDataStorage {
 
     @Override
     public void save(SessionData sessionData) {
-        this.sessions.put(sessionData.getId(), sessionData);
+        // a negative max inactive interval means that the session never expires (ttl 0)
+        int ttl = Math.max(sessionData.getMaxInactiveInterval(), 0);
+        this.sessions.set(sessionData.getId(), sessionData, ttl, TimeUnit.SECONDS);
     }
 
     @Override
@@ -79,6 +90,39 @@ public class HazelcastSessionDataStorage implements SessionDataStorage {
 
     @Override
     public void delete(String sessionId) {
-        this.sessions.remove(sessionId);
+        this.sessions.delete(sessionId);
+    }
+
+    @Override
+    public void touch(String sessionId) {
+        this.sessions.executeOnKey(sessionId, new TouchEntryProcessor(System.currentTimeMillis()));
     }
+
+    /**
+     * Updates the last accessed time of a session, without moving the session over the network.
+     */
+    public static class TouchEntryProcessor extends AbstractEntryProcessor<String, SessionData> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final long lastAccessedTime;
+
+        public TouchEntryProcessor(long lastAccessedTime) {
+            this.lastAccessedTime = lastAccessedTime;
+        }
+
+        @Override
+        public Object process(Map.Entry<String, SessionData> entry) {
+            SessionData sessionData = entry.getValue();
+            if (sessionData != null) {
+                sessionData.setLastAccessedTime(lastAccessedTime);
+                // the update keeps the time to live of the entry and restarts it
+                entry.setValue(sessionData);
+            }
+
+            return null;
+        }
+
+    }
+
 }
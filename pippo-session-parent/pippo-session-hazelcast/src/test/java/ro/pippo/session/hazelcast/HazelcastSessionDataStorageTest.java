@@ -102,6 +102,7 @@ public class HazelcastSessionDataStorageTest {
         SessionData sessionData = instance.create();
         String sessionId = sessionData.getId();
         sessionData.put(KEY, VALUE);
+        sessionData.setMaxInactiveInterval(1);
         instance.save(sessionData);
         Thread.sleep(2000L); // 2seconds
         SessionData deleted = instance.get(sessionId);
@@ -124,4 +125,26 @@ public class HazelcastSessionDataStorageTest {
         assertNull(deleted);
     }
 
+    /**
+     * Test of touch method, of class HazelcastSessionDataStorage.
+     *
+     * @throws java.lang.InterruptedException
+     */
+    @Test
+    public void testTouch() throws InterruptedException {
+        System.out.println("touch");
+        HazelcastSessionDataStorage instance = new HazelcastSessionDataStorage(Hazelcast.newHazelcastInstance());
+        SessionData sessionData = instance.create();
+        String sessionId = sessionData.getId();
+        sessionData.put(KEY, VALUE);
+        sessionData.setMaxInactiveInterval(2);
+        instance.save(sessionData);
+        Thread.sleep(1500L);
+        instance.touch(sessionId);
+        Thread.sleep(1500L);
+        SessionData touched = instance.get(sessionId);
+        assertNotNull(touched);
+        assertEquals(VALUE, touched.get(KEY));
+    }
+
 }
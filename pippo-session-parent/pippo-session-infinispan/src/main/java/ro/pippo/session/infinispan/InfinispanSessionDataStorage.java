@@ -15,13 +15,29 @@
  */
 package ro.pippo.session.infinispan;
 
+import org.infinispan.AdvancedCache;
 import org.infinispan.Cache;
+import org.infinispan.commons.api.functional.EntryView.ReadWriteEntryView;
+import org.infinispan.commons.api.functional.FunctionalMap.ReadWriteMap;
+import org.infinispan.commons.api.functional.MetaParam;
+import org.infinispan.context.Flag;
+import org.infinispan.functional.impl.FunctionalMapImpl;
+import org.infinispan.functional.impl.ReadWriteMapImpl;
 import org.infinispan.manager.EmbeddedCacheManager;
 import ro.pippo.session.SessionData;
 import ro.pippo.session.SessionDataStorage;
 
+import java.io.Serializable;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
 /**
  * SessionDataStorage implementation with Infinispan.
+ * <p>
+ * The writes don't return the previous value ({@link Flag#IGNORE_RETURN_VALUES}) and a session
+ * expires when it's not accessed in its max inactive interval (per entry max idle).
+ * A touch is written asynchronously and atomically (with the functional API), on a copy of the session,
+ * so it doesn't overwrite a concurrent save.
  *
  * @author Herman Barrantes
  */
@@ -29,6 +45,8 @@ public class InfinispanSessionDataStorage implements SessionDataStorage {
 
     private static final String SESSION_NAME = "session";
     private final Cache<String, SessionData> sessions;
+    private final AdvancedCache<String, SessionData> writer;
+    private final ReadWriteMap<String, SessionData> readWriteMap;
 
     /**
      * Manage session with the cache named "session" and CacheManager specified.
@@ -46,7 +64,7 @@ public class InfinispanSessionDataStorage implements SessionDataStorage {
      * @param cacheName cache name
      */
     public InfinispanSessionDataStorage(EmbeddedCacheManager cacheManager, String cacheName) {
-        this.sessions = cacheManager.getCache(cacheName);
+        this(cacheManager.<String, SessionData>getCache(cacheName));
     }
 
     /**
@@ -56,6 +74,8 @@ public class InfinispanSessionDataStorage implements SessionDataStorage {
      */
     public InfinispanSessionDataStorage(Cache<String, SessionData> cache) {
         this.sessions = cache;
+        this.writer = cache.getAdvancedCache().withFlags(Flag.IGNORE_RETURN_VALUES);
+        this.readWriteMap = ReadWriteMapImpl.create(FunctionalMapImpl.create(cache.getAdvancedCache()));
     }
 
     @Override
@@ -65,7 +85,7 @@ public class InfinispanSessionDataStorage implements SessionDataStorage {
 
     @Override
     public void save(SessionData sessionData) {
-        this.sessions.put(sessionData.getId(), sessionData);
+        this.writer.put(sessionData.getId(), sessionData, -1, TimeUnit.SECONDS, getMaxIdle(sessionData), TimeUnit.SECONDS);
     }
 
     @Override
@@ -75,7 +95,43 @@ public class InfinispanSessionDataStorage implements SessionDataStorage {
 
     @Override
     public void delete(String sessionId) {
-        this.sessions.remove(sessionId);
+        this.writer.remove(sessionId);
+    }
+
+    @Override
+    public void touch(String sessionId) {
+        long lastAccessedTime = System.currentTimeMillis();
+        // the function runs with the entry locked (on the owner of the session)
+        this.readWriteMap.eval(sessionId, (Function<ReadWriteEntryView<String, SessionData>, Void> & Serializable) view -> {
+            view.find().ifPresent(sessionData -> {
+                SessionData touched = copy(sessionData);
+                touched.setLastAccessedTime(lastAccessedTime);
+                long maxIdle = getMaxIdle(touched);
+                view.set(touched, new MetaParam.MetaMaxIdle((maxIdle > 0) ? TimeUnit.SECONDS.toMillis(maxIdle) : -1));
+            });
+
+            return null;
+        });
+    }
+
+    private static SessionData copy(SessionData sessionData) {
+        // the cached instance can be read by other requests
+        SessionData copy = new SessionData(sessionData.getId(), sessionData.getCreationTime(),
+            sessionData.getLastAccessedTime(), sessionData.getMaxInactiveInterval());
+        for (String name : sessionData.getNames()) {
+            copy.put(name, sessionData.get(name));
+        }
+        copy.setVersion(sessionData.getVersion());
+        copy.setDirty(false);
+
+        return copy;
+    }
+
+    private static long getMaxIdle(SessionData sessionData) {
+        // a negative max inactive interval means that the session never expires
+        int maxInactiveInterval = sessionData.getMaxInactiveInterval();
+
+        return (maxInactiveInterval > 0) ? maxInactiveInterval : -1;
     }
 
 }
@@ -20,6 +20,7 @@ import org.junit.AfterClass;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 import org.junit.BeforeClass;
 import org.junit.Test;
 import ro.pippo.session.SessionData;
@@ -107,6 +108,7 @@ public class InfinispanSessionDataStorageTest {
         SessionData sessionData = instance.create();
         String sessionId = sessionData.getId();
         sessionData.put(KEY, VALUE);
+        sessionData.setMaxInactiveInterval(1);
         instance.save(sessionData);
         Thread.sleep(2000L); // 2 seconds
         SessionData deleted = instance.get(sessionId);
@@ -129,4 +131,54 @@ public class InfinispanSessionDataStorageTest {
         assertNull(deleted);
     }
 
+    /**
+     * Test of touch method, of class InfinispanSessionDataStorage.
+     *
+     * @throws java.lang.InterruptedException
+     */
+    @Test
+    public void testTouch() throws InterruptedException {
+        System.out.println("touch");
+        InfinispanSessionDataStorage instance = new InfinispanSessionDataStorage(cacheManager);
+        SessionData sessionData = instance.create();
+        String sessionId = sessionData.getId();
+        sessionData.put(KEY, VALUE);
+        sessionData.setMaxInactiveInterval(2);
+        instance.save(sessionData);
+        Thread.sleep(1500L);
+        instance.touch(sessionId);
+        Thread.sleep(1500L);
+        SessionData touched = instance.get(sessionId);
+        assertNotNull(touched);
+        assertEquals(VALUE, touched.get(KEY));
+    }
+
+    /**
+     * Test of touch method, of class InfinispanSessionDataStorage.
+     *
+     * @throws java.lang.InterruptedException
+     */
+    @Test
+    public void testTouchUpdatesCopy() throws InterruptedException {
+        System.out.println("touch updates copy");
+        InfinispanSessionDataStorage instance = new InfinispanSessionDataStorage(cacheManager);
+        SessionData sessionData = instance.create();
+        String sessionId = sessionData.getId();
+        sessionData.put(KEY, VALUE);
+        sessionData.setMaxInactiveInterval(1);
+        sessionData.setLastAccessedTime(System.currentTimeMillis() - 1000);
+        instance.save(sessionData);
+        long lastAccessedTime = sessionData.getLastAccessedTime();
+        instance.touch(sessionId);
+        SessionData touched = instance.get(sessionId);
+        assertNotNull(touched);
+        assertTrue(touched.getLastAccessedTime() > lastAccessedTime);
+        assertEquals(VALUE, touched.get(KEY));
+        // the saved (cached) instance is not modified
+        assertEquals(lastAccessedTime, sessionData.getLastAccessedTime());
+        // the touch keeps the max idle of the session
+        Thread.sleep(2000L);
+        assertNull(instance.get(sessionId));
+    }
+
 }
@@ -0,0 +1,178 @@
+/*
+ * Copyright (C) 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ro.pippo.session.jdbc;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * The SQL statements of {@link JDBCSessionDataStorage} that depend on the database.
+ * The session table has the columns {@code id}, {@code time} (the last write) and {@code data}.
+ * <p>
+ * The parameters of the upsert statement are (id, time, data) and the parameters
+ * of the purge statement are (time, batch size).
+ *
+ * @author agent
+ */
+public enum JDBCDialect {
+
+    /**
+     * Any database: update and insert if the session doesn't exist, no batch purge.
+     */
+    GENERIC {
+
+        @Override
+        public String getUpsert(String table) {
+            return null;
+        }
+
+        @Override
+        public String getPurge(String table) {
+            return "delete from " + table + " where time < ?";
+        }
+
+        @Override
+        public boolean isBatchPurge() {
+            return false;
+        }
+
+        @Override
+        public String[] getCreateSchema(String table) {
+            return new String[] {
+                "create table " + table + " (id varchar(32) not null, time timestamp not null, data blob not null, primary key (id))",
+                "create index " + table + "_time_idx on " + table + " (time)"
+            };
+        }
+
+    },
+
+    H2 {
+
+        @Override
+        public String getUpsert(String table) {
+            return "merge into " + table + " (id, time, data) key (id) values (?, ?, ?)";
+        }
+
+        @Override
+        public String getPurge(String table) {
+            return "delete from " + table + " where time < ? limit ?";
+        }
+
+        @Override
+        public String[] getCreateSchema(String table) {
+            return new String[] {
+                "create table if not exists " + table + " (id varchar(32) not null, time timestamp not null, data blob not null, primary key (id))",
+                "create index if not exists " + table + "_time_idx on " + table + " (time)"
+            };
+        }
+
+    },
+
+    MYSQL {
+
+        @Override
+        public String getUpsert(String table) {
+            return "insert into " + table + " (id, time, data) values (?, ?, ?) on duplicate key update time = values(time), data = values(data)";
+        }
+
+        @Override
+        public String getPurge(String table) {
+            return "delete from " + table + " where time < ? limit ?";
+        }
+
+        @Override
+        public String[] getCreateSchema(String table) {
+            return new String[] {
+                "create table if not exists " + table + " (id varchar(32) not null, time datetime not null, data mediumblob not null, primary key (id), index " + table + "_time_idx (time))"
+            };
+        }
+
+    },
+
+    POSTGRESQL {
+
+        @Override
+        public String getUpsert(String table) {
+            return "insert into " + table + " (id, time, data) values (?, ?, ?) on conflict (id) do update set time = excluded.time, data = excluded.data";
+        }
+
+        @Override
+        public String getPurge(String table) {
+            return "delete from " + table + " where id in (select id from " + table + " where time < ? limit ?)";
+        }
+
+        @Override
+        public String[] getCreateSchema(String table) {
+            return new String[] {
+                "create table if not exists " + table + " (id varchar(32) not null, time timestamp not null, data bytea not null, primary key (id))",
+                "create index if not exists " + table + "_time_idx on " + table + " (time)"
+            };
+        }
+
+    };
+
+    private static final Logger log = LoggerFactory.getLogger(JDBCDialect.class);
+
+    /**
+     * Returns the statement that inserts or updates a session, or null if the database
+     * doesn't have such a statement.
+     */
+    public abstract String getUpsert(String table);
+
+    /**
+     * Returns the statement that deletes the sessions written before a time.
+     */
+    public abstract String getPurge(String table);
+
+    /**
+     * Returns true if the purge statement deletes a limited number of sessions (a batch).
+     */
+    public boolean isBatchPurge() {
+        return true;
+    }
+
+    /**
+     * Returns the statements that create the session table and its index on {@code time}.
+     */
+    public abstract String[] getCreateSchema(String table);
+
+    /**
+     * Returns the dialect of the database, based on the product name returned by the JDBC driver.
+     */
+    public static JDBCDialect detect(DataSource dataSource) {
+        try (Connection connection = dataSource.getConnection()) {
+            String productName = connection.getMetaData().getDatabaseProductName().toLowerCase();
+            if (productName.contains("h2")) {
+                return H2;
+            } else if (productName.contains("mysql") || productName.contains("mariadb")) {
+                return MYSQL;
+            } else if (productName.contains("postgresql")) {
+                return POSTGRESQL;
+            }
+
+            log.debug("No dialect for '{}', use {}", productName, GENERIC);
+        } catch (SQLException e) {
+            log.warn("Cannot detect the database dialect, use {}", GENERIC, e);
+        }
+
+        return GENERIC;
+    }
+
+}
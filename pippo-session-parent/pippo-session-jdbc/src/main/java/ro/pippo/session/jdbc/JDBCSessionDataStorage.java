@@ -20,6 +20,10 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import javax.sql.DataSource;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -31,6 +35,20 @@ import ro.pippo.session.SessionDataTranscoder;
 
 /**
  * SessionDataStorage implementation with JDBC.
+ * <p>
+ * With a {@link JDBCDialect} a session is saved with a single (upsert) statement, the expired sessions
+ * can be deleted in batches by a background job ({@link #startPurge(int)}) and the session table
+ * can be created by {@link #createSchema()}.
+ * <p>
+ * A touch updates only the {@code time} column. If the select statement returns the {@code time}
+ * as second column, it's the last accessed time of the loaded session when it's more recent
+ * than the one in the session data.
+ * <p>
+ * The session is stored in the binary form of the transcoder, so the {@code data} column of a new
+ * table is a {@code BLOB}. The tables created for the previous versions ({@code data} as {@code CLOB})
+ * keep working: the data column type is detected and the text (Base64) form is stored in a character column.
+ * To migrate such a table to the binary form, recreate it with a {@code BLOB} data column
+ * (the sessions in the old table are lost) or keep the {@code CLOB} column.
  *
  * @author Herman Barrantes
  */
@@ -39,20 +57,66 @@ public class JDBCSessionDataStorage implements SessionDataStorage {
     // Logger
     private static final Logger log = LoggerFactory.getLogger(JDBCSessionDataStorage.class);
     // CRUD Statements
-    public static final String SELECT = "select data from session where id = ?";
+    public static final String SELECT = "select data, time from session where id = ?";
     public static final String INSERT = "insert into session (id, time, data) values (?, ?, ?)";
     public static final String UPDATE = "update session set time = ?, data = ? where id = ?";
     public static final String DELETE = "delete from session where id = ?";
+    public static final String TOUCH = "update session set time = ? where id = ?";
+    public static final String TABLE = "session";
+    public static final int DEFAULT_PURGE_BATCH_SIZE = 1000;
+    private static final int IDLE_TIME = SessionData.DEFAULT_MAX_INACTIVE_INTERVAL_SECONDS;
     // Variables
     private final DataSource dataSource;
     private final String select;
     private final String insert;
     private final String update;
     private final String delete;
+    private final String touch;
     private final SessionDataTranscoder transcoder;
+    private final JDBCDialect dialect;
+    private final String table;
+    private final String upsert;
+    private final String purge;
+    private final int idleTime;
+    private int purgeBatchSize = DEFAULT_PURGE_BATCH_SIZE;
+    private ScheduledExecutorService purger;
+    private volatile Boolean textData;
 
+    /**
+     * Manage session in the table named "session" of a database with the dialect detected
+     * from the JDBC driver.
+     *
+     * @param dataSource data source
+     */
     public JDBCSessionDataStorage(DataSource dataSource) {
-        this(dataSource, SELECT, INSERT, UPDATE, DELETE, new SerializationSessionDataTranscoder());
+        this(dataSource, JDBCDialect.detect(dataSource));
+    }
+
+    public JDBCSessionDataStorage(DataSource dataSource, JDBCDialect dialect) {
+        this(dataSource, dialect, TABLE, IDLE_TIME, new SerializationSessionDataTranscoder());
+    }
+
+    /**
+     * @param dataSource data source
+     * @param dialect the dialect of the database
+     * @param table the session table
+     * @param idleTime idle time of the session in seconds (used to purge the expired sessions);
+     *                 it must not be shorter than the max inactive interval of any session
+     * @param transcoder transcoder
+     */
+    public JDBCSessionDataStorage(DataSource dataSource, JDBCDialect dialect, String table, int idleTime, SessionDataTranscoder transcoder) {
+        this.dataSource = dataSource;
+        this.select = "select data, time from " + table + " where id = ?";
+        this.insert = "insert into " + table + " (id, time, data) values (?, ?, ?)";
+        this.update = "update " + table + " set time = ?, data = ? where id = ?";
+        this.delete = "delete from " + table + " where id = ?";
+        this.touch = "update " + table + " set time = ? where id = ?";
+        this.transcoder = transcoder;
+        this.dialect = dialect;
+        this.table = table;
+        this.upsert = dialect.getUpsert(table);
+        this.purge = dialect.getPurge(table);
+        this.idleTime = idleTime;
     }
 
     public JDBCSessionDataStorage(DataSource dataSource, String select, String insert, String update, String delete) {
@@ -60,12 +124,28 @@ public class JDBCSessionDataStorage implements SessionDataStorage {
     }
 
     public JDBCSessionDataStorage(DataSource dataSource, String select, String insert, String update, String delete, SessionDataTranscoder transcoder) {
+        this(dataSource, select, insert, update, delete, null, transcoder);
+    }
+
+    /**
+     * @param touch the statement that updates only the time of a session; if it's null
+     *              the session is loaded and saved on touch
+     */
+    public JDBCSessionDataStorage(DataSource dataSource, String select, String insert, String update, String delete,
+                                  String touch, SessionDataTranscoder transcoder) {
         this.dataSource = dataSource;
         this.select = select;
         this.insert = insert;
         this.update = update;
         this.delete = delete;
+        this.touch = touch;
         this.transcoder = transcoder;
+        // the table is not known
+        this.dialect = JDBCDialect.GENERIC;
+        this.table = null;
+        this.upsert = null;
+        this.purge = null;
+        this.idleTime = IDLE_TIME;
     }
 
     @Override
@@ -77,20 +157,69 @@ public class JDBCSessionDataStorage implements SessionDataStorage {
     public void save(SessionData sessionData) {
         String id = sessionData.getId();
         Timestamp time = new Timestamp(System.currentTimeMillis());
-        String data = transcoder.encode(sessionData);
-        if (executeUpdate(update, time, data, id) == 0) {
-            executeUpdate(insert, id, time, data);
+        Object data;
+        if (isTextData()) {
+            String text = transcoder.encode(sessionData);
+            sessionData.setStoredSize(text.length());
+            data = text;
+        } else {
+            byte[] bytes = transcoder.encodeBytes(sessionData);
+            sessionData.setStoredSize(bytes.length);
+            data = bytes;
+        }
+        if (upsert != null) {
+            executeUpdate(upsert, id, time, data);
+        } else {
+            executeUpdateOrInsert(time, data, id);
         }
     }
 
     @Override
     public SessionData get(String sessionId) {
-        String sessionStored = executeSelect(select, sessionId);
-        if (sessionStored == null) {
-            return null;
+        Connection connection = null;
+        PreparedStatement preparedStatement = null;
+        ResultSet resultSet = null;
+        try {
+            connection = dataSource.getConnection();
+            preparedStatement = connection.prepareStatement(select);
+            preparedStatement.setObject(1, sessionId);
+            resultSet = preparedStatement.executeQuery();
+            if (!resultSet.next()) {
+                return null;
+            }
+
+            SessionData sessionData;
+            int storedSize;
+            textData = isTextType(resultSet.getMetaData().getColumnType(1));
+            if (textData) {
+                String sessionStored = resultSet.getString(1);
+                sessionData = transcoder.decode(sessionStored);
+                storedSize = sessionStored.length();
+            } else {
+                byte[] sessionStored = resultSet.getBytes(1);
+                sessionData = transcoder.decodeStored(sessionStored);
+                storedSize = sessionStored.length;
+            }
+            if (sessionData != null) {
+                sessionData.setStoredSize(storedSize);
+                if (resultSet.getMetaData().getColumnCount() > 1) {
+                    // the time of the last write or touch
+                    Timestamp time = resultSet.getTimestamp(2);
+                    if ((time != null) && (time.getTime() > sessionData.getLastAccessedTime())) {
+                        sessionData.setLastAccessedTime(time.getTime());
+                    }
+                }
+            }
+
+            return sessionData;
+        } catch (SQLException ex) {
+            log.error("Error executing the statement", ex);
+            throw new PippoRuntimeException(ex);
+        } finally {
+            close(resultSet);
+            close(preparedStatement);
+            close(connection);
         }
-        SessionData sessionData = transcoder.decode(sessionStored);
-        return sessionData;
     }
 
     @Override
@@ -98,7 +227,111 @@ public class JDBCSessionDataStorage implements SessionDataStorage {
         executeUpdate(delete, sessionId);
     }
 
-    protected String executeSelect(String query, Object... parameters) {
+    @Override
+    public void touch(String sessionId) {
+        if (touch == null) {
+            SessionDataStorage.super.touch(sessionId);
+        } else {
+            executeUpdate(touch, new Timestamp(System.currentTimeMillis()), sessionId);
+        }
+    }
+
+    /**
+     * Deletes the sessions not accessed in the idle time, in batches if the dialect supports it.
+     * <p>
+     * The table doesn't store the max inactive interval of each session, so the purge uses the idle
+     * time of the storage: a session with a longer max inactive interval is deleted after the idle time
+     * and a session with a shorter one stays in the table until then (it's expired when it's loaded).
+     *
+     * @return the number of deleted sessions
+     */
+    public int purge() {
+        if (purge == null) {
+            throw new PippoRuntimeException("Purge is not available for custom statements");
+        }
+
+        Timestamp time = new Timestamp(System.currentTimeMillis() - TimeUnit.SECONDS.toMillis(idleTime));
+        if (!dialect.isBatchPurge()) {
+            return executeUpdate(purge, time);
+        }
+
+        int total = 0;
+        int count;
+        do {
+            count = executeUpdate(purge, time, purgeBatchSize);
+            total += count;
+        } while (count >= purgeBatchSize);
+
+        if (total > 0) {
+            log.debug("Purged {} expired sessions", total);
+        }
+
+        return total;
+    }
+
+    /**
+     * Starts a background job that purges the expired sessions.
+     *
+     * @param interval the interval between two purges, in seconds
+     */
+    public synchronized void startPurge(int interval) {
+        if (purger != null) {
+            return;
+        }
+
+        purger = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "pippo-session-purge");
+            thread.setDaemon(true);
+
+            return thread;
+        });
+        purger.scheduleWithFixedDelay(() -> {
+            try {
+                purge();
+            } catch (Exception e) {
+                log.error("Cannot purge the expired sessions", e);
+            }
+        }, interval, interval, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Stops the purge job.
+     */
+    @Override
+    public synchronized void destroy() {
+        if (purger != null) {
+            purger.shutdownNow();
+            purger = null;
+        }
+    }
+
+    /**
+     * Creates the session table and its index on {@code time} (if they don't exist, except
+     * for the {@link JDBCDialect#GENERIC} dialect).
+     */
+    public void createSchema() {
+        if (table == null) {
+            throw new PippoRuntimeException("The session table is not known for custom statements");
+        }
+
+        for (String statement : dialect.getCreateSchema(table)) {
+            executeUpdate(statement);
+        }
+    }
+
+    public JDBCDialect getDialect() {
+        return dialect;
+    }
+
+    public int getPurgeBatchSize() {
+        return purgeBatchSize;
+    }
+
+    public void setPurgeBatchSize(int purgeBatchSize) {
+        this.purgeBatchSize = purgeBatchSize;
+    }
+
+    protected byte[] executeSelect(String query, Object... parameters) {
         Connection connection = null;
         PreparedStatement preparedStatement = null;
         ResultSet resultSet = null;
@@ -110,7 +343,7 @@ public class JDBCSessionDataStorage implements SessionDataStorage {
             }
             resultSet = preparedStatement.executeQuery();
             if (resultSet.next()) {
-                return resultSet.getString(1);
+                return resultSet.getBytes(1);
             }
         } catch (SQLException ex) {
             log.error("Error executing the statement", ex);
@@ -142,6 +375,85 @@ public class JDBCSessionDataStorage implements SessionDataStorage {
         }
     }
 
+    /**
+     * Updates the session and inserts it if it doesn't exist, using one connection.
+     */
+    protected void executeUpdateOrInsert(Timestamp time, Object data, String id) {
+        Connection connection = null;
+        try {
+            connection = dataSource.getConnection();
+            if (executeUpdate(connection, update, time, data, id) == 0) {
+                executeUpdate(connection, insert, id, time, data);
+            }
+        } catch (SQLException ex) {
+            log.error("Error executing the statement", ex);
+            throw new PippoRuntimeException(ex);
+        } finally {
+            close(connection);
+        }
+    }
+
+    /**
+     * Returns true if the data column is a character column ({@code CLOB}), as in the session
+     * tables created for the previous versions. In this case the text form of the session is stored.
+     */
+    protected boolean isTextData() {
+        Boolean text = textData;
+        if (text != null) {
+            return text;
+        }
+
+        Connection connection = null;
+        PreparedStatement preparedStatement = null;
+        ResultSet resultSet = null;
+        try {
+            connection = dataSource.getConnection();
+            preparedStatement = connection.prepareStatement(select);
+            preparedStatement.setObject(1, "");
+            resultSet = preparedStatement.executeQuery();
+            text = isTextType(resultSet.getMetaData().getColumnType(1));
+            textData = text;
+
+            return text;
+        } catch (SQLException ex) {
+            log.error("Error executing the statement", ex);
+            throw new PippoRuntimeException(ex);
+        } finally {
+            close(resultSet);
+            close(preparedStatement);
+            close(connection);
+        }
+    }
+
+    private static boolean isTextType(int columnType) {
+        switch (columnType) {
+            case Types.CLOB:
+            case Types.NCLOB:
+            case Types.CHAR:
+            case Types.NCHAR:
+            case Types.VARCHAR:
+            case Types.NVARCHAR:
+            case Types.LONGVARCHAR:
+            case Types.LONGNVARCHAR:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private int executeUpdate(Connection connection, String query, Object... parameters) throws SQLException {
+        PreparedStatement preparedStatement = null;
+        try {
+            preparedStatement = connection.prepareStatement(query);
+            for (int i = 0; i < parameters.length; i++) {
+                preparedStatement.setObject(i + 1, parameters[i]);
+            }
+            return preparedStatement.executeUpdate();
+        } finally {
+            close(preparedStatement);
+        }
+    }
+
     protected void close(AutoCloseable closeable) {
         if (closeable != null) {
             try {
@@ -18,13 +18,16 @@ package ro.pippo.session.jdbc;
 //import com.mchange.v2.c3p0.ComboPooledDataSource;
 //import java.beans.PropertyVetoException;
 import java.sql.SQLException;
+import java.sql.Timestamp;
 import org.apache.commons.dbcp2.BasicDataSource;
 import org.junit.AfterClass;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 import org.junit.BeforeClass;
 import org.junit.Test;
+import ro.pippo.session.SerializationSessionDataTranscoder;
 import ro.pippo.session.SessionData;
 
 /**
@@ -123,6 +126,8 @@ public class JDBCSessionDataStorageTest {
         String value1 = sessionData.get(KEY);
         String value2 = saved.get(KEY);
         assertEquals(value1, value2);
+        assertTrue(sessionData.getStoredSize() > 0);
+        assertEquals(sessionData.getStoredSize(), saved.getStoredSize());
     }
 
     /**
@@ -141,4 +146,114 @@ public class JDBCSessionDataStorageTest {
         assertNull(deleted);
     }
 
+    /**
+     * Test of touch method, of class JDBCSessionDataStorage.
+     */
+    @Test
+    public void testTouch() {
+        System.out.println("touch");
+        JDBCSessionDataStorage instance = new JDBCSessionDataStorage(dataSource);
+        SessionData sessionData = instance.create();
+        String sessionId = sessionData.getId();
+        long lastAccessedTime = System.currentTimeMillis() - 120000;
+        sessionData.setLastAccessedTime(lastAccessedTime);
+        instance.save(sessionData);
+        // written two minutes ago
+        instance.executeUpdate("update session set time = ? where id = ?", new Timestamp(lastAccessedTime), sessionId);
+        assertEquals(lastAccessedTime, instance.get(sessionId).getLastAccessedTime());
+
+        long touchTime = System.currentTimeMillis();
+        instance.touch(sessionId);
+        // the touch is visible to the next request
+        assertTrue(instance.get(sessionId).getLastAccessedTime() >= touchTime);
+    }
+
+    /**
+     * Test of save method with the generic dialect (update and insert), of class JDBCSessionDataStorage.
+     */
+    @Test
+    public void testSaveGeneric() {
+        System.out.println("saveGeneric");
+        JDBCSessionDataStorage instance = new JDBCSessionDataStorage(dataSource, JDBCDialect.GENERIC);
+        SessionData sessionData = instance.create();
+        String sessionId = sessionData.getId();
+        sessionData.put(KEY, VALUE);
+        instance.save(sessionData);
+        sessionData.put(KEY, "VALUE2");
+        instance.save(sessionData);
+        SessionData saved = instance.get(sessionId);
+        assertEquals("VALUE2", saved.get(KEY));
+    }
+
+    /**
+     * Test of the dialect detection, of class JDBCDialect.
+     */
+    @Test
+    public void testDetect() {
+        System.out.println("detect");
+        assertEquals(JDBCDialect.H2, JDBCDialect.detect(dataSource));
+    }
+
+    /**
+     * Test of save method with upsert, of class JDBCSessionDataStorage.
+     */
+    @Test
+    public void testUpsert() {
+        System.out.println("upsert");
+        JDBCSessionDataStorage instance = new JDBCSessionDataStorage(dataSource, JDBCDialect.H2);
+        SessionData sessionData = instance.create();
+        String sessionId = sessionData.getId();
+        sessionData.put(KEY, VALUE);
+        instance.save(sessionData);
+        sessionData.put(KEY, "VALUE2");
+        instance.save(sessionData);
+        SessionData saved = instance.get(sessionId);
+        assertEquals("VALUE2", saved.get(KEY));
+    }
+
+    /**
+     * Test of a session table created for the previous versions (text data), of class JDBCSessionDataStorage.
+     */
+    @Test
+    public void testTextTable() {
+        System.out.println("textTable");
+        SerializationSessionDataTranscoder transcoder = new SerializationSessionDataTranscoder();
+        JDBCSessionDataStorage instance = new JDBCSessionDataStorage(dataSource, JDBCDialect.H2,
+            "text_session", 1800, transcoder);
+        instance.executeUpdate("create table text_session (id varchar(32) not null, time timestamp not null, "
+            + "data clob not null, primary key(id))");
+        // stored by a previous version
+        SessionData sessionData = instance.create();
+        String sessionId = sessionData.getId();
+        sessionData.put(KEY, VALUE);
+        instance.executeUpdate("insert into text_session (id, time, data) values (?, ?, ?)", sessionId,
+            new Timestamp(System.currentTimeMillis()), transcoder.encode(sessionData));
+        SessionData saved = instance.get(sessionId);
+        assertEquals(VALUE, saved.get(KEY));
+
+        saved.put(KEY, "VALUE2");
+        instance.save(saved);
+        assertEquals("VALUE2", instance.get(sessionId).get(KEY));
+    }
+
+    /**
+     * Test of createSchema and purge methods, of class JDBCSessionDataStorage.
+     */
+    @Test
+    public void testPurge() throws InterruptedException {
+        System.out.println("purge");
+        JDBCSessionDataStorage instance = new JDBCSessionDataStorage(dataSource, JDBCDialect.H2,
+            "expired_session", 0, new SerializationSessionDataTranscoder());
+        instance.createSchema();
+        // can be called again
+        instance.createSchema();
+        instance.setPurgeBatchSize(2);
+        for (int i = 0; i < 5; i++) {
+            instance.save(instance.create());
+        }
+        Thread.sleep(10);
+        assertEquals(5, instance.purge());
+        assertEquals(0, instance.purge());
+    }
+
 }
@@ -1,6 +1,6 @@
 CREATE TABLE IF NOT EXISTS session (
     id VARCHAR2(32) NOT NULL,
     time TIMESTAMP NOT NULL,
-    data CLOB NOT NULL,
+    data BLOB NOT NULL,
     PRIMARY KEY(id)
 );
\ No newline at end of file
@@ -0,0 +1,276 @@
+/*
+ * Copyright (C) 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ro.pippo.session.jedis;
+
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPool;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.Response;
+import redis.clients.util.SafeEncoder;
+import ro.pippo.session.CompactSessionDataTranscoder;
+import ro.pippo.session.SessionData;
+import ro.pippo.session.VersionedSessionDataStorage;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * SessionDataStorage implementation with Jedis that stores a session as a Redis hash,
+ * with a field for each attribute.
+ * <p>
+ * A save writes only the attributes changed by the request ({@code HSET}/{@code HDEL}) if the hash
+ * exists (in a script); if it expired meanwhile, the whole session is written.
+ * a get reads the hash and refreshes its expiration in a single round trip (pipelining).
+ * The attribute values are encoded with a {@link CompactSessionDataTranscoder}.
+ * The version of a session can be read without loading it, so this storage can be used
+ * with the version check of {@link ro.pippo.session.CachingSessionDataStorage}.
+ *
+ * @author agent
+ */
+public class JedisHashSessionDataStorage implements VersionedSessionDataStorage {
+
+    private static final int IDLE_TIME = SessionData.DEFAULT_MAX_INACTIVE_INTERVAL_SECONDS;
+
+    private static final String CREATION_TIME = "creationTime";
+    private static final String LAST_ACCESSED_TIME = "lastAccessedTime";
+    private static final String MAX_INACTIVE_INTERVAL = "maxInactiveInterval";
+    private static final String VERSION = "version";
+    private static final String ATTRIBUTE_PREFIX = "attribute.";
+
+    // refresh the last accessed time and the expiration only if the session exists
+    private static final String TOUCH_SCRIPT =
+        "if redis.call('exists', KEYS[1]) == 1 then " +
+            "redis.call('hset', KEYS[1], '" + LAST_ACCESSED_TIME + "', ARGV[1]) " +
+            "redis.call('expire', KEYS[1], ARGV[2]) " +
+        "end";
+
+    // write the changed attributes only if the session exists, so an expired session is not
+    // recreated partially; ARGV = idle time, number of set fields, set fields and values, deleted fields
+    private static final String SAVE_CHANGES_SCRIPT =
+        "if redis.call('exists', KEYS[1]) == 0 then " +
+            "return 0 " +
+        "end " +
+        "local count = tonumber(ARGV[2]) " +
+        "for i = 3, 2 + 2 * count, 2 do " +
+            "redis.call('hset', KEYS[1], ARGV[i], ARGV[i + 1]) " +
+        "end " +
+        "for i = 3 + 2 * count, #ARGV do " +
+            "redis.call('hdel', KEYS[1], ARGV[i]) " +
+        "end " +
+        "redis.call('expire', KEYS[1], ARGV[1]) " +
+        "return 1";
+
+    private final JedisPool sessions;
+    private final int idleTime;
+    private final CompactSessionDataTranscoder transcoder;
+    private final String keyPrefix;
+
+    /**
+     * Manage session with Jedis and 30 minutes idle time.
+     *
+     * @param jedisPool Jedis pool
+     */
+    public JedisHashSessionDataStorage(JedisPool jedisPool) {
+        this(jedisPool, IDLE_TIME, new CompactSessionDataTranscoder(), "");
+    }
+
+    /**
+     * Manage session with Jedis in the specified idle time, transcoder (for the attribute values)
+     * and key prefix (namespace) indicated.
+     *
+     * @param jedisPool Jedis pool
+     * @param idleTime idle time of the session in seconds
+     * @param transcoder the transcoder of the attribute values
+     * @param keyPrefix the prefix of the keys (for example "myapp:session:")
+     */
+    public JedisHashSessionDataStorage(JedisPool jedisPool, int idleTime, CompactSessionDataTranscoder transcoder, String keyPrefix) {
+        this.sessions = jedisPool;
+        this.idleTime = idleTime;
+        this.transcoder = transcoder;
+        this.keyPrefix = keyPrefix;
+    }
+
+    @Override
+    public SessionData create() {
+        return new SessionData();
+    }
+
+    @Override
+    public void save(SessionData sessionData) {
+        byte[] key = getKey(sessionData.getId());
+        Set<String> names = sessionData.getChangedNames();
+        if ((names != null) && saveChanges(key, sessionData, names)) {
+            return;
+        }
+
+        // the changes are not known or the session expired, write all attributes
+        Map<byte[], byte[]> fields = new HashMap<>();
+        getFields(sessionData, sessionData.getNames(), fields, new ArrayList<>());
+        // the bytes written by this save
+        sessionData.setStoredSize(getSize(fields));
+
+        try (Jedis jedis = sessions.getResource()) {
+            Pipeline pipeline = jedis.pipelined();
+            pipeline.multi();
+            pipeline.del(key);
+            pipeline.hmset(key, fields);
+            pipeline.expire(key, idleTime);
+            pipeline.exec();
+            pipeline.sync();
+        }
+    }
+
+    @Override
+    public SessionData get(String sessionId) {
+        Map<byte[], byte[]> fields;
+        try (Jedis jedis = sessions.getResource()) {
+            byte[] key = getKey(sessionId);
+            // read and touch in one round trip
+            Pipeline pipeline = jedis.pipelined();
+            Response<Map<byte[], byte[]>> response = pipeline.hgetAll(key);
+            pipeline.expire(key, idleTime);
+            pipeline.sync();
+
+            fields = response.get();
+        }
+
+        Map<String, byte[]> meta = new HashMap<>();
+        Map<String, byte[]> attributes = new HashMap<>();
+        for (Map.Entry<byte[], byte[]> entry : fields.entrySet()) {
+            String field = SafeEncoder.encode(entry.getKey());
+            if (field.startsWith(ATTRIBUTE_PREFIX)) {
+                attributes.put(field.substring(ATTRIBUTE_PREFIX.length()), entry.getValue());
+            } else {
+                meta.put(field, entry.getValue());
+            }
+        }
+
+        if (!meta.containsKey(CREATION_TIME)) {
+            return null;
+        }
+
+        SessionData sessionData = new SessionData(sessionId,
+            getLong(meta, CREATION_TIME),
+            getLong(meta, LAST_ACCESSED_TIME),
+            (int) getLong(meta, MAX_INACTIVE_INTERVAL));
+        sessionData.setVersion(getLong(meta, VERSION));
+        sessionData.setStoredSize(getSize(fields));
+        for (Map.Entry<String, byte[]> entry : attributes.entrySet()) {
+            sessionData.put(entry.getKey(), transcoder.decodeValue(entry.getValue()));
+        }
+        sessionData.setDirty(false);
+
+        return sessionData;
+    }
+
+    @Override
+    public void delete(String sessionId) {
+        try (Jedis jedis = sessions.getResource()) {
+            jedis.del(getKey(sessionId));
+        }
+    }
+
+    @Override
+    public void touch(String sessionId) {
+        try (Jedis jedis = sessions.getResource()) {
+            List<String> arguments = new ArrayList<>();
+            arguments.add(String.valueOf(System.currentTimeMillis()));
+            arguments.add(String.valueOf(idleTime));
+            jedis.eval(TOUCH_SCRIPT, Collections.singletonList(keyPrefix + sessionId), arguments);
+        }
+    }
+
+    @Override
+    public long getVersion(String sessionId) {
+        try (Jedis jedis = sessions.getResource()) {
+            byte[] version = jedis.hget(getKey(sessionId), SafeEncoder.encode(VERSION));
+
+            return (version != null) ? Long.parseLong(SafeEncoder.encode(version)) : -1;
+        }
+    }
+
+    /**
+     * Writes the changed attributes if the session exists and returns true.
+     */
+    private boolean saveChanges(byte[] key, SessionData sessionData, Set<String> names) {
+        Map<byte[], byte[]> fields = new HashMap<>();
+        List<byte[]> removedFields = new ArrayList<>();
+        getFields(sessionData, names, fields, removedFields);
+
+        List<byte[]> arguments = new ArrayList<>();
+        arguments.add(SafeEncoder.encode(String.valueOf(idleTime)));
+        arguments.add(SafeEncoder.encode(String.valueOf(fields.size())));
+        for (Map.Entry<byte[], byte[]> entry : fields.entrySet()) {
+            arguments.add(entry.getKey());
+            arguments.add(entry.getValue());
+        }
+        arguments.addAll(removedFields);
+
+        Object saved;
+        try (Jedis jedis = sessions.getResource()) {
+            saved = jedis.eval(SafeEncoder.encode(SAVE_CHANGES_SCRIPT), Collections.singletonList(key), arguments);
+        }
+        if (Long.valueOf(1).equals(saved)) {
+            // the bytes written by this save
+            sessionData.setStoredSize(getSize(fields));
+
+            return true;
+        }
+
+        return false;
+    }
+
+    private void getFields(SessionData sessionData, Set<String> names, Map<byte[], byte[]> fields, List<byte[]> removedFields) {
+        fields.put(SafeEncoder.encode(CREATION_TIME), SafeEncoder.encode(String.valueOf(sessionData.getCreationTime())));
+        fields.put(SafeEncoder.encode(LAST_ACCESSED_TIME), SafeEncoder.encode(String.valueOf(sessionData.getLastAccessedTime())));
+        fields.put(SafeEncoder.encode(MAX_INACTIVE_INTERVAL), SafeEncoder.encode(String.valueOf(sessionData.getMaxInactiveInterval())));
+        fields.put(SafeEncoder.encode(VERSION), SafeEncoder.encode(String.valueOf(sessionData.getVersion())));
+
+        for (String name : names) {
+            Object value = sessionData.get(name);
+            byte[] field = SafeEncoder.encode(ATTRIBUTE_PREFIX + name);
+            if (value != null) {
+                fields.put(field, transcoder.encodeValue(value));
+            } else {
+                removedFields.add(field);
+            }
+        }
+    }
+
+    protected byte[] getKey(String sessionId) {
+        return SafeEncoder.encode(keyPrefix + sessionId);
+    }
+
+    private int getSize(Map<byte[], byte[]> fields) {
+        int size = 0;
+        for (Map.Entry<byte[], byte[]> entry : fields.entrySet()) {
+            size += entry.getKey().length + entry.getValue().length;
+        }
+
+        return size;
+    }
+
+    private long getLong(Map<String, byte[]> meta, String name) {
+        byte[] value = meta.get(name);
+
+        return (value != null) ? Long.parseLong(SafeEncoder.encode(value)) : 0;
+    }
+
+}
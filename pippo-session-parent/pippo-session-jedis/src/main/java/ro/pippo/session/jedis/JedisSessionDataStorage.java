@@ -17,6 +17,9 @@ package ro.pippo.session.jedis;
 
 import redis.clients.jedis.Jedis;
 import redis.clients.jedis.JedisPool;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.Response;
+import redis.clients.util.SafeEncoder;
 import ro.pippo.session.SerializationSessionDataTranscoder;
 import ro.pippo.session.SessionData;
 import ro.pippo.session.SessionDataStorage;
@@ -24,6 +27,11 @@ import ro.pippo.session.SessionDataTranscoder;
 
 /**
  * SessionDataStorage implementation with Jedis.
+ * <p>
+ * The session is stored as a binary value, with the session id (optionally prefixed) as key.
+ * A get reads the value and refreshes its expiration in a single round trip (pipelining),
+ * so the loaded session is accessed now (a touch is needed only after the session touch interval).
+ * The sessions stored as text by the previous versions are still read.
  *
  * @author Herman Barrantes
  */
@@ -33,6 +41,7 @@ public class JedisSessionDataStorage implements SessionDataStorage {
     private final JedisPool sessions;
     private final int idleTime;
     private final SessionDataTranscoder transcoder;
+    private final String keyPrefix;
 
     /**
      * Manage session with Jedis and 30 minutes idle time.
@@ -62,9 +71,23 @@ public class JedisSessionDataStorage implements SessionDataStorage {
      * @param transcoder trancoder
      */
     public JedisSessionDataStorage(JedisPool jedisPool, int idleTime, SessionDataTranscoder transcoder) {
+        this(jedisPool, idleTime, transcoder, "");
+    }
+
+    /**
+     * Manage session with Jedis in the specified idle time, transcoder
+     * and key prefix (namespace) indicated.
+     *
+     * @param jedisPool Jedis pool
+     * @param idleTime idle time of the session in seconds
+     * @param transcoder trancoder
+     * @param keyPrefix the prefix of the keys (for example "myapp:session:")
+     */
+    public JedisSessionDataStorage(JedisPool jedisPool, int idleTime, SessionDataTranscoder transcoder, String keyPrefix) {
         this.sessions = jedisPool;
         this.idleTime = idleTime;
         this.transcoder = transcoder;
+        this.keyPrefix = keyPrefix;
     }
 
     @Override
@@ -74,23 +97,36 @@ public class JedisSessionDataStorage implements SessionDataStorage {
 
     @Override
     public void save(SessionData sessionData) {
+        byte[] data = transcoder.encodeBytes(sessionData);
+        sessionData.setStoredSize(data.length);
         try (Jedis jedis = sessions.getResource()) {
             jedis.setex(
-                    sessionData.getId(),
+                    getKey(sessionData.getId()),
                     idleTime,
-                    transcoder.encode(sessionData));
+                    data);
         }
     }
 
     @Override
     public SessionData get(String sessionId) {
         try (Jedis jedis = sessions.getResource()) {
-            String sessionStored = jedis.get(sessionId);
+            byte[] key = getKey(sessionId);
+            // read and touch in one round trip
+            Pipeline pipeline = jedis.pipelined();
+            Response<byte[]> response = pipeline.get(key);
+            pipeline.expire(key, idleTime);
+            pipeline.sync();
+
+            byte[] sessionStored = response.get();
             if (sessionStored == null) {
                 return null;
             }
-            jedis.expire(sessionId, idleTime);
-            SessionData sessionData = transcoder.decode(sessionStored);
+            SessionData sessionData = transcoder.decodeStored(sessionStored);
+            if (sessionData != null) {
+                sessionData.setStoredSize(sessionStored.length);
+                // the expiration was refreshed
+                sessionData.setLastAccessedTime(System.currentTimeMillis());
+            }
             return sessionData;
         }
     }
@@ -98,8 +134,19 @@ public class JedisSessionDataStorage implements SessionDataStorage {
     @Override
     public void delete(String sessionId) {
         try (Jedis jedis = sessions.getResource()) {
-            jedis.del(sessionId);
+            jedis.del(getKey(sessionId));
+        }
+    }
+
+    @Override
+    public void touch(String sessionId) {
+        try (Jedis jedis = sessions.getResource()) {
+            jedis.expire(getKey(sessionId), idleTime);
         }
     }
 
+    protected byte[] getKey(String sessionId) {
+        return SafeEncoder.encode(keyPrefix + sessionId);
+    }
+
 }
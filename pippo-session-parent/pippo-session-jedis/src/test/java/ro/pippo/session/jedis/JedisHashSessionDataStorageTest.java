@@ -0,0 +1,119 @@
+/*
+ * Copyright (C) 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ro.pippo.session.jedis;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPool;
+import redis.embedded.RedisServer;
+import ro.pippo.session.CompactSessionDataTranscoder;
+import ro.pippo.session.SessionData;
+
+import java.io.IOException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author agent
+ */
+public class JedisHashSessionDataStorageTest {
+
+    private static RedisServer redisServer;
+    private static JedisPool jedisPool;
+
+    @BeforeClass
+    public static void setUpClass() throws IOException {
+        redisServer = new RedisServer();
+        redisServer.start();
+        jedisPool = new JedisPool();
+    }
+
+    @AfterClass
+    public static void tearDownClass() {
+        jedisPool.destroy();
+        redisServer.stop();
+    }
+
+    @Test
+    public void testSaveChangedAttributes() {
+        JedisHashSessionDataStorage storage = new JedisHashSessionDataStorage(jedisPool);
+        SessionData sessionData = storage.create();
+        sessionData.put("name", "pippo");
+        sessionData.put("count", 1);
+        sessionData.setVersion(3);
+        storage.save(sessionData);
+
+        SessionData saved = storage.get(sessionData.getId());
+        assertEquals(sessionData.getCreationTime(), saved.getCreationTime());
+        assertEquals("pippo", saved.get("name"));
+        assertEquals(1, saved.<Integer>get("count").intValue());
+        assertFalse(saved.isDirty());
+        assertEquals(3, storage.getVersion(sessionData.getId()));
+
+        saved.put("count", 2);
+        saved.remove("name");
+        storage.save(saved);
+
+        saved = storage.get(sessionData.getId());
+        assertNull(saved.get("name"));
+        assertEquals(2, saved.<Integer>get("count").intValue());
+    }
+
+    @Test
+    public void testSaveChangesOfExpiredSession() {
+        JedisHashSessionDataStorage storage = new JedisHashSessionDataStorage(jedisPool);
+        SessionData sessionData = storage.create();
+        sessionData.put("name", "pippo");
+        storage.save(sessionData);
+
+        SessionData saved = storage.get(sessionData.getId());
+        saved.put("count", 1);
+        // the session expires before the save
+        try (Jedis jedis = jedisPool.getResource()) {
+            jedis.del(sessionData.getId());
+        }
+        storage.save(saved);
+
+        saved = storage.get(sessionData.getId());
+        assertEquals(sessionData.getCreationTime(), saved.getCreationTime());
+        assertEquals("pippo", saved.get("name"));
+        assertEquals(1, saved.<Integer>get("count").intValue());
+    }
+
+    @Test
+    public void testKeyPrefixAndTouch() {
+        JedisHashSessionDataStorage storage = new JedisHashSessionDataStorage(jedisPool, 60, new CompactSessionDataTranscoder(), "test:");
+        SessionData sessionData = storage.create();
+        storage.save(sessionData);
+
+        try (Jedis jedis = jedisPool.getResource()) {
+            assertTrue(jedis.exists("test:" + sessionData.getId()));
+
+            storage.touch("missing");
+            assertFalse(jedis.exists("test:missing"));
+        }
+
+        storage.delete(sessionData.getId());
+        assertNull(storage.get(sessionData.getId()));
+        assertEquals(-1, storage.getVersion(sessionData.getId()));
+    }
+
+}
@@ -27,6 +27,7 @@ import static com.mongodb.client.model.Updates.set;
 import java.util.Date;
 import java.util.concurrent.TimeUnit;
 import org.bson.Document;
+import org.bson.types.Binary;
 import ro.pippo.session.SerializationSessionDataTranscoder;
 import ro.pippo.session.SessionData;
 import ro.pippo.session.SessionDataStorage;
@@ -34,6 +35,9 @@ import ro.pippo.session.SessionDataTranscoder;
 
 /**
  * SessionDataStorage implementation with MongoDB.
+ * <p>
+ * The TTL field of a session is updated on save and on touch, it's the last accessed time
+ * of the loaded session.
  *
  * @author Herman Barrantes
  */
@@ -132,12 +136,14 @@ public class MongoDBSessionDataStorage implements SessionDataStorage {
     @Override
     public void save(SessionData sessionData) {
         String sessionId = sessionData.getId();
+        byte[] data = transcoder.encodeBytes(sessionData);
+        sessionData.setStoredSize(data.length);
         this.sessions.updateOne(
                 eq(SESSION_ID, sessionId),
                 combine(
                         set(SESSION_ID, sessionId),
                         set(SESSION_TTL, new Date()),
-                        set(SESSION_DATA, transcoder.encode(sessionData))),
+                        set(SESSION_DATA, new Binary(data))),
                 new UpdateOptions().upsert(true));
     }
 
@@ -145,13 +151,33 @@ public class MongoDBSessionDataStorage implements SessionDataStorage {
     public SessionData get(String sessionId) {
         Document doc = this.sessions
                 .find(eq(SESSION_ID, sessionId))
-                .projection(include(SESSION_DATA))
+                .projection(include(SESSION_DATA, SESSION_TTL))
                 .first();
         if (doc == null) {
             return null;
         }
-        String sessionStored = doc.getString(SESSION_DATA);
-        SessionData sessionData = transcoder.decode(sessionStored);
+        Object sessionStored = doc.get(SESSION_DATA);
+        SessionData sessionData;
+        int storedSize;
+        if (sessionStored instanceof Binary) {
+            byte[] data = ((Binary) sessionStored).getData();
+            sessionData = transcoder.decodeBytes(data);
+            storedSize = data.length;
+        } else {
+            // stored by a previous version as text
+            String data = (String) sessionStored;
+            sessionData = transcoder.decode(data);
+            storedSize = data.length();
+        }
+        if (sessionData != null) {
+            sessionData.setStoredSize(storedSize);
+            // the time of the last write or touch
+            Date time = doc.getDate(SESSION_TTL);
+            if ((time != null) && (time.getTime() > sessionData.getLastAccessedTime())) {
+                sessionData.setLastAccessedTime(time.getTime());
+            }
+        }
+
         return sessionData;
     }
 
@@ -160,4 +186,9 @@ public class MongoDBSessionDataStorage implements SessionDataStorage {
         this.sessions.deleteOne(eq(SESSION_ID, sessionId));
     }
 
+    @Override
+    public void touch(String sessionId) {
+        this.sessions.updateOne(eq(SESSION_ID, sessionId), set(SESSION_TTL, new Date()));
+    }
+
 }
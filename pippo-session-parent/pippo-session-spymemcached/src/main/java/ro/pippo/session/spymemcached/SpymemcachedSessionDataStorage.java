@@ -16,11 +16,19 @@
 package ro.pippo.session.spymemcached;
 
 import net.spy.memcached.MemcachedClient;
+import ro.pippo.session.SerializationSessionDataTranscoder;
 import ro.pippo.session.SessionData;
 import ro.pippo.session.SessionDataStorage;
+import ro.pippo.session.SessionDataTranscoder;
 
 /**
  * SessionDataStorage implementation with Spymemcached.
+ * <p>
+ * Memcached doesn't return the time of the last touch, so a touch loads and saves the session
+ * (the default {@link SessionDataStorage#touch(String)}) to store its last accessed time.
+ * <p>
+ * The session is stored in the binary form of the transcoder; the {@link SessionData} objects
+ * stored by the previous versions are still read.
  *
  * @author Herman Barrantes
  */
@@ -29,6 +37,7 @@ public class SpymemcachedSessionDataStorage implements SessionDataStorage {
     private static final int IDLE_TIME = SessionData.DEFAULT_MAX_INACTIVE_INTERVAL_SECONDS;
     private final MemcachedClient sessions;
     private final int idleTime;
+    private final SessionDataTranscoder transcoder;
 
     /**
      * Manage session with a SpyMemcached client and 30 minutes idle time.
@@ -49,8 +58,21 @@ public class SpymemcachedSessionDataStorage implements SessionDataStorage {
      * @param idleTime idle time of the session in seconds
      */
     public SpymemcachedSessionDataStorage(final MemcachedClient client, int idleTime) {
+        this(client, idleTime, new SerializationSessionDataTranscoder());
+    }
+
+    /**
+     * Manage session with a SpyMemcached client, custom idle time in seconds
+     * and the transcoder indicated.
+     *
+     * @param client memcached client
+     * @param idleTime idle time of the session in seconds
+     * @param transcoder transcoder
+     */
+    public SpymemcachedSessionDataStorage(final MemcachedClient client, int idleTime, SessionDataTranscoder transcoder) {
         this.sessions = client;
         this.idleTime = idleTime;
+        this.transcoder = transcoder;
     }
 
     @Override
@@ -60,12 +82,29 @@ public class SpymemcachedSessionDataStorage implements SessionDataStorage {
 
     @Override
     public void save(SessionData sessionData) {
-        this.sessions.set(sessionData.getId(), idleTime, sessionData);
+        byte[] data = transcoder.encodeBytes(sessionData);
+        sessionData.setStoredSize(data.length);
+        this.sessions.set(sessionData.getId(), idleTime, data);
     }
 
     @Override
     public SessionData get(String sessionId) {
-        return (SessionData) this.sessions.get(sessionId);
+        Object sessionStored = this.sessions.get(sessionId);
+
+        if (sessionStored == null) {
+            return null;
+        }
+        if (sessionStored instanceof SessionData) {
+            // stored by a previous version as object
+            return (SessionData) sessionStored;
+        }
+        byte[] data = (byte[]) sessionStored;
+        SessionData sessionData = transcoder.decodeBytes(data);
+        if (sessionData != null) {
+            sessionData.setStoredSize(data.length);
+        }
+
+        return sessionData;
     }
 
     @Override
@@ -20,11 +20,19 @@ import net.rubyeye.xmemcached.MemcachedClient;
 import net.rubyeye.xmemcached.exception.MemcachedException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import ro.pippo.session.SerializationSessionDataTranscoder;
 import ro.pippo.session.SessionData;
 import ro.pippo.session.SessionDataStorage;
+import ro.pippo.session.SessionDataTranscoder;
 
 /**
  * SessionDataStorage implementation with Xmemcached.
+ * <p>
+ * Memcached doesn't return the time of the last touch, so a touch loads and saves the session
+ * (the default {@link SessionDataStorage#touch(String)}) to store its last accessed time.
+ * <p>
+ * The session is stored in the binary form of the transcoder; the {@link SessionData} objects
+ * stored by the previous versions are still read.
  *
  * @author Herman Barrantes
  */
@@ -34,6 +42,7 @@ public class XmemcachedSessionDataStorage implements SessionDataStorage {
     private static final int IDLE_TIME = SessionData.DEFAULT_MAX_INACTIVE_INTERVAL_SECONDS;
     private final MemcachedClient sessions;
     private final int idleTime;
+    private final SessionDataTranscoder transcoder;
 
     /**
      * Manage session with a SpyMemcached client and 30 minutes idle time.
@@ -55,8 +64,21 @@ public class XmemcachedSessionDataStorage implements SessionDataStorage {
      * @param idleTime idle time of the session in seconds
      */
     public XmemcachedSessionDataStorage(final MemcachedClient client, int idleTime) {
+        this(client, idleTime, new SerializationSessionDataTranscoder());
+    }
+
+    /**
+     * Manage session with a Xmemcached client, custom idle time in seconds
+     * and the transcoder indicated.
+     *
+     * @param client memcached client
+     * @param idleTime idle time of the session in seconds
+     * @param transcoder transcoder
+     */
+    public XmemcachedSessionDataStorage(final MemcachedClient client, int idleTime, SessionDataTranscoder transcoder) {
         this.sessions = client;
         this.idleTime = idleTime;
+        this.transcoder = transcoder;
     }
 
     @Override
@@ -67,7 +89,9 @@ public class XmemcachedSessionDataStorage implements SessionDataStorage {
     @Override
     public void save(SessionData sessionData) {
         try {
-            this.sessions.set(sessionData.getId(), idleTime, sessionData);
+            byte[] data = transcoder.encodeBytes(sessionData);
+            sessionData.setStoredSize(data.length);
+            this.sessions.set(sessionData.getId(), idleTime, data);
         } catch (TimeoutException | InterruptedException | MemcachedException ex) {
             log.error("An error occurred when saved SessionData.", ex);
         }
@@ -76,7 +100,22 @@ public class XmemcachedSessionDataStorage implements SessionDataStorage {
     @Override
     public SessionData get(String sessionId) {
         try {
-            return this.sessions.get(sessionId);
+            Object sessionStored = this.sessions.get(sessionId);
+
+            if (sessionStored == null) {
+                return null;
+            }
+            if (sessionStored instanceof SessionData) {
+                // stored by a previous version as object
+                return (SessionData) sessionStored;
+            }
+            byte[] data = (byte[]) sessionStored;
+            SessionData sessionData = transcoder.decodeBytes(data);
+            if (sessionData != null) {
+                sessionData.setStoredSize(data.length);
+            }
+
+            return sessionData;
         } catch (TimeoutException | InterruptedException | MemcachedException ex) {
             log.error("An error occurred when get SessionData.", ex);
             return null;
@@ -0,0 +1,166 @@
+/*
+ * Copyright (C) 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ro.pippo.session;
+
+import ro.pippo.core.PippoRuntimeException;
+
+import javax.crypto.AEADBadTagException;
+import javax.crypto.Cipher;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.Base64;
+
+/**
+ * A {@link SessionDataTranscoder} that encrypts and authenticates (AES-GCM) the data of another transcoder.
+ * <p>
+ * Unlike {@link EncryptedSessionDataTranscoder}, the session is serialized only once and the integrity
+ * is checked by the cipher (no checksum attribute), so the data is smaller and the encoding is faster.
+ * A session that was modified (or encrypted with another key) is decoded as null.
+ * <p>
+ * The data is a version byte, a random 12 bytes nonce and the encrypted data with a 16 bytes tag.
+ * The text form (for cookies) is the URL safe Base64 of the data, without padding.
+ * The secret key must have 16, 24 or 32 bytes (AES-128, AES-192 or AES-256).
+ *
+ * @author agent
+ */
+public class AesGcmSessionDataTranscoder implements SessionDataTranscoder {
+
+    private static final String TRANSFORMATION = "AES/GCM/NoPadding";
+    private static final byte VERSION = 1;
+    private static final int NONCE_LENGTH = 12; // bytes
+    private static final int TAG_LENGTH = 128; // bits
+
+    private final SecretKeySpec secretKey;
+    private final SessionDataTranscoder transcoder;
+    private final SecureRandom random = new SecureRandom();
+    // a Cipher is not thread safe and it's expensive to create
+    private final ThreadLocal<Cipher> cipher = ThreadLocal.withInitial(AesGcmSessionDataTranscoder::createCipher);
+
+    private AesGcmSessionDataTranscoder(byte[] secretKey, SessionDataTranscoder transcoder) {
+        this.secretKey = new SecretKeySpec(secretKey, "AES");
+        this.transcoder = transcoder;
+    }
+
+    @Override
+    public byte[] encodeBytes(SessionData sessionData) {
+        byte[] data = transcoder.encodeBytes(sessionData);
+
+        byte[] nonce = new byte[NONCE_LENGTH];
+        random.nextBytes(nonce);
+
+        try {
+            Cipher cipher = this.cipher.get();
+            cipher.init(Cipher.ENCRYPT_MODE, secretKey, new GCMParameterSpec(TAG_LENGTH, nonce));
+
+            byte[] bytes = new byte[1 + NONCE_LENGTH + cipher.getOutputSize(data.length)];
+            bytes[0] = VERSION;
+            System.arraycopy(nonce, 0, bytes, 1, NONCE_LENGTH);
+            cipher.doFinal(data, 0, data.length, bytes, 1 + NONCE_LENGTH);
+
+            return bytes;
+        } catch (GeneralSecurityException e) {
+            throw new PippoRuntimeException(e, "Cannot encrypt session");
+        }
+    }
+
+    @Override
+    public SessionData decodeBytes(byte[] data) {
+        if ((data.length < 1 + NONCE_LENGTH + TAG_LENGTH / 8) || (data[0] != VERSION)) {
+            return null;
+        }
+
+        byte[] decrypted;
+        try {
+            Cipher cipher = this.cipher.get();
+            cipher.init(Cipher.DECRYPT_MODE, secretKey, new GCMParameterSpec(TAG_LENGTH, data, 1, NONCE_LENGTH));
+            decrypted = cipher.doFinal(data, 1 + NONCE_LENGTH, data.length - 1 - NONCE_LENGTH);
+        } catch (AEADBadTagException e) {
+            // modified data or another key
+            return null;
+        } catch (GeneralSecurityException e) {
+            throw new PippoRuntimeException(e, "Cannot decrypt session");
+        }
+
+        return transcoder.decodeBytes(decrypted);
+    }
+
+    @Override
+    public String encode(SessionData sessionData) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(encodeBytes(sessionData));
+    }
+
+    @Override
+    public SessionData decode(String data) {
+        byte[] bytes;
+        try {
+            bytes = Base64.getUrlDecoder().decode(data);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+
+        return decodeBytes(bytes);
+    }
+
+    private static Cipher createCipher() {
+        try {
+            return Cipher.getInstance(TRANSFORMATION);
+        } catch (GeneralSecurityException e) {
+            throw new PippoRuntimeException(e);
+        }
+    }
+
+    public static class Builder {
+
+        private byte[] secretKey;
+        private SessionDataTranscoder transcoder;
+
+        public Builder secretKey(String secretKey) {
+            this.secretKey = secretKey.getBytes(StandardCharsets.UTF_8);
+            return this;
+        }
+
+        public Builder secretKey(byte[] secretKey) {
+            this.secretKey = secretKey;
+            return this;
+        }
+
+        public Builder transcoder(SessionDataTranscoder transcoder) {
+            this.transcoder = transcoder;
+            return this;
+        }
+
+        public AesGcmSessionDataTranscoder build() {
+            if (secretKey == null) {
+                throw new PippoRuntimeException("secretKey is required");
+            }
+
+            if ((secretKey.length != 16) && (secretKey.length != 24) && (secretKey.length != 32)) {
+                throw new PippoRuntimeException("secretKey must have 16, 24 or 32 bytes");
+            }
+
+            if (transcoder == null) {
+                transcoder = new SerializationSessionDataTranscoder();
+            }
+
+            return new AesGcmSessionDataTranscoder(secretKey, transcoder);
+        }
+
+    }
+
+}
@@ -0,0 +1,197 @@
+/*
+ * Copyright (C) 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ro.pippo.session;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A {@link SessionDataStorage} that keeps the recently used sessions of another (remote) storage
+ * in a bounded local cache, for a short time.
+ * <p>
+ * The sessions are written through to the remote storage on save and removed from the cache on delete.
+ * With a sticky sessions deployment most of the remote reads are skipped.
+ * If the remote storage is a {@link VersionedSessionDataStorage} and the version check is enabled,
+ * the version of a cached session is compared with the stored version before use, so a session
+ * modified by another node is fetched again.
+ * <p>
+ * Each get returns a copy of the cached session, so the concurrent requests of the same session
+ * don't share the attributes map.
+ *
+ * @author agent
+ */
+public class CachingSessionDataStorage implements SessionDataStorage {
+
+    public static final int DEFAULT_MAX_SIZE = 10000;
+    public static final int DEFAULT_TIME_TO_LIVE = 10; // seconds
+
+    private final SessionDataStorage storage;
+    private final long timeToLive;
+    private final boolean versionCheck;
+    private final Map<String, CacheEntry> cache;
+
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+
+    public CachingSessionDataStorage(SessionDataStorage storage) {
+        this(storage, DEFAULT_MAX_SIZE, DEFAULT_TIME_TO_LIVE, false);
+    }
+
+    /**
+     * @param storage the remote storage
+     * @param maxSize the maximum number of cached sessions; the least recently used session is evicted
+     * @param timeToLive the time (in seconds) a session is kept in cache after it was loaded or saved
+     * @param versionCheck if true and the remote storage is a {@link VersionedSessionDataStorage},
+     *                     the version of a cached session is checked before use
+     */
+    public CachingSessionDataStorage(SessionDataStorage storage, int maxSize, int timeToLive, boolean versionCheck) {
+        this.storage = storage;
+        this.timeToLive = TimeUnit.SECONDS.toMillis(timeToLive);
+        this.versionCheck = versionCheck && (storage instanceof VersionedSessionDataStorage);
+        this.cache = new LinkedHashMap<String, CacheEntry>(16, 0.75f, true) {
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CacheEntry> eldest) {
+                return size() > maxSize;
+            }
+
+        };
+    }
+
+    @Override
+    public SessionData create() {
+        return storage.create();
+    }
+
+    @Override
+    public void save(SessionData sessionData) {
+        sessionData.setVersion(sessionData.getVersion() + 1);
+        storage.save(sessionData);
+        cache(sessionData);
+    }
+
+    @Override
+    public SessionData get(String sessionId) {
+        CacheEntry entry;
+        synchronized (cache) {
+            entry = cache.get(sessionId);
+        }
+
+        if ((entry != null) && !entry.isExpired() && !isStale(entry.sessionData)) {
+            hitCount.increment();
+
+            return new SessionData(entry.sessionData);
+        }
+
+        missCount.increment();
+        SessionData sessionData = storage.get(sessionId);
+        if (sessionData == null) {
+            invalidate(sessionId);
+
+            return null;
+        }
+        cache(sessionData);
+
+        return sessionData;
+    }
+
+    @Override
+    public void delete(String sessionId) {
+        invalidate(sessionId);
+        storage.delete(sessionId);
+    }
+
+    @Override
+    public void touch(String sessionId) {
+        storage.touch(sessionId);
+
+        CacheEntry entry;
+        synchronized (cache) {
+            entry = cache.get(sessionId);
+        }
+        if (entry != null) {
+            entry.sessionData.setLastAccessedTime(System.currentTimeMillis());
+        }
+    }
+
+    @Override
+    public void destroy() {
+        storage.destroy();
+    }
+
+    /**
+     * Removes a session from the local cache.
+     */
+    public void invalidate(String sessionId) {
+        synchronized (cache) {
+            cache.remove(sessionId);
+        }
+    }
+
+    public SessionDataStorage getStorage() {
+        return storage;
+    }
+
+    public int getSize() {
+        synchronized (cache) {
+            return cache.size();
+        }
+    }
+
+    public long getHitCount() {
+        return hitCount.sum();
+    }
+
+    public long getMissCount() {
+        return missCount.sum();
+    }
+
+    private void cache(SessionData sessionData) {
+        CacheEntry entry = new CacheEntry(new SessionData(sessionData), System.currentTimeMillis() + timeToLive);
+        synchronized (cache) {
+            cache.put(sessionData.getId(), entry);
+        }
+    }
+
+    private boolean isStale(SessionData sessionData) {
+        if (!versionCheck) {
+            return false;
+        }
+
+        long version = ((VersionedSessionDataStorage) storage).getVersion(sessionData.getId());
+
+        return version != sessionData.getVersion();
+    }
+
+    private static class CacheEntry {
+
+        private final SessionData sessionData;
+        private final long expirationTime;
+
+        CacheEntry(SessionData sessionData, long expirationTime) {
+            this.sessionData = sessionData;
+            this.expirationTime = expirationTime;
+        }
+
+        boolean isExpired() {
+            return System.currentTimeMillis() >= expirationTime;
+        }
+
+    }
+
+}
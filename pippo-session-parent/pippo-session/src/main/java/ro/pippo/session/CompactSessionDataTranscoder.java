@@ -0,0 +1,454 @@
+/*
+ * Copyright (C) 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ro.pippo.session;
+
+import ro.pippo.core.Flash;
+import ro.pippo.core.PippoRuntimeException;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * A {@link SessionDataTranscoder} that writes {@link SessionData}s in a compact binary format.
+ * <p>
+ * The common attribute types ({@link String}, the primitive wrappers, {@link BigDecimal}, {@link BigInteger},
+ * {@link UUID}, {@link Date}, {@link Instant}, {@link LocalDate}, {@link LocalDateTime}, {@code byte[]},
+ * {@link Flash} and the {@link ArrayList}s, {@link HashSet}s, {@link LinkedHashSet}s, {@link HashMap}s and
+ * {@link LinkedHashMap}s of these) are written with a type tag followed by the value (length prefixed for
+ * the variable length values), so the format doesn't depend on the layout of the classes.
+ * Any other value, including the subclasses of these types and the other collections, is written by
+ * an {@link ObjectCodec} (by default with java serialization), so it's decoded with its own class.
+ *
+ * @author agent
+ */
+public class CompactSessionDataTranscoder implements SessionDataTranscoder {
+
+    private static final byte VERSION = 1;
+
+    private static final byte NULL = 0;
+    private static final byte STRING = 1;
+    private static final byte BOOLEAN = 2;
+    private static final byte BYTE = 3;
+    private static final byte SHORT = 4;
+    private static final byte CHARACTER = 5;
+    private static final byte INTEGER = 6;
+    private static final byte LONG = 7;
+    private static final byte FLOAT = 8;
+    private static final byte DOUBLE = 9;
+    private static final byte BIG_DECIMAL = 10;
+    private static final byte BIG_INTEGER = 11;
+    private static final byte UUID_TYPE = 12;
+    private static final byte DATE = 13;
+    private static final byte INSTANT = 14;
+    private static final byte LOCAL_DATE = 15;
+    private static final byte LOCAL_DATE_TIME = 16;
+    private static final byte BYTES = 17;
+    private static final byte LIST = 18;
+    private static final byte SET = 19;
+    private static final byte MAP = 20;
+    private static final byte FLASH = 21;
+    private static final byte LINKED_MAP = 22;
+    private static final byte LINKED_SET = 23;
+    private static final byte OBJECT = 127;
+
+    private final ObjectCodec objectCodec;
+
+    public CompactSessionDataTranscoder() {
+        this(new SerializationObjectCodec());
+    }
+
+    /**
+     * @param objectCodec the codec used for the values that don't have a compact representation
+     */
+    public CompactSessionDataTranscoder(ObjectCodec objectCodec) {
+        this.objectCodec = objectCodec;
+    }
+
+    @Override
+    public byte[] encodeBytes(SessionData sessionData) {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream(256);
+        try (DataOutputStream output = new DataOutputStream(outputStream)) {
+            output.writeByte(VERSION);
+            writeString(output, sessionData.getId());
+            output.writeLong(sessionData.getCreationTime());
+            output.writeLong(sessionData.getLastAccessedTime());
+            output.writeInt(sessionData.getMaxInactiveInterval());
+            output.writeLong(sessionData.getVersion());
+
+            Set<String> names = sessionData.getNames();
+            writeLength(output, names.size());
+            for (String name : names) {
+                writeString(output, name);
+                writeValue(output, sessionData.get(name));
+            }
+        } catch (IOException e) {
+            throw new PippoRuntimeException(e);
+        }
+
+        return outputStream.toByteArray();
+    }
+
+    @Override
+    public SessionData decodeBytes(byte[] bytes) {
+        try (DataInputStream input = new DataInputStream(new ByteArrayInputStream(bytes))) {
+            byte version = input.readByte();
+            if (version != VERSION) {
+                throw new PippoRuntimeException("Unknown session format version {}", version);
+            }
+
+            String id = readString(input);
+            long creationTime = input.readLong();
+            long lastAccessedTime = input.readLong();
+            int maxInactiveInterval = input.readInt();
+            SessionData sessionData = new SessionData(id, creationTime, lastAccessedTime, maxInactiveInterval);
+            sessionData.setVersion(input.readLong());
+
+            int count = readLength(input);
+            for (int i = 0; i < count; i++) {
+                String name = readString(input);
+                sessionData.put(name, readValue(input));
+            }
+            sessionData.setDirty(false);
+
+            return sessionData;
+        } catch (IOException e) {
+            throw new PippoRuntimeException(e, "Cannot deserialize session. A new one will be created.");
+        }
+    }
+
+    /**
+     * Encodes an attribute value. It's used by the storages that write each attribute separately.
+     */
+    public byte[] encodeValue(Object value) {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream(64);
+        try (DataOutputStream output = new DataOutputStream(outputStream)) {
+            writeValue(output, value);
+        } catch (IOException e) {
+            throw new PippoRuntimeException(e);
+        }
+
+        return outputStream.toByteArray();
+    }
+
+    public Object decodeValue(byte[] bytes) {
+        try (DataInputStream input = new DataInputStream(new ByteArrayInputStream(bytes))) {
+            return readValue(input);
+        } catch (IOException e) {
+            throw new PippoRuntimeException(e);
+        }
+    }
+
+    protected void writeValue(DataOutputStream output, Object value) throws IOException {
+        if (value == null) {
+            output.writeByte(NULL);
+        } else if (value instanceof String) {
+            output.writeByte(STRING);
+            writeString(output, (String) value);
+        } else if (value instanceof Boolean) {
+            output.writeByte(BOOLEAN);
+            output.writeBoolean((Boolean) value);
+        } else if (value instanceof Byte) {
+            output.writeByte(BYTE);
+            output.writeByte((Byte) value);
+        } else if (value instanceof Short) {
+            output.writeByte(SHORT);
+            output.writeShort((Short) value);
+        } else if (value instanceof Character) {
+            output.writeByte(CHARACTER);
+            output.writeChar((Character) value);
+        } else if (value instanceof Integer) {
+            output.writeByte(INTEGER);
+            output.writeInt((Integer) value);
+        } else if (value instanceof Long) {
+            output.writeByte(LONG);
+            output.writeLong((Long) value);
+        } else if (value instanceof Float) {
+            output.writeByte(FLOAT);
+            output.writeFloat((Float) value);
+        } else if (value instanceof Double) {
+            output.writeByte(DOUBLE);
+            output.writeDouble((Double) value);
+        } else if (value.getClass() == BigDecimal.class) {
+            output.writeByte(BIG_DECIMAL);
+            writeString(output, value.toString());
+        } else if (value.getClass() == BigInteger.class) {
+            output.writeByte(BIG_INTEGER);
+            writeBytes(output, ((BigInteger) value).toByteArray());
+        } else if (value instanceof UUID) {
+            output.writeByte(UUID_TYPE);
+            output.writeLong(((UUID) value).getMostSignificantBits());
+            output.writeLong(((UUID) value).getLeastSignificantBits());
+        } else if (value.getClass() == Date.class) {
+            // the subclasses (java.sql.Timestamp for example) are written by the object codec
+            output.writeByte(DATE);
+            output.writeLong(((Date) value).getTime());
+        } else if (value instanceof Instant) {
+            output.writeByte(INSTANT);
+            output.writeLong(((Instant) value).getEpochSecond());
+            output.writeInt(((Instant) value).getNano());
+        } else if (value instanceof LocalDate) {
+            output.writeByte(LOCAL_DATE);
+            output.writeLong(((LocalDate) value).toEpochDay());
+        } else if (value instanceof LocalDateTime) {
+            output.writeByte(LOCAL_DATE_TIME);
+            writeString(output, value.toString());
+        } else if (value instanceof byte[]) {
+            output.writeByte(BYTES);
+            writeBytes(output, (byte[]) value);
+        } else if (value.getClass() == ArrayList.class) {
+            // the exact classes only, the other collections are decoded with their own class
+            output.writeByte(LIST);
+            writeCollection(output, (Collection<?>) value);
+        } else if (value.getClass() == HashSet.class) {
+            output.writeByte(SET);
+            writeCollection(output, (Collection<?>) value);
+        } else if (value.getClass() == LinkedHashSet.class) {
+            output.writeByte(LINKED_SET);
+            writeCollection(output, (Collection<?>) value);
+        } else if (value.getClass() == HashMap.class) {
+            output.writeByte(MAP);
+            writeMap(output, (Map<?, ?>) value);
+        } else if (value.getClass() == LinkedHashMap.class) {
+            output.writeByte(LINKED_MAP);
+            writeMap(output, (Map<?, ?>) value);
+        } else if (value.getClass() == Flash.class) {
+            output.writeByte(FLASH);
+            List<Flash.Message> messages = new ArrayList<>();
+            ((Flash) value).forEach(messages::add);
+            writeLength(output, messages.size());
+            for (Flash.Message message : messages) {
+                output.writeInt(message.getLevel());
+                writeString(output, message.getMessage());
+            }
+        } else {
+            output.writeByte(OBJECT);
+            writeBytes(output, objectCodec.encode(value));
+        }
+    }
+
+    protected Object readValue(DataInputStream input) throws IOException {
+        byte type = input.readByte();
+        switch (type) {
+            case NULL:
+                return null;
+            case STRING:
+                return readString(input);
+            case BOOLEAN:
+                return input.readBoolean();
+            case BYTE:
+                return input.readByte();
+            case SHORT:
+                return input.readShort();
+            case CHARACTER:
+                return input.readChar();
+            case INTEGER:
+                return input.readInt();
+            case LONG:
+                return input.readLong();
+            case FLOAT:
+                return input.readFloat();
+            case DOUBLE:
+                return input.readDouble();
+            case BIG_DECIMAL:
+                return new BigDecimal(readString(input));
+            case BIG_INTEGER:
+                return new BigInteger(readBytes(input));
+            case UUID_TYPE:
+                return new UUID(input.readLong(), input.readLong());
+            case DATE:
+                return new Date(input.readLong());
+            case INSTANT:
+                return Instant.ofEpochSecond(input.readLong(), input.readInt());
+            case LOCAL_DATE:
+                return LocalDate.ofEpochDay(input.readLong());
+            case LOCAL_DATE_TIME:
+                return LocalDateTime.parse(readString(input));
+            case BYTES:
+                return readBytes(input);
+            case LIST:
+                return readCollection(input, new ArrayList<>());
+            case SET:
+                return readCollection(input, new HashSet<>());
+            case LINKED_SET:
+                return readCollection(input, new LinkedHashSet<>());
+            case MAP:
+                return readMap(input, new HashMap<>());
+            case LINKED_MAP:
+                return readMap(input, new LinkedHashMap<>());
+            case FLASH: {
+                int size = readLength(input);
+                Flash flash = new Flash();
+                for (int i = 0; i < size; i++) {
+                    flash.add(input.readInt(), readString(input));
+                }
+
+                return flash;
+            }
+            case OBJECT:
+                return objectCodec.decode(readBytes(input));
+            default:
+                throw new PippoRuntimeException("Unknown value type {}", type);
+        }
+    }
+
+    private void writeCollection(DataOutputStream output, Collection<?> collection) throws IOException {
+        writeLength(output, collection.size());
+        for (Object item : collection) {
+            writeValue(output, item);
+        }
+    }
+
+    private void writeMap(DataOutputStream output, Map<?, ?> map) throws IOException {
+        writeLength(output, map.size());
+        for (Map.Entry<?, ?> entry : map.entrySet()) {
+            writeValue(output, entry.getKey());
+            writeValue(output, entry.getValue());
+        }
+    }
+
+    private Map<Object, Object> readMap(DataInputStream input, Map<Object, Object> map) throws IOException {
+        int size = readLength(input);
+        for (int i = 0; i < size; i++) {
+            map.put(readValue(input), readValue(input));
+        }
+
+        return map;
+    }
+
+    private Collection<Object> readCollection(DataInputStream input, Collection<Object> collection) throws IOException {
+        int size = readLength(input);
+        for (int i = 0; i < size; i++) {
+            collection.add(readValue(input));
+        }
+
+        return collection;
+    }
+
+    private void writeString(DataOutputStream output, String value) throws IOException {
+        writeBytes(output, value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private String readString(DataInputStream input) throws IOException {
+        return new String(readBytes(input), StandardCharsets.UTF_8);
+    }
+
+    private void writeBytes(DataOutputStream output, byte[] bytes) throws IOException {
+        writeLength(output, bytes.length);
+        output.write(bytes);
+    }
+
+    private byte[] readBytes(DataInputStream input) throws IOException {
+        byte[] bytes = new byte[readLength(input)];
+        input.readFully(bytes);
+
+        return bytes;
+    }
+
+    /**
+     * Writes a length as a variable length integer (7 bits per byte).
+     */
+    private void writeLength(DataOutputStream output, int length) throws IOException {
+        while ((length & ~0x7F) != 0) {
+            output.writeByte((length & 0x7F) | 0x80);
+            length >>>= 7;
+        }
+        output.writeByte(length);
+    }
+
+    /**
+     * Reads a length (of bytes or elements). Each byte or element takes at least one byte,
+     * so a length larger than the remaining input is malformed.
+     */
+    private int readLength(DataInputStream input) throws IOException {
+        int length = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            byte b = input.readByte();
+            length |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                if ((length < 0) || (length > input.available())) {
+                    throw new PippoRuntimeException("Malformed length {}", length);
+                }
+
+                return length;
+            }
+        }
+
+        throw new PippoRuntimeException("Malformed length");
+    }
+
+    /**
+     * Encodes the values that don't have a compact representation.
+     */
+    public interface ObjectCodec {
+
+        byte[] encode(Object value);
+
+        Object decode(byte[] bytes);
+
+    }
+
+    /**
+     * An {@link ObjectCodec} that uses java serialization.
+     */
+    public static class SerializationObjectCodec implements ObjectCodec {
+
+        @Override
+        public byte[] encode(Object value) {
+            try (ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+                 ObjectOutputStream objectOutputStream = new ObjectOutputStream(outputStream)) {
+                objectOutputStream.writeObject(value);
+                objectOutputStream.flush();
+
+                return outputStream.toByteArray();
+            } catch (IOException e) {
+                throw new PippoRuntimeException(e);
+            }
+        }
+
+        @Override
+        public Object decode(byte[] bytes) {
+            try (ObjectInputStream objectInputStream = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+                return objectInputStream.readObject();
+            } catch (IOException | ClassNotFoundException e) {
+                throw new PippoRuntimeException(e);
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,211 @@
+/*
+ * Copyright (C) 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ro.pippo.session;
+
+import ro.pippo.core.PippoRuntimeException;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * A {@link SessionDataTranscoder} that compresses (deflate) the data of another transcoder
+ * when it's bigger than a threshold.
+ * <p>
+ * The data starts with a header byte that says if it's compressed or not. The data without
+ * a known header byte (written before the compression was enabled) is passed as is to the
+ * wrapped transcoder, so the old sessions can still be read.
+ * <p>
+ * To compress before encrypting, wrap the compressed transcoder in the encrypted transcoder:
+ * <pre>
+ * new EncryptedSessionDataTranscoder.Builder()
+ *     .secretKey(secretKey)
+ *     .transcoder(new CompressedSessionDataTranscoder(new CompactSessionDataTranscoder()))
+ *     .build();
+ * </pre>
+ * The compressed data that would be decompressed to more than a maximum size is rejected,
+ * so a small malformed or forged value cannot exhaust the memory.
+ *
+ * @author agent
+ */
+public class CompressedSessionDataTranscoder implements SessionDataTranscoder {
+
+    public static final int DEFAULT_THRESHOLD = 512; // bytes
+    public static final int DEFAULT_MAX_SIZE = 4 * 1024 * 1024; // bytes
+
+    private static final byte RAW = (byte) 0xF0;
+    private static final byte DEFLATE = (byte) 0xF1;
+
+    private final SessionDataTranscoder transcoder;
+    private final int threshold;
+    private final int level;
+    private final int maxSize;
+
+    public CompressedSessionDataTranscoder() {
+        this(new SerializationSessionDataTranscoder());
+    }
+
+    public CompressedSessionDataTranscoder(SessionDataTranscoder transcoder) {
+        this(transcoder, DEFAULT_THRESHOLD, Deflater.BEST_SPEED);
+    }
+
+    /**
+     * @param transcoder the transcoder that writes the data
+     * @param threshold the data smaller than this (in bytes) is not compressed
+     * @param level the compression level (see {@link Deflater})
+     */
+    public CompressedSessionDataTranscoder(SessionDataTranscoder transcoder, int threshold, int level) {
+        this(transcoder, threshold, level, DEFAULT_MAX_SIZE);
+    }
+
+    private CompressedSessionDataTranscoder(SessionDataTranscoder transcoder, int threshold, int level, int maxSize) {
+        this.transcoder = transcoder;
+        this.threshold = threshold;
+        this.level = level;
+        this.maxSize = maxSize;
+    }
+
+    @Override
+    public byte[] encodeBytes(SessionData sessionData) {
+        byte[] data = transcoder.encodeBytes(sessionData);
+        if (data.length >= threshold) {
+            byte[] compressed = compress(data);
+            // keep the raw data if the compression doesn't help
+            if (compressed.length < data.length) {
+                return compressed;
+            }
+        }
+
+        byte[] bytes = new byte[data.length + 1];
+        bytes[0] = RAW;
+        System.arraycopy(data, 0, bytes, 1, data.length);
+
+        return bytes;
+    }
+
+    @Override
+    public SessionData decodeBytes(byte[] data) {
+        if (data.length > 0) {
+            if (data[0] == DEFLATE) {
+                return transcoder.decodeBytes(decompress(data));
+            } else if (data[0] == RAW) {
+                return transcoder.decodeBytes(Arrays.copyOfRange(data, 1, data.length));
+            }
+        }
+
+        // written without compression support
+        return transcoder.decodeBytes(data);
+    }
+
+    private byte[] compress(byte[] data) {
+        Deflater deflater = new Deflater(level);
+        try {
+            deflater.setInput(data);
+            deflater.finish();
+
+            ByteArrayOutputStream output = new ByteArrayOutputStream(data.length / 2 + 1);
+            output.write(DEFLATE);
+            byte[] buffer = new byte[1024];
+            while (!deflater.finished()) {
+                int count = deflater.deflate(buffer);
+                output.write(buffer, 0, count);
+            }
+
+            return output.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private byte[] decompress(byte[] data) {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(data, 1, data.length - 1);
+
+            ByteArrayOutputStream output = new ByteArrayOutputStream((int) Math.min(data.length * 3L, maxSize));
+            byte[] buffer = new byte[1024];
+            while (!inflater.finished()) {
+                int count = inflater.inflate(buffer);
+                if ((count == 0) && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new PippoRuntimeException("Truncated compressed session data");
+                }
+                if (output.size() + count > maxSize) {
+                    throw new PippoRuntimeException("Decompressed session data is bigger than {} bytes", maxSize);
+                }
+                output.write(buffer, 0, count);
+            }
+
+            return output.toByteArray();
+        } catch (DataFormatException e) {
+            throw new PippoRuntimeException(e, "Cannot decompress session. A new one will be created.");
+        } finally {
+            inflater.end();
+        }
+    }
+
+    public static class Builder {
+
+        private SessionDataTranscoder transcoder;
+        private int threshold = DEFAULT_THRESHOLD;
+        private int level = Deflater.BEST_SPEED;
+        private int maxSize = DEFAULT_MAX_SIZE;
+
+        public Builder transcoder(SessionDataTranscoder transcoder) {
+            this.transcoder = transcoder;
+            return this;
+        }
+
+        /**
+         * The data smaller than this (in bytes) is not compressed.
+         */
+        public Builder threshold(int threshold) {
+            this.threshold = threshold;
+            return this;
+        }
+
+        /**
+         * The compression level (see {@link Deflater}).
+         */
+        public Builder level(int level) {
+            this.level = level;
+            return this;
+        }
+
+        /**
+         * The maximum size (in bytes) of the decompressed data; the bigger data is rejected.
+         */
+        public Builder maxSize(int maxSize) {
+            this.maxSize = maxSize;
+            return this;
+        }
+
+        public CompressedSessionDataTranscoder build() {
+            if (maxSize <= 0) {
+                throw new PippoRuntimeException("maxSize must be positive");
+            }
+
+            if (transcoder == null) {
+                transcoder = new SerializationSessionDataTranscoder();
+            }
+
+            return new CompressedSessionDataTranscoder(transcoder, threshold, level, maxSize);
+        }
+
+    }
+
+}
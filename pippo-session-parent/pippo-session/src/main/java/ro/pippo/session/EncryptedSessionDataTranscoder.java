@@ -18,6 +18,8 @@ package ro.pippo.session;
 import ro.pippo.core.PippoRuntimeException;
 import ro.pippo.core.util.CryptoUtils;
 
+import java.nio.charset.StandardCharsets;
+
 /**
  * @author Herman Barrantes
  */
@@ -37,6 +39,19 @@ public class EncryptedSessionDataTranscoder implements SessionDataTranscoder {
         this.encryptor = encryptor;
     }
 
+    /**
+     * The encrypted data is a Base64 text, so the binary form is its bytes.
+     */
+    @Override
+    public byte[] encodeBytes(SessionData sessionData) {
+        return encode(sessionData).getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public SessionData decodeBytes(byte[] data) {
+        return decode(new String(data, StandardCharsets.UTF_8));
+    }
+
     @Override
     public String encode(SessionData sessionData) {
         try {
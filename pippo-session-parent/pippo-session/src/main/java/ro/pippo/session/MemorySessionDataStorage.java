@@ -15,18 +15,68 @@
  */
 package ro.pippo.session;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
+ * Keeps the sessions in memory.
+ * <p>
+ * The expired sessions are removed by a background sweeper that runs at a configurable interval.
+ * Optionally, the number of sessions can be bounded; when the maximum is exceeded the least recently
+ * accessed sessions are evicted.
+ * The session count, the evicted count and the expired count can be exported as gauges.
+ *
  * @author Decebal Suiu
  */
 public class MemorySessionDataStorage implements SessionDataStorage {
 
+    private static final Logger log = LoggerFactory.getLogger(MemorySessionDataStorage.class);
+
+    public static final int DEFAULT_SWEEP_INTERVAL = 60; // seconds
+
     private final Map<String, SessionData> sessions;
+    private final int maxSessions;
+    private final ScheduledExecutorService sweeper;
+    private final ReentrantLock evictionLock = new ReentrantLock();
+
+    private final LongAdder evictedCount = new LongAdder();
+    private final LongAdder expiredCount = new LongAdder();
 
     public MemorySessionDataStorage() {
-        sessions = new ConcurrentHashMap<>();
+        this(DEFAULT_SWEEP_INTERVAL, 0);
+    }
+
+    /**
+     * @param sweepInterval the interval (in seconds) between two runs of the expired sessions sweeper;
+     *                      zero or negative disables the sweeper
+     * @param maxSessions the maximum number of sessions; zero or negative means unbounded
+     */
+    public MemorySessionDataStorage(int sweepInterval, int maxSessions) {
+        this.sessions = new ConcurrentHashMap<>();
+        this.maxSessions = maxSessions;
+
+        if (sweepInterval > 0) {
+            sweeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "pippo-session-sweeper");
+                thread.setDaemon(true);
+
+                return thread;
+            });
+            sweeper.scheduleWithFixedDelay(this::sweep, sweepInterval, sweepInterval, TimeUnit.SECONDS);
+        } else {
+            sweeper = null;
+        }
     }
 
     @Override
@@ -36,7 +86,10 @@ public class MemorySessionDataStorage implements SessionDataStorage {
 
     @Override
     public void save(SessionData sessionData) {
-        sessions.put(sessionData.getId(), sessionData);
+        SessionData previous = sessions.put(sessionData.getId(), sessionData);
+        if ((previous == null) && (maxSessions > 0) && (sessions.size() > maxSessions)) {
+            evict();
+        }
     }
 
     @Override
@@ -48,6 +101,7 @@ public class MemorySessionDataStorage implements SessionDataStorage {
 
         if (sessionData.isExpired()) {
             delete(sessionId);
+            expiredCount.increment();
 
             return null;
         }
@@ -62,4 +116,100 @@ public class MemorySessionDataStorage implements SessionDataStorage {
         sessions.remove(sessionId);
     }
 
+    @Override
+    public void touch(String sessionId) {
+        SessionData sessionData = sessions.get(sessionId);
+        if (sessionData != null) {
+            sessionData.setLastAccessedTime(System.currentTimeMillis());
+        }
+    }
+
+    /**
+     * Removes all expired sessions. It's called periodically by the sweeper.
+     */
+    public void sweep() {
+        long now = System.currentTimeMillis();
+        int count = 0;
+        for (SessionData sessionData : sessions.values()) {
+            if (sessionData.isExpired(now) && sessions.remove(sessionData.getId(), sessionData)) {
+                count++;
+            }
+        }
+
+        if (count > 0) {
+            expiredCount.add(count);
+            log.debug("Removed {} expired sessions", count);
+        }
+    }
+
+    /**
+     * Stops the sweeper.
+     */
+    @Override
+    public void destroy() {
+        if (sweeper != null) {
+            sweeper.shutdownNow();
+        }
+    }
+
+    public int getMaxSessions() {
+        return maxSessions;
+    }
+
+    /**
+     * Returns the number of live sessions.
+     */
+    public int getSessionCount() {
+        return sessions.size();
+    }
+
+    /**
+     * Returns the number of sessions evicted because the maximum number of sessions was exceeded.
+     */
+    public long getEvictedCount() {
+        return evictedCount.sum();
+    }
+
+    /**
+     * Returns the number of expired sessions that were removed.
+     */
+    public long getExpiredCount() {
+        return expiredCount.sum();
+    }
+
+    private void evict() {
+        // only one thread evicts; the others will find the map trimmed
+        if (!evictionLock.tryLock()) {
+            return;
+        }
+
+        try {
+            int excess = sessions.size() - maxSessions;
+            if (excess <= 0) {
+                return;
+            }
+
+            // evict a small batch more to amortize the sort
+            int count = excess + maxSessions / 100;
+            List<SessionData> candidates = new ArrayList<>(sessions.values());
+            candidates.sort(Comparator.comparingLong(SessionData::getLastAccessedTime));
+
+            int evicted = 0;
+            for (SessionData sessionData : candidates) {
+                if (evicted >= count) {
+                    break;
+                }
+
+                if (sessions.remove(sessionData.getId(), sessionData)) {
+                    evicted++;
+                }
+            }
+
+            evictedCount.add(evicted);
+            log.debug("Evicted {} least recently accessed sessions", evicted);
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
 }
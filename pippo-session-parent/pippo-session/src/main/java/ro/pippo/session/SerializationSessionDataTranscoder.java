@@ -22,7 +22,6 @@ import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
-import java.util.Base64;
 
 /**
  * A {@link SessionDataTranscoder} that serializes {@link SessionData}s using
@@ -33,20 +32,19 @@ import java.util.Base64;
 public class SerializationSessionDataTranscoder implements SessionDataTranscoder {
 
     @Override
-    public String encode(SessionData sessionData) {
-        try (ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-                ObjectOutputStream objectOutputStream = new ObjectOutputStream(outputStream)) {
+    public byte[] encodeBytes(SessionData sessionData) {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        try (ObjectOutputStream objectOutputStream = new ObjectOutputStream(outputStream)) {
             objectOutputStream.writeObject(sessionData);
-            byte[] bytes = outputStream.toByteArray();
-            return Base64.getEncoder().encodeToString(bytes);
         } catch (IOException e) {
             throw new PippoRuntimeException(e);
         }
+
+        return outputStream.toByteArray();
     }
 
     @Override
-    public SessionData decode(String data) {
-        byte[] bytes = Base64.getDecoder().decode(data);
+    public SessionData decodeBytes(byte[] bytes) {
         try (ByteArrayInputStream inputStream = new ByteArrayInputStream(bytes);
                 ObjectInputStream objectInputStream = new ObjectInputStream(inputStream)) {
             return (SessionData) objectInputStream.readObject();
@@ -16,7 +16,9 @@
 package ro.pippo.session;
 
 import java.io.Serializable;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
@@ -30,6 +32,9 @@ import java.util.concurrent.TimeUnit;
  */
 public class SessionData implements Serializable {
 
+    // the value computed for the first version, so the sessions stored by that version can be read
+    private static final long serialVersionUID = -7622913341659798159L;
+
     public static final int DEFAULT_MAX_INACTIVE_INTERVAL_SECONDS = 30 * 60; // 30 minutes
 
     private String id;
@@ -38,12 +43,42 @@ public class SessionData implements Serializable {
     private long creationTime;
     private long lastAccessedTime;
     private int maxInactiveInterval;
+    private long version;
+
+    private transient boolean dirty;
+    // the names of the attributes modified since the session was loaded; null means unknown (all)
+    private transient Set<String> changedNames;
+    private transient int storedSize;
 
     public SessionData() {
         id = UUID.randomUUID().toString().replace("-", "");
         attributes = new HashMap<>();
         creationTime = lastAccessedTime = System.currentTimeMillis();
         maxInactiveInterval = DEFAULT_MAX_INACTIVE_INTERVAL_SECONDS;
+        dirty = true;
+    }
+
+    /**
+     * Creates a copy of the session (the attribute values are not copied).
+     */
+    SessionData(SessionData sessionData) {
+        this(sessionData.id, sessionData.creationTime, sessionData.lastAccessedTime, sessionData.maxInactiveInterval);
+        attributes.putAll(sessionData.attributes);
+        version = sessionData.version;
+        storedSize = sessionData.storedSize;
+        dirty = sessionData.dirty;
+        changedNames = (sessionData.changedNames != null) ? new HashSet<>(sessionData.changedNames) : null;
+    }
+
+    /**
+     * Restores a stored session (used by the transcoders and the storages).
+     */
+    public SessionData(String id, long creationTime, long lastAccessedTime, int maxInactiveInterval) {
+        this.id = id;
+        this.attributes = new HashMap<>();
+        this.creationTime = creationTime;
+        this.lastAccessedTime = lastAccessedTime;
+        this.maxInactiveInterval = maxInactiveInterval;
     }
 
     public String getId() {
@@ -64,12 +99,15 @@ public class SessionData implements Serializable {
             remove(name);
         } else {
             attributes.put(name, value);
+            changed(name);
         }
     }
 
     public <T> T remove(String name) {
         T t = get(name);
-        attributes.remove(name);
+        if (attributes.remove(name) != null) {
+            changed(name);
+        }
 
         return t;
     }
@@ -91,13 +129,100 @@ public class SessionData implements Serializable {
     }
 
     public void setMaxInactiveInterval(int interval) {
-        this.maxInactiveInterval = interval;
+        if (maxInactiveInterval != interval) {
+            maxInactiveInterval = interval;
+            dirty = true;
+        }
     }
 
     public int getMaxInactiveInterval() {
         return maxInactiveInterval;
     }
 
+    /**
+     * The version is incremented by {@link CachingSessionDataStorage} on each save and it's used
+     * to detect a stale local copy of the session.
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
+    }
+
+    /**
+     * Returns the size (in bytes) of the stored form of the session, written by the last save
+     * or read by the last get, or zero if it's not known (the storage doesn't store bytes).
+     */
+    public int getStoredSize() {
+        return storedSize;
+    }
+
+    public void setStoredSize(int storedSize) {
+        this.storedSize = storedSize;
+    }
+
+    /**
+     * Returns true if the session was modified since it was loaded (or saved) and it must be saved.
+     * A new session is always dirty.
+     * <p>
+     * The changes of a mutable attribute value (for example an item added to a list stored in session)
+     * are not detected; call {@link #put(String, Object)} again or {@link #setDirty(boolean)}.
+     */
+    public boolean isDirty() {
+        return dirty;
+    }
+
+    /**
+     * Marks the session as modified (all attributes) or as saved.
+     */
+    public void setDirty(boolean dirty) {
+        this.dirty = dirty;
+        changedNames = dirty ? null : new HashSet<>();
+    }
+
+    /**
+     * Returns the names of the attributes added, replaced or removed since the session was loaded
+     * (or saved), or null if they are not known (for a new session or after {@code setDirty(true)}).
+     * It's used by the storages that write only the modified attributes.
+     */
+    public Set<String> getChangedNames() {
+        return (changedNames != null) ? Collections.unmodifiableSet(changedNames) : null;
+    }
+
+    /**
+     * Copies the version and the changes of another state of this session (not the attributes).
+     */
+    void copyChanges(SessionData sessionData) {
+        version = sessionData.version;
+        dirty = sessionData.dirty;
+        changedNames = (sessionData.changedNames != null) ? new HashSet<>(sessionData.changedNames) : null;
+    }
+
+    /**
+     * Adds the changes of an older state of this session that was not saved.
+     */
+    void mergeChanges(SessionData sessionData) {
+        if (!sessionData.dirty) {
+            return;
+        }
+
+        dirty = true;
+        if ((changedNames != null) && (sessionData.changedNames != null)) {
+            changedNames.addAll(sessionData.changedNames);
+        } else {
+            changedNames = null;
+        }
+    }
+
+    private void changed(String name) {
+        dirty = true;
+        if (changedNames != null) {
+            changedNames.add(name);
+        }
+    }
+
     public boolean isExpired() {
         return isExpired(System.currentTimeMillis());
     }
@@ -132,6 +257,7 @@ public class SessionData implements Serializable {
             ", creationTime=" + creationTime +
             ", lastAccessedTime=" + lastAccessedTime +
             ", maxInactiveInterval=" + maxInactiveInterval +
+            ", version=" + version +
             ", attributes=" + attributes +
             '}';
     }
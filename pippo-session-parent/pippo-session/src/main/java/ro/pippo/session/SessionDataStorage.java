@@ -30,4 +30,24 @@ public interface SessionDataStorage {
 
     void delete(String sessionId);
 
+    /**
+     * Refreshes the expiration of a session that was not modified, without writing its attributes.
+     * The default implementation loads and saves the session; override it if the storage has
+     * a cheaper operation (for example a TTL refresh).
+     */
+    default void touch(String sessionId) {
+        SessionData sessionData = get(sessionId);
+        if (sessionData != null) {
+            sessionData.setLastAccessedTime(System.currentTimeMillis());
+            save(sessionData);
+        }
+    }
+
+    /**
+     * Releases the resources of the storage (for example its background threads).
+     * It's called when the application is destroyed.
+     */
+    default void destroy() {
+    }
+
 }
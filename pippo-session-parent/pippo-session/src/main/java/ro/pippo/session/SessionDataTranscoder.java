@@ -15,16 +15,51 @@
  */
 package ro.pippo.session;
 
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
 /**
  * By default <code>CookieSessionDataStorage</code> uses Java's serialization to serialize session data
  * so that it can be sent to cookie. The same applies to deserialization of course.
+ * <p>
+ * The binary form is used by the storages that can store bytes (Redis, MongoDB, JDBC, memcached).
+ * The text form (used by the cookie storage for example) is by default the Base64 of the binary form.
  *
  * @author Decebal Suiu
  */
 public interface SessionDataTranscoder {
 
-    String encode(SessionData sessionData);
+    byte[] encodeBytes(SessionData sessionData);
+
+    SessionData decodeBytes(byte[] data);
+
+    default String encode(SessionData sessionData) {
+        return Base64.getEncoder().encodeToString(encodeBytes(sessionData));
+    }
+
+    default SessionData decode(String data) {
+        return decodeBytes(Base64.getDecoder().decode(data));
+    }
+
+    /**
+     * Decodes the bytes read from a storage. The sessions written by the previous versions
+     * (the text form as bytes) are decoded with {@link #decode(String)} when the binary form
+     * cannot be decoded.
+     */
+    default SessionData decodeStored(byte[] data) {
+        for (byte b : data) {
+            boolean base64 = (b >= 'A' && b <= 'Z') || (b >= 'a' && b <= 'z') || (b >= '0' && b <= '9')
+                || b == '+' || b == '/' || b == '=' || b == '-' || b == '_';
+            if (!base64) {
+                return decodeBytes(data);
+            }
+        }
 
-    SessionData decode(String data);
+        try {
+            return decodeBytes(data);
+        } catch (RuntimeException e) {
+            return decode(new String(data, StandardCharsets.US_ASCII));
+        }
+    }
 
 }
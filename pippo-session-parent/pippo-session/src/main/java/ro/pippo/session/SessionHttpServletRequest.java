@@ -15,10 +15,13 @@
  */
 package ro.pippo.session;
 
+import ro.pippo.core.jfr.JfrSupport;
+
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletRequestWrapper;
 import javax.servlet.http.HttpServletResponse;
 import javax.servlet.http.HttpSession;
+import java.util.concurrent.TimeUnit;
 
 /**
  * @author Decebal Suiu
@@ -26,14 +29,20 @@ import javax.servlet.http.HttpSession;
 public class SessionHttpServletRequest extends HttpServletRequestWrapper {
 
     private final SessionManager sessionManager;
+    private final boolean jfr;
 
     private PippoHttpSession currentSession;
     private Boolean requestedSessionIdValid;
 
     public SessionHttpServletRequest(HttpServletRequest request, SessionManager sessionManager) {
+        this(request, sessionManager, JfrSupport.isAvailable());
+    }
+
+    public SessionHttpServletRequest(HttpServletRequest request, SessionManager sessionManager, boolean jfr) {
         super(request);
 
         this.sessionManager = sessionManager;
+        this.jfr = jfr;
     }
 
     @Override
@@ -44,8 +53,10 @@ public class SessionHttpServletRequest extends HttpServletRequestWrapper {
 
         String requestedSessionId = getRequestedSessionId();
         if (requestedSessionId != null) {
-            SessionData session = getSessionDataStorage().get(requestedSessionId);
+            SessionData session = getSessionData(requestedSessionId);
             if (session != null) {
+                // the session is just loaded from storage
+                session.setDirty(false);
                 requestedSessionIdValid = true;
                 currentSession = createSession(session);
                 currentSession.setNew(false);
@@ -78,7 +89,7 @@ public class SessionHttpServletRequest extends HttpServletRequestWrapper {
     public boolean isRequestedSessionIdValid() {
         if (requestedSessionIdValid == null) {
             String sessionId = getRequestedSessionId();
-            SessionData sessionData = (sessionId != null) ? getSessionDataStorage().get(sessionId) : null;
+            SessionData sessionData = (sessionId != null) ? getSessionData(sessionId) : null;
 
             return isRequestedSessionIdValid(sessionData);
         }
@@ -108,7 +119,9 @@ public class SessionHttpServletRequest extends HttpServletRequestWrapper {
             @Override
             public void onInvalidate() {
                 currentSession = null;
+                SessionStorageEvent event = beginStorageEvent();
                 getSessionDataStorage().delete(getId());
+                commitStorageEvent(event, SessionStorageEvent.DELETE, null);
             }
 
         };
@@ -127,11 +140,57 @@ public class SessionHttpServletRequest extends HttpServletRequestWrapper {
             }
         } else {
             SessionData sessionData = wrappedSession.getSessionData();
-            getSessionDataStorage().save(sessionData);
-            if (!isRequestedSessionIdValid() || !sessionData.getId().equals(getRequestedSessionId())) {
+            boolean newSession = !isRequestedSessionIdValid() || !sessionData.getId().equals(getRequestedSessionId());
+            if (newSession || sessionData.isDirty()) {
+                SessionStorageEvent event = beginStorageEvent();
+                getSessionDataStorage().save(sessionData);
+                commitStorageEvent(event, SessionStorageEvent.SAVE, sessionData);
+                sessionData.setDirty(false);
+            } else {
+                touchSession(sessionData);
+            }
+            if (newSession) {
                 getSessionStrategy().onNewSession(this, response, sessionData);
             }
         }
     }
 
+    private void touchSession(SessionData sessionData) {
+        long now = System.currentTimeMillis();
+        if (now - sessionData.getLastAccessedTime() >= TimeUnit.SECONDS.toMillis(sessionManager.getTouchInterval())) {
+            sessionData.setLastAccessedTime(now);
+            SessionStorageEvent event = beginStorageEvent();
+            getSessionDataStorage().touch(sessionData.getId());
+            commitStorageEvent(event, SessionStorageEvent.TOUCH, null);
+        }
+    }
+
+    private SessionData getSessionData(String sessionId) {
+        SessionStorageEvent event = beginStorageEvent();
+        SessionData sessionData = getSessionDataStorage().get(sessionId);
+        commitStorageEvent(event, SessionStorageEvent.GET, sessionData);
+
+        return sessionData;
+    }
+
+    private SessionStorageEvent beginStorageEvent() {
+        if (!jfr) {
+            return null;
+        }
+
+        SessionStorageEvent event = new SessionStorageEvent();
+        event.begin();
+
+        return event;
+    }
+
+    private void commitStorageEvent(SessionStorageEvent event, String operation, SessionData sessionData) {
+        if ((event != null) && event.shouldCommit()) {
+            event.backend = getSessionDataStorage().getClass().getSimpleName();
+            event.operation = operation;
+            event.bytes = (sessionData != null) ? sessionData.getStoredSize() : 0;
+            event.commit();
+        }
+    }
+
 }
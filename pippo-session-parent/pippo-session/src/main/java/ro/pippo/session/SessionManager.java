@@ -20,8 +20,11 @@ package ro.pippo.session;
  */
 public class SessionManager {
 
+    public static final int DEFAULT_TOUCH_INTERVAL = 60; // seconds
+
     private SessionDataStorage sessionDataStorage;
     private SessionStrategy sessionStrategy;
+    private int touchInterval = DEFAULT_TOUCH_INTERVAL;
 
     public SessionManager() {
         this(new MemorySessionDataStorage());
@@ -44,4 +47,25 @@ public class SessionManager {
         return sessionStrategy;
     }
 
+    public int getTouchInterval() {
+        return touchInterval;
+    }
+
+    /**
+     * A session that was not modified is not saved at the end of the request, its expiration
+     * is refreshed via {@link SessionDataStorage#touch(String)} at most once in this interval (in seconds).
+     * Zero means that the session is touched on each request.
+     */
+    public void setTouchInterval(int touchInterval) {
+        this.touchInterval = touchInterval;
+    }
+
+    /**
+     * Destroys the session storage. It's called when the application is destroyed
+     * (see {@link SessionRequestResponseFactory}).
+     */
+    public void destroy() {
+        sessionDataStorage.destroy();
+    }
+
 }
@@ -20,6 +20,9 @@ import ro.pippo.core.Request;
 import ro.pippo.core.RequestResponse;
 import ro.pippo.core.RequestResponseFactory;
 import ro.pippo.core.Response;
+import ro.pippo.core.jfr.JfrSupport;
+import ro.pippo.core.timing.Phase;
+import ro.pippo.core.timing.PhaseTimings;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
@@ -30,21 +33,33 @@ import javax.servlet.http.HttpServletResponse;
 public class SessionRequestResponseFactory extends RequestResponseFactory {
 
     private final SessionManager sessionManager;
+    private final boolean jfr;
 
     public SessionRequestResponseFactory(Application application, SessionManager sessionManager) {
         super(application);
 
         this.sessionManager = sessionManager;
+        this.jfr = JfrSupport.isEnabled(application.getPippoSettings());
     }
 
     @Override
     public RequestResponse createRequestResponse(HttpServletRequest httpServletRequest, HttpServletResponse httpServletResponse) {
-        SessionHttpServletRequest sessionHttpServletRequest = new SessionHttpServletRequest(httpServletRequest, sessionManager);
+        SessionHttpServletRequest sessionHttpServletRequest = new SessionHttpServletRequest(httpServletRequest, sessionManager, jfr);
         Request request = new Request(sessionHttpServletRequest, application);
         Response response = new Response(httpServletResponse, application);
-        response.getFinalizeListeners().add(r -> sessionHttpServletRequest.commitSession(httpServletResponse));
+        response.getFinalizeListeners().add(r -> {
+            PhaseTimings phaseTimings = r.getPhaseTimings();
+            long start = phaseTimings.start(Phase.SESSION);
+            sessionHttpServletRequest.commitSession(httpServletResponse);
+            phaseTimings.stop(Phase.SESSION, start);
+        });
 
         return new RequestResponse(request, response);
     }
 
+    @Override
+    public void destroy() {
+        sessionManager.destroy();
+    }
+
 }
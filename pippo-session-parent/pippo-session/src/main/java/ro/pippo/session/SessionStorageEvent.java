@@ -0,0 +1,58 @@
+/*
+ * Copyright (C) 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ro.pippo.session;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A JFR event that spans an operation of the {@link SessionDataStorage} made by a request.
+ * The size of the session is known only for the storages that store bytes
+ * (see {@link SessionData#getStoredSize()}).
+ * <p>
+ * Use this class only if {@link ro.pippo.core.jfr.JfrSupport#isAvailable()}.
+ *
+ * @author agent
+ */
+@Name("ro.pippo.SessionStorage")
+@Label("Session Storage")
+@Description("An operation of the session storage")
+@Category("Pippo")
+@StackTrace(false)
+public class SessionStorageEvent extends Event {
+
+    public static final String GET = "get";
+    public static final String SAVE = "save";
+    public static final String DELETE = "delete";
+    public static final String TOUCH = "touch";
+
+    @Label("Backend")
+    @Description("The class of the session storage")
+    public String backend;
+
+    @Label("Operation")
+    public String operation;
+
+    @Label("Bytes")
+    @DataAmount
+    public long bytes;
+
+}
@@ -0,0 +1,33 @@
+/*
+ * Copyright (C) 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ro.pippo.session;
+
+/**
+ * A {@link SessionDataStorage} that can return the version of a stored session
+ * without loading it. It's used by {@link CachingSessionDataStorage} to detect
+ * a stale local copy of a session.
+ *
+ * @author agent
+ */
+public interface VersionedSessionDataStorage extends SessionDataStorage {
+
+    /**
+     * Returns the version of the stored session ({@link SessionData#getVersion()})
+     * or -1 if the session doesn't exist.
+     */
+    long getVersion(String sessionId);
+
+}
@@ -0,0 +1,346 @@
+/*
+ * Copyright (C) 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ro.pippo.session;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A {@link SessionDataStorage} that saves the sessions in another storage asynchronously (write-behind),
+ * so the latency of the storage is not added to the response time.
+ * <p>
+ * A saved session is encoded (with the {@link SessionDataTranscoder}) on the request thread, so the
+ * writer doesn't see the later changes of the attribute values.
+ * The saves of a session are coalesced: if a session is saved again before its previous state
+ * was written, only the last state is written. The writes of a session are never reordered.
+ * When the write queue is full, or too many sessions wait to be written, the session is written
+ * synchronously.
+ * A session that waits to be written, or is being written, is returned by {@link #get(String)},
+ * so the next request of the same client sees its changes.
+ * <p>
+ * A failed write is retried with an exponential backoff (from the retry delay up to
+ * {@link #MAX_RETRY_DELAY}) until it succeeds or the session expires.
+ * <p>
+ * Call {@link #destroy()} on application shutdown (from {@code Application.onDestroy()})
+ * to write the pending sessions.
+ *
+ * @author agent
+ */
+public class WriteBehindSessionDataStorage implements SessionDataStorage {
+
+    private static final Logger log = LoggerFactory.getLogger(WriteBehindSessionDataStorage.class);
+
+    public static final int DEFAULT_THREADS = 2;
+    public static final int DEFAULT_QUEUE_SIZE = 10000;
+    public static final long DEFAULT_RETRY_DELAY = 1000;
+    public static final long MAX_RETRY_DELAY = 60000;
+
+    private static final int LOCK_COUNT = 64;
+
+    private final SessionDataStorage storage;
+    private final SessionDataTranscoder transcoder;
+    private final int queueSize;
+    private final long retryDelay;
+    private final ThreadPoolExecutor executor;
+    private final ScheduledThreadPoolExecutor retryExecutor;
+    private final Map<String, PendingSession> pending = new ConcurrentHashMap<>();
+    // the sessions with a queued (or scheduled) write task
+    private final Set<String> queued = ConcurrentHashMap.newKeySet();
+    private final Object[] locks;
+
+    private final LongAdder writeCount = new LongAdder();
+    private final LongAdder writeTime = new LongAdder();
+    private final LongAdder syncWriteCount = new LongAdder();
+    private final LongAdder failedWriteCount = new LongAdder();
+
+    public WriteBehindSessionDataStorage(SessionDataStorage storage) {
+        this(storage, new SerializationSessionDataTranscoder());
+    }
+
+    public WriteBehindSessionDataStorage(SessionDataStorage storage, SessionDataTranscoder transcoder) {
+        this(storage, transcoder, DEFAULT_THREADS, DEFAULT_QUEUE_SIZE, DEFAULT_RETRY_DELAY);
+    }
+
+    /**
+     * @param storage the storage where the sessions are written
+     * @param transcoder encodes the snapshots of the sessions that wait to be written
+     * @param threads the number of threads that write the sessions
+     * @param queueSize the maximum number of sessions that wait to be written
+     * @param retryDelay the delay (in milliseconds) before the first retry of a failed write
+     */
+    public WriteBehindSessionDataStorage(SessionDataStorage storage, SessionDataTranscoder transcoder, int threads,
+                                         int queueSize, long retryDelay) {
+        this.storage = storage;
+        this.transcoder = transcoder;
+        this.queueSize = queueSize;
+        this.retryDelay = retryDelay;
+
+        executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(queueSize), createThreadFactory("pippo-session-writer-"));
+        retryExecutor = new ScheduledThreadPoolExecutor(1, createThreadFactory("pippo-session-writer-retry-"));
+
+        locks = new Object[LOCK_COUNT];
+        for (int i = 0; i < LOCK_COUNT; i++) {
+            locks[i] = new Object();
+        }
+    }
+
+    @Override
+    public SessionData create() {
+        return storage.create();
+    }
+
+    @Override
+    public void save(SessionData sessionData) {
+        String sessionId = sessionData.getId();
+        if ((pending.size() >= queueSize) && !pending.containsKey(sessionId)) {
+            // the storage is slow or unavailable, don't keep more sessions in memory
+            syncWriteCount.increment();
+            synchronized (getLock(sessionId)) {
+                storage.save(sessionData);
+            }
+
+            return;
+        }
+
+        byte[] data = transcoder.encodeBytes(sessionData);
+        pending.compute(sessionId, (id, previous) -> new PendingSession(sessionData, data, previous));
+
+        // if a write task is already queued for this session, it will write the last state
+        if (queued.add(sessionId)) {
+            queue(sessionId, 0);
+        }
+    }
+
+    @Override
+    public SessionData get(String sessionId) {
+        PendingSession pendingSession = getPending(sessionId);
+        if (pendingSession != null) {
+            return pendingSession.toSessionData();
+        }
+
+        return storage.get(sessionId);
+    }
+
+    @Override
+    public void delete(String sessionId) {
+        synchronized (getLock(sessionId)) {
+            pending.remove(sessionId);
+            storage.delete(sessionId);
+        }
+    }
+
+    @Override
+    public void touch(String sessionId) {
+        // a pending write refreshes the session
+        PendingSession pendingSession = getPending(sessionId);
+        if (pendingSession != null) {
+            pendingSession.state.setLastAccessedTime(System.currentTimeMillis());
+        } else {
+            storage.touch(sessionId);
+        }
+    }
+
+    /**
+     * Stops accepting writes, writes the pending sessions and destroys the storage.
+     */
+    @Override
+    public void destroy() {
+        executor.shutdown();
+        retryExecutor.shutdownNow();
+        try {
+            if (!executor.awaitTermination(30, TimeUnit.SECONDS)) {
+                log.warn("Timeout waiting for the session writers");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        flush();
+        storage.destroy();
+    }
+
+    /**
+     * Writes synchronously the pending sessions (a failed write is not retried).
+     */
+    public void flush() {
+        for (String sessionId : pending.keySet()) {
+            write(sessionId, 0, false);
+        }
+    }
+
+    public SessionDataStorage getStorage() {
+        return storage;
+    }
+
+    /**
+     * Returns the number of sessions that wait to be written.
+     */
+    public int getQueueDepth() {
+        return pending.size();
+    }
+
+    /**
+     * Returns the number of sessions written.
+     */
+    public long getWriteCount() {
+        return writeCount.sum();
+    }
+
+    /**
+     * Returns the mean time (in nanoseconds) of a write.
+     */
+    public long getMeanWriteLatency() {
+        long count = writeCount.sum();
+
+        return (count > 0) ? writeTime.sum() / count : 0;
+    }
+
+    /**
+     * Returns the number of sessions written synchronously because the queue was full.
+     */
+    public long getSyncWriteCount() {
+        return syncWriteCount.sum();
+    }
+
+    public long getFailedWriteCount() {
+        return failedWriteCount.sum();
+    }
+
+    private PendingSession getPending(String sessionId) {
+        PendingSession pendingSession = pending.get(sessionId);
+        if ((pendingSession != null) && pendingSession.state.isExpired()) {
+            pending.remove(sessionId, pendingSession);
+
+            return null;
+        }
+
+        return pendingSession;
+    }
+
+    private void queue(String sessionId, int attempt) {
+        try {
+            executor.execute(() -> write(sessionId, attempt, true));
+        } catch (RejectedExecutionException e) {
+            // the queue is full (or the storage is destroyed)
+            syncWriteCount.increment();
+            write(sessionId, attempt, true);
+        }
+    }
+
+    private void write(String sessionId, int attempt, boolean retry) {
+        // the lock keeps the order of the writes of a session
+        synchronized (getLock(sessionId)) {
+            // a save from now on queues another write
+            queued.remove(sessionId);
+            PendingSession pendingSession = getPending(sessionId);
+            if (pendingSession == null) {
+                // written by a previous task, deleted or expired
+                return;
+            }
+
+            long start = System.nanoTime();
+            try {
+                storage.save(pendingSession.toSessionData());
+                writeCount.increment();
+                writeTime.add(System.nanoTime() - start);
+                // the session stays pending if it was saved again during the write
+                pending.remove(sessionId, pendingSession);
+            } catch (Exception e) {
+                failedWriteCount.increment();
+                if (retry) {
+                    scheduleRetry(sessionId, attempt, e);
+                } else {
+                    log.error("Cannot write session '{}'", sessionId, e);
+                }
+            }
+        }
+    }
+
+    private void scheduleRetry(String sessionId, int attempt, Exception e) {
+        if (!queued.add(sessionId)) {
+            // a save queued another write
+            return;
+        }
+
+        long delay = Math.min(retryDelay << Math.min(attempt, 20), MAX_RETRY_DELAY);
+        log.warn("Cannot write session '{}', retrying in {} ms", sessionId, delay, e);
+        try {
+            retryExecutor.schedule(() -> queue(sessionId, attempt + 1), delay, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException re) {
+            // destroyed, the session is written by flush()
+            queued.remove(sessionId);
+        }
+    }
+
+    private Object getLock(String sessionId) {
+        return locks[(sessionId.hashCode() & 0x7FFFFFFF) % LOCK_COUNT];
+    }
+
+    private static ThreadFactory createThreadFactory(String prefix) {
+        AtomicInteger threadCount = new AtomicInteger();
+
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+
+            return thread;
+        };
+    }
+
+    /**
+     * The encoded snapshot of a session that waits to be written.
+     */
+    private class PendingSession {
+
+        private final byte[] data;
+        // the version, the changes and the expiry of the snapshot (without attributes)
+        private final SessionData state;
+
+        PendingSession(SessionData sessionData, byte[] data, PendingSession previous) {
+            this.data = data;
+            state = new SessionData(sessionData.getId(), sessionData.getCreationTime(),
+                sessionData.getLastAccessedTime(), sessionData.getMaxInactiveInterval());
+            state.copyChanges(sessionData);
+            if (previous != null) {
+                // the storage can write only the changed attributes
+                state.mergeChanges(previous.state);
+            }
+        }
+
+        SessionData toSessionData() {
+            SessionData sessionData = transcoder.decodeBytes(data);
+            sessionData.copyChanges(state);
+            sessionData.setLastAccessedTime(state.getLastAccessedTime());
+
+            return sessionData;
+        }
+
+    }
+
+}
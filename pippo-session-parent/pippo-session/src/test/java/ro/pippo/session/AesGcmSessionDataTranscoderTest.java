@@ -0,0 +1,80 @@
+/*
+ * Copyright (C) 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ro.pippo.session;
+
+import org.junit.Test;
+import ro.pippo.core.PippoRuntimeException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author agent
+ */
+public class AesGcmSessionDataTranscoderTest {
+
+    private static final String SECRET_KEY = "PasswordPassword";
+
+    @Test
+    public void testEncodeDecode() {
+        SessionData sessionData = new SessionData();
+        sessionData.put("KEY", "VALUE");
+
+        AesGcmSessionDataTranscoder transcoder = new AesGcmSessionDataTranscoder.Builder().secretKey(SECRET_KEY).build();
+        String encoded = transcoder.encode(sessionData);
+        SessionData decoded = transcoder.decode(encoded);
+        assertEquals(sessionData.getId(), decoded.getId());
+        assertEquals("VALUE", decoded.get("KEY"));
+        assertEquals("VALUE", transcoder.decodeBytes(transcoder.encodeBytes(sessionData)).get("KEY"));
+
+        // a random nonce for each encoding
+        assertNotEquals(encoded, transcoder.encode(sessionData));
+    }
+
+    @Test
+    public void testModifiedData() {
+        SessionData sessionData = new SessionData();
+        sessionData.put("KEY", "VALUE");
+
+        AesGcmSessionDataTranscoder transcoder = new AesGcmSessionDataTranscoder.Builder().secretKey(SECRET_KEY).build();
+        byte[] data = transcoder.encodeBytes(sessionData);
+        data[data.length / 2] ^= 1;
+        assertNull(transcoder.decodeBytes(data));
+
+        AesGcmSessionDataTranscoder otherTranscoder = new AesGcmSessionDataTranscoder.Builder().secretKey("AnotherPassword!").build();
+        assertNull(otherTranscoder.decode(transcoder.encode(sessionData)));
+
+        assertNull(transcoder.decode("not encrypted"));
+    }
+
+    @Test
+    public void testSmallerThanEncrypted() {
+        SessionData sessionData = new SessionData();
+        sessionData.put("KEY", "VALUE");
+
+        AesGcmSessionDataTranscoder transcoder = new AesGcmSessionDataTranscoder.Builder().secretKey(SECRET_KEY).build();
+        EncryptedSessionDataTranscoder encryptedTranscoder = new EncryptedSessionDataTranscoder.Builder().secretKey(SECRET_KEY).build();
+        assertTrue(transcoder.encode(sessionData).length() < encryptedTranscoder.encode(sessionData).length());
+    }
+
+    @Test(expected = PippoRuntimeException.class)
+    public void testInvalidSecretKey() {
+        new AesGcmSessionDataTranscoder.Builder().secretKey("short").build();
+    }
+
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright (C) 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ro.pippo.session;
+
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+
+/**
+ * @author agent
+ */
+public class CachingSessionDataStorageTest {
+
+    @Test
+    public void testReadFromCache() {
+        CountingSessionDataStorage remote = new CountingSessionDataStorage();
+        CachingSessionDataStorage storage = new CachingSessionDataStorage(remote);
+
+        SessionData sessionData = storage.create();
+        sessionData.put("KEY", "VALUE");
+        storage.save(sessionData);
+
+        SessionData cached = storage.get(sessionData.getId());
+        assertEquals("VALUE", cached.get("KEY"));
+        assertNotSame(sessionData, cached);
+        assertEquals(0, remote.getCount.get());
+        assertEquals(1, storage.getHitCount());
+
+        storage.delete(sessionData.getId());
+        assertNull(storage.get(sessionData.getId()));
+        assertEquals(1, remote.getCount.get());
+    }
+
+    @Test
+    public void testMaxSize() {
+        CountingSessionDataStorage remote = new CountingSessionDataStorage();
+        CachingSessionDataStorage storage = new CachingSessionDataStorage(remote, 1, 10, false);
+
+        SessionData first = storage.create();
+        storage.save(first);
+        storage.save(storage.create());
+        assertEquals(1, storage.getSize());
+
+        storage.get(first.getId());
+        assertEquals(1, remote.getCount.get());
+    }
+
+    @Test
+    public void testStaleCopyIsFetchedAgain() {
+        CountingSessionDataStorage remote = new CountingSessionDataStorage();
+        CachingSessionDataStorage storage = new CachingSessionDataStorage(remote, 10, 10, true);
+        // another node
+        CachingSessionDataStorage otherStorage = new CachingSessionDataStorage(remote, 10, 10, true);
+
+        SessionData sessionData = storage.create();
+        storage.save(sessionData);
+
+        SessionData otherSessionData = otherStorage.get(sessionData.getId());
+        otherSessionData.put("KEY", "VALUE");
+        otherStorage.save(otherSessionData);
+
+        assertEquals("VALUE", storage.get(sessionData.getId()).get("KEY"));
+    }
+
+    private static class CountingSessionDataStorage extends MemorySessionDataStorage implements VersionedSessionDataStorage {
+
+        private final AtomicLong getCount = new AtomicLong();
+
+        CountingSessionDataStorage() {
+            super(0, 0);
+        }
+
+        @Override
+        public void save(SessionData sessionData) {
+            // store a copy like a remote storage
+            super.save(new SessionData(sessionData));
+        }
+
+        @Override
+        public SessionData get(String sessionId) {
+            getCount.incrementAndGet();
+            SessionData sessionData = super.get(sessionId);
+
+            return (sessionData != null) ? new SessionData(sessionData) : null;
+        }
+
+        @Override
+        public long getVersion(String sessionId) {
+            SessionData sessionData = super.get(sessionId);
+
+            return (sessionData != null) ? sessionData.getVersion() : -1;
+        }
+
+    }
+
+}
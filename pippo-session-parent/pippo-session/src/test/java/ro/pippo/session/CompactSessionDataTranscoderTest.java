@@ -0,0 +1,200 @@
+/*
+ * Copyright (C) 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ro.pippo.session;
+
+import org.junit.Test;
+import ro.pippo.core.Flash;
+import ro.pippo.core.PippoRuntimeException;
+
+import java.awt.Point;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author agent
+ */
+public class CompactSessionDataTranscoderTest {
+
+    private final CompactSessionDataTranscoder transcoder = new CompactSessionDataTranscoder();
+
+    @Test
+    public void testEncodeDecode() {
+        SessionData sessionData = new SessionData();
+        sessionData.setMaxInactiveInterval(120);
+        sessionData.put("string", "pippo");
+        sessionData.put("integer", 42);
+        sessionData.put("long", 42L);
+        sessionData.put("double", 4.2);
+        sessionData.put("boolean", true);
+        sessionData.put("decimal", new BigDecimal("4.20"));
+        sessionData.put("uuid", UUID.randomUUID());
+        sessionData.put("date", new Date());
+        sessionData.put("instant", Instant.now());
+        sessionData.put("localDate", LocalDate.now());
+        sessionData.put("localDateTime", LocalDateTime.now());
+        sessionData.put("list", new ArrayList<>(Arrays.asList("a", 1, null)));
+        sessionData.put("set", new HashSet<>(Arrays.asList("a", "b")));
+        Map<String, Object> map = new HashMap<>();
+        map.put("key", new ArrayList<>(Collections.singletonList(1L)));
+        sessionData.put("map", map);
+        // java serialization fallback
+        sessionData.put("point", new Point(1, 2));
+
+        SessionData decoded = transcoder.decode(transcoder.encode(sessionData));
+
+        assertEquals(sessionData.getId(), decoded.getId());
+        assertEquals(sessionData.getCreationTime(), decoded.getCreationTime());
+        assertEquals(sessionData.getLastAccessedTime(), decoded.getLastAccessedTime());
+        assertEquals(120, decoded.getMaxInactiveInterval());
+        assertEquals(sessionData.getNames(), decoded.getNames());
+        for (String name : sessionData.getNames()) {
+            assertEquals(name, sessionData.<Object>get(name), decoded.get(name));
+        }
+        assertFalse(decoded.isDirty());
+    }
+
+    @Test
+    public void testBytesAndFlash() {
+        SessionData sessionData = new SessionData();
+        sessionData.put("bytes", new byte[] { 1, 2, 3 });
+        Flash flash = new Flash();
+        flash.error("Error {}", 1);
+        flash.info("Info");
+        sessionData.put("flash", flash);
+
+        SessionData decoded = transcoder.decodeBytes(transcoder.encodeBytes(sessionData));
+
+        assertArrayEquals(new byte[] { 1, 2, 3 }, decoded.get("bytes"));
+        Flash decodedFlash = decoded.get("flash");
+        assertEquals("Error 1", decodedFlash.getError());
+        assertEquals("Info", decodedFlash.getInfo());
+    }
+
+    @Test
+    public void testCollectionTypes() {
+        Map<String, Integer> treeMap = new TreeMap<>();
+        treeMap.put("b", 2);
+        treeMap.put("a", 1);
+        List<String> linkedList = new LinkedList<>(Arrays.asList("a", "b"));
+        Map<String, Integer> linkedHashMap = new LinkedHashMap<>();
+        linkedHashMap.put("z", 1);
+        linkedHashMap.put("a", 2);
+        linkedHashMap.put("m", 3);
+        Set<String> linkedHashSet = new LinkedHashSet<>(Arrays.asList("z", "a", "m"));
+        Attributes attributes = new Attributes();
+        attributes.put("key", "value");
+        Items items = new Items();
+        items.add("item");
+
+        assertRoundTrip(treeMap);
+        assertRoundTrip(linkedList);
+        assertRoundTrip(linkedHashMap);
+        assertRoundTrip(linkedHashSet);
+        assertRoundTrip(attributes);
+        assertRoundTrip(items);
+        assertRoundTrip(Arrays.asList("a", "b"));
+        assertRoundTrip(Collections.singletonMap("a", 1));
+
+        // the order of the linked collections is kept
+        Map<String, Integer> decodedMap = decodeValue(linkedHashMap);
+        assertEquals(Arrays.asList("z", "a", "m"), new ArrayList<>(decodedMap.keySet()));
+        Set<String> decodedSet = decodeValue(linkedHashSet);
+        assertEquals(Arrays.asList("z", "a", "m"), new ArrayList<>(decodedSet));
+    }
+
+    @Test
+    public void testSubclasses() {
+        assertRoundTrip(new java.sql.Timestamp(System.currentTimeMillis()));
+        assertRoundTrip(new Amount("4.20"));
+    }
+
+    @Test(expected = PippoRuntimeException.class)
+    public void testLengthLargerThanInput() {
+        byte[] bytes = transcoder.encodeValue(new byte[] { 1, 2, 3 });
+        // the length follows the type
+        bytes[1] = 100;
+        transcoder.decodeValue(bytes);
+    }
+
+    @Test(expected = PippoRuntimeException.class)
+    public void testNegativeLength() {
+        byte[] bytes = transcoder.encodeValue(new ArrayList<>(Collections.singletonList("item")));
+        byte[] malformed = new byte[] { bytes[0], (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x0F };
+        transcoder.decodeValue(malformed);
+    }
+
+    private void assertRoundTrip(Object value) {
+        Object decoded = decodeValue(value);
+
+        assertEquals(value.getClass(), decoded.getClass());
+        assertEquals(value, decoded);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T decodeValue(Object value) {
+        return (T) transcoder.decodeValue(transcoder.encodeValue(value));
+    }
+
+    @Test
+    public void testCompactness() {
+        SessionData sessionData = new SessionData();
+        sessionData.put("userId", 42L);
+        sessionData.put("username", "pippo");
+        List<String> roles = new ArrayList<>(Arrays.asList("admin", "user"));
+        sessionData.put("roles", roles);
+
+        String compact = transcoder.encode(sessionData);
+        String serialized = new SerializationSessionDataTranscoder().encode(sessionData);
+
+        assertTrue(compact.length() * 3 < serialized.length());
+    }
+
+    public static class Attributes extends HashMap<String, String> {
+    }
+
+    public static class Items extends ArrayList<String> {
+    }
+
+    public static class Amount extends BigDecimal {
+
+        public Amount(String value) {
+            super(value);
+        }
+
+    }
+
+}
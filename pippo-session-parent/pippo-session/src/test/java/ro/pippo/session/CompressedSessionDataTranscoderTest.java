@@ -0,0 +1,105 @@
+/*
+ * Copyright (C) 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ro.pippo.session;
+
+import org.junit.Test;
+import ro.pippo.core.PippoRuntimeException;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * @author agent
+ */
+public class CompressedSessionDataTranscoderTest {
+
+    @Test
+    public void testCompressLargeSession() {
+        SessionData sessionData = new SessionData();
+        List<String> cart = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            cart.add("product-" + i);
+        }
+        sessionData.put("cart", cart);
+
+        CompactSessionDataTranscoder compactTranscoder = new CompactSessionDataTranscoder();
+        CompressedSessionDataTranscoder transcoder = new CompressedSessionDataTranscoder(compactTranscoder);
+        byte[] compressed = transcoder.encodeBytes(sessionData);
+        assertTrue(compressed.length < compactTranscoder.encodeBytes(sessionData).length);
+
+        SessionData decoded = transcoder.decodeBytes(compressed);
+        assertEquals(cart, decoded.get("cart"));
+    }
+
+    @Test
+    public void testMaxSize() {
+        // a highly compressible value, decompressed to ~100 KB
+        StringBuilder value = new StringBuilder();
+        for (int i = 0; i < 100_000; i++) {
+            value.append('a');
+        }
+        SessionData sessionData = new SessionData();
+        sessionData.put("KEY", value.toString());
+
+        CompressedSessionDataTranscoder transcoder = new CompressedSessionDataTranscoder.Builder()
+            .transcoder(new CompactSessionDataTranscoder())
+            .build();
+        byte[] compressed = transcoder.encodeBytes(sessionData);
+        assertTrue(compressed.length < 1024);
+        assertEquals(value.toString(), transcoder.decodeBytes(compressed).get("KEY"));
+
+        CompressedSessionDataTranscoder limitedTranscoder = new CompressedSessionDataTranscoder.Builder()
+            .transcoder(new CompactSessionDataTranscoder())
+            .maxSize(64 * 1024)
+            .build();
+        try {
+            limitedTranscoder.decodeBytes(compressed);
+            fail("The decompressed data is bigger than the maximum size");
+        } catch (PippoRuntimeException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testSmallSessionAndOldData() {
+        SessionData sessionData = new SessionData();
+        sessionData.put("KEY", "VALUE");
+
+        SerializationSessionDataTranscoder serializationTranscoder = new SerializationSessionDataTranscoder();
+        CompressedSessionDataTranscoder transcoder = new CompressedSessionDataTranscoder(serializationTranscoder, 1024, 1);
+        assertEquals("VALUE", transcoder.decode(transcoder.encode(sessionData)).get("KEY"));
+
+        // written before the compression was enabled
+        assertEquals("VALUE", transcoder.decode(serializationTranscoder.encode(sessionData)).get("KEY"));
+    }
+
+    @Test
+    public void testCompressBeforeEncrypt() {
+        SessionData sessionData = new SessionData();
+        sessionData.put("KEY", "VALUE");
+
+        EncryptedSessionDataTranscoder transcoder = new EncryptedSessionDataTranscoder.Builder()
+            .secretKey("PasswordPassword")
+            .transcoder(new CompressedSessionDataTranscoder(new SerializationSessionDataTranscoder(), 0, 1))
+            .build();
+        assertEquals("VALUE", transcoder.decode(transcoder.encode(sessionData)).get("KEY"));
+    }
+
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright (C) 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ro.pippo.session;
+
+import org.junit.Test;
+import ro.pippo.core.Application;
+import ro.pippo.core.RequestResponseFactory;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author agent
+ */
+public class MemorySessionDataStorageTest {
+
+    @Test
+    public void testSweepExpiredSessions() {
+        MemorySessionDataStorage storage = new MemorySessionDataStorage(0, 0);
+
+        SessionData expired = storage.create();
+        expired.setLastAccessedTime(System.currentTimeMillis() - 10000);
+        expired.setMaxInactiveInterval(1);
+        storage.save(expired);
+
+        SessionData live = storage.create();
+        storage.save(live);
+
+        storage.sweep();
+
+        assertEquals(1, storage.getSessionCount());
+        assertEquals(1, storage.getExpiredCount());
+        assertNotNull(storage.get(live.getId()));
+    }
+
+    @Test
+    public void testEvictLeastRecentlyAccessed() {
+        MemorySessionDataStorage storage = new MemorySessionDataStorage(0, 2);
+        long now = System.currentTimeMillis();
+
+        SessionData first = storage.create();
+        first.setLastAccessedTime(now - 3000);
+        storage.save(first);
+
+        SessionData second = storage.create();
+        second.setLastAccessedTime(now - 1000);
+        storage.save(second);
+
+        SessionData third = storage.create();
+        third.setLastAccessedTime(now - 2000);
+        storage.save(third);
+
+        assertEquals(1, storage.getEvictedCount());
+        assertNull(storage.get(first.getId()));
+        assertNotNull(storage.get(second.getId()));
+        assertNotNull(storage.get(third.getId()));
+    }
+
+    @Test
+    public void testDestroyedWithTheApplication() {
+        AtomicBoolean destroyed = new AtomicBoolean();
+        MemorySessionDataStorage storage = new MemorySessionDataStorage() {
+
+            @Override
+            public void destroy() {
+                super.destroy();
+                destroyed.set(true);
+            }
+
+        };
+
+        Application application = new Application() {
+
+            @Override
+            protected RequestResponseFactory createRequestResponseFactory() {
+                return new SessionRequestResponseFactory(this, new SessionManager(storage));
+            }
+
+        };
+        application.getRequestResponseFactory();
+        application.destroy();
+
+        assertTrue(destroyed.get());
+    }
+
+}
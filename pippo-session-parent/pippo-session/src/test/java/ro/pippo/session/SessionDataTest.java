@@ -0,0 +1,74 @@
+/*
+ * Copyright (C) 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ro.pippo.session;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author agent
+ */
+public class SessionDataTest {
+
+    @Test
+    public void testNewSessionIsDirty() {
+        assertTrue(new SessionData().isDirty());
+    }
+
+    @Test
+    public void testMutationsMarkDirty() {
+        SessionData sessionData = new SessionData();
+        sessionData.setDirty(false);
+
+        sessionData.remove("missing");
+        sessionData.setMaxInactiveInterval(sessionData.getMaxInactiveInterval());
+        assertFalse(sessionData.isDirty());
+
+        sessionData.put("name", "pippo");
+        assertTrue(sessionData.isDirty());
+
+        sessionData.setDirty(false);
+        sessionData.remove("name");
+        assertTrue(sessionData.isDirty());
+
+        sessionData.setDirty(false);
+        sessionData.setMaxInactiveInterval(60);
+        assertTrue(sessionData.isDirty());
+    }
+
+    @Test
+    public void testDeserializedSessionIsNotDirty() throws Exception {
+        SessionData sessionData = new SessionData();
+        sessionData.put("name", "pippo");
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream output = new ObjectOutputStream(bytes)) {
+            output.writeObject(sessionData);
+        }
+
+        try (ObjectInputStream input = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            assertFalse(((SessionData) input.readObject()).isDirty());
+        }
+    }
+
+}
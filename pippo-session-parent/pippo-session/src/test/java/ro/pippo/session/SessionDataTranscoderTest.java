@@ -0,0 +1,52 @@
+/*
+ * Copyright (C) 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ro.pippo.session;
+
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * @author agent
+ */
+public class SessionDataTranscoderTest {
+
+    @Test
+    public void testDecodeStored() {
+        SessionData sessionData = new SessionData();
+        sessionData.put("KEY", "VALUE");
+
+        SessionDataTranscoder transcoder = new SerializationSessionDataTranscoder();
+        assertEquals("VALUE", transcoder.decodeStored(transcoder.encodeBytes(sessionData)).get("KEY"));
+
+        // stored as text by a previous version
+        byte[] text = transcoder.encode(sessionData).getBytes(StandardCharsets.US_ASCII);
+        assertEquals("VALUE", transcoder.decodeStored(text).get("KEY"));
+    }
+
+    @Test
+    public void testDecodeStoredTextTranscoder() {
+        SessionData sessionData = new SessionData();
+        sessionData.put("KEY", "VALUE");
+
+        // the binary form is text
+        SessionDataTranscoder transcoder = new EncryptedSessionDataTranscoder.Builder().secretKey("PasswordPassword").build();
+        assertEquals("VALUE", transcoder.decodeStored(transcoder.encodeBytes(sessionData)).get("KEY"));
+    }
+
+}
@@ -0,0 +1,225 @@
+/*
+ * Copyright (C) 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ro.pippo.session;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author agent
+ */
+public class WriteBehindSessionDataStorageTest {
+
+    @Test
+    public void testSavesAreCoalesced() throws Exception {
+        BlockingSessionDataStorage remote = new BlockingSessionDataStorage();
+        WriteBehindSessionDataStorage storage = createStorage(remote, 10);
+
+        // block the writer with another session
+        SessionData other = storage.create();
+        storage.save(other);
+
+        SessionData sessionData = storage.create();
+        for (int i = 0; i < 5; i++) {
+            sessionData.put("count", i);
+            storage.save(sessionData);
+        }
+        assertEquals(4, storage.get(sessionData.getId()).<Integer>get("count").intValue());
+
+        remote.latch.countDown();
+        storage.destroy();
+
+        assertEquals(0, storage.getQueueDepth());
+        assertEquals(2, remote.saveCount.get());
+        assertEquals(4, remote.get(sessionData.getId()).<Integer>get("count").intValue());
+    }
+
+    @Test
+    public void testSynchronousWriteWhenQueueIsFull() {
+        BlockingSessionDataStorage remote = new BlockingSessionDataStorage();
+        WriteBehindSessionDataStorage storage = createStorage(remote, 1);
+        remote.latch.countDown();
+        storage.destroy();
+
+        SessionData sessionData = storage.create();
+        storage.save(sessionData);
+        assertEquals(1, storage.getSyncWriteCount());
+        assertNotNull(remote.get(sessionData.getId()));
+
+        storage.delete(sessionData.getId());
+        assertNull(storage.get(sessionData.getId()));
+    }
+
+    @Test
+    public void testGetDuringWrite() throws Exception {
+        BlockingSessionDataStorage remote = new BlockingSessionDataStorage();
+        WriteBehindSessionDataStorage storage = createStorage(remote, 10);
+
+        SessionData sessionData = storage.create();
+        sessionData.put("count", 1);
+        storage.save(sessionData);
+        remote.saving.await();
+
+        // the session is being written
+        assertEquals(1, storage.get(sessionData.getId()).<Integer>get("count").intValue());
+
+        remote.latch.countDown();
+        storage.destroy();
+
+        assertEquals(0, storage.getQueueDepth());
+        assertEquals(1, remote.get(sessionData.getId()).<Integer>get("count").intValue());
+    }
+
+    @Test
+    public void testSnapshotIsWritten() {
+        BlockingSessionDataStorage remote = new BlockingSessionDataStorage();
+        WriteBehindSessionDataStorage storage = createStorage(remote, 10);
+
+        List<String> items = new ArrayList<>();
+        items.add("first");
+        SessionData sessionData = storage.create();
+        sessionData.put("items", items);
+        storage.save(sessionData);
+
+        // changed by a later request, without saving the session
+        items.add("second");
+
+        remote.latch.countDown();
+        storage.destroy();
+
+        assertEquals(Collections.singletonList("first"), remote.get(sessionData.getId()).get("items"));
+    }
+
+    @Test
+    public void testFailedWriteIsRetried() throws Exception {
+        FailingSessionDataStorage remote = new FailingSessionDataStorage(3);
+        WriteBehindSessionDataStorage storage = createStorage(remote, 10);
+
+        SessionData sessionData = storage.create();
+        sessionData.put("count", 1);
+        storage.save(sessionData);
+
+        // the change is not lost
+        assertEquals(1, storage.get(sessionData.getId()).<Integer>get("count").intValue());
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (storage.getQueueDepth() > 0) {
+            assertTrue(System.currentTimeMillis() < deadline);
+            Thread.sleep(10);
+        }
+
+        assertEquals(3, storage.getFailedWriteCount());
+        assertEquals(1, remote.get(sessionData.getId()).<Integer>get("count").intValue());
+        storage.destroy();
+    }
+
+    @Test
+    public void testSynchronousWriteWhenTooManyPending() {
+        FailingSessionDataStorage remote = new FailingSessionDataStorage(Integer.MAX_VALUE);
+        WriteBehindSessionDataStorage storage = new WriteBehindSessionDataStorage(remote,
+            new SerializationSessionDataTranscoder(), 1, 2, TimeUnit.MINUTES.toMillis(1));
+
+        storage.save(storage.create());
+        storage.save(storage.create());
+        assertEquals(2, storage.getQueueDepth());
+
+        // the storage is available again, but the failed writes wait for their retry
+        remote.failures.set(0);
+        SessionData sessionData = storage.create();
+        storage.save(sessionData);
+        assertEquals(1, storage.getSyncWriteCount());
+        assertEquals(2, storage.getQueueDepth());
+        assertNotNull(remote.get(sessionData.getId()));
+
+        storage.destroy();
+        assertEquals(0, storage.getQueueDepth());
+    }
+
+    @Test
+    public void testExpiredPendingSessionIsDropped() {
+        FailingSessionDataStorage remote = new FailingSessionDataStorage(Integer.MAX_VALUE);
+        WriteBehindSessionDataStorage storage = new WriteBehindSessionDataStorage(remote,
+            new SerializationSessionDataTranscoder(), 1, 10, TimeUnit.MINUTES.toMillis(1));
+
+        SessionData sessionData = storage.create();
+        sessionData.setMaxInactiveInterval(1);
+        sessionData.setLastAccessedTime(System.currentTimeMillis() - 2000);
+        storage.save(sessionData);
+
+        assertNull(storage.get(sessionData.getId()));
+        assertEquals(0, storage.getQueueDepth());
+        storage.destroy();
+    }
+
+    private static WriteBehindSessionDataStorage createStorage(SessionDataStorage remote, int queueSize) {
+        return new WriteBehindSessionDataStorage(remote, new SerializationSessionDataTranscoder(), 1, queueSize, 10);
+    }
+
+    private static class BlockingSessionDataStorage extends MemorySessionDataStorage {
+
+        private final CountDownLatch latch = new CountDownLatch(1);
+        private final CountDownLatch saving = new CountDownLatch(1);
+        private final AtomicInteger saveCount = new AtomicInteger();
+
+        BlockingSessionDataStorage() {
+            super(0, 0);
+        }
+
+        @Override
+        public void save(SessionData sessionData) {
+            saving.countDown();
+            try {
+                latch.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            saveCount.incrementAndGet();
+            super.save(sessionData);
+        }
+
+    }
+
+    private static class FailingSessionDataStorage extends MemorySessionDataStorage {
+
+        private final AtomicInteger failures;
+
+        FailingSessionDataStorage(int failures) {
+            super(0, 0);
+            this.failures = new AtomicInteger(failures);
+        }
+
+        @Override
+        public void save(SessionData sessionData) {
+            if (failures.getAndDecrement() > 0) {
+                throw new IllegalStateException("Storage unavailable");
+            }
+            super.save(sessionData);
+        }
+
+    }
+
+}
@@ -0,0 +1,475 @@
+/*
+ * Copyright (C) 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ro.pippo.test;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import ro.pippo.core.Application;
+import ro.pippo.core.Pippo;
+import ro.pippo.core.PippoRuntimeException;
+import ro.pippo.core.WebServer;
+import ro.pippo.core.util.ServiceLocator;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
+/**
+ * A throughput and latency test that runs on localhost, without external tools.
+ * <p>
+ * A number of worker threads send {@code GET} requests over persistent (keep-alive) HTTP/1.1
+ * connections, one connection per thread:
+ * <ul>
+ * <li>closed loop (the default) - each thread sends a request as soon as it received the previous
+ * response; it measures the maximum throughput</li>
+ * <li>open loop ({@link #rate(int)}) - the requests are sent at a fixed rate, whatever the response
+ * time; the latency of a request is measured from the time it should have been sent, so the time
+ * spent waiting behind a slow request is included (no coordinated omission)</li>
+ * </ul>
+ * The latencies are recorded in a {@link LatencyHistogram} and the load is applied for a warmup
+ * period before the measurement.
+ * <pre>
+ * LoadTest loadTest = new LoadTest()
+ *     .path("/hello")
+ *     .threads(8)
+ *     .warmup(5, TimeUnit.SECONDS)
+ *     .duration(10, TimeUnit.SECONDS);
+ *
+ * // compare the servers from the classpath (pippo-jetty, pippo-undertow, pippo-tomcat, pippo-tjws)
+ * for (LoadTestResult result : loadTest.runOnServers(MyApplication::new).values()) {
+ *     System.out.println(result);
+ * }
+ * </pre>
+ *
+ * @author agent
+ */
+public class LoadTest {
+
+    private static final Logger log = LoggerFactory.getLogger(LoadTest.class);
+
+    private String host = "localhost";
+    private String path = "/";
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private int rate;
+    private long warmup = TimeUnit.SECONDS.toNanos(2);
+    private long duration = TimeUnit.SECONDS.toNanos(10);
+    private int timeout = (int) TimeUnit.SECONDS.toMillis(10);
+
+    public LoadTest host(String host) {
+        this.host = host;
+
+        return this;
+    }
+
+    /**
+     * The path (and query) of the requests.
+     */
+    public LoadTest path(String path) {
+        this.path = path;
+
+        return this;
+    }
+
+    /**
+     * The number of worker threads (and connections).
+     */
+    public LoadTest threads(int threads) {
+        this.threads = threads;
+
+        return this;
+    }
+
+    /**
+     * The number of requests per second for an open loop test, zero for a closed loop test.
+     */
+    public LoadTest rate(int rate) {
+        this.rate = rate;
+
+        return this;
+    }
+
+    public LoadTest warmup(long warmup, TimeUnit timeUnit) {
+        this.warmup = timeUnit.toNanos(warmup);
+
+        return this;
+    }
+
+    public LoadTest duration(long duration, TimeUnit timeUnit) {
+        this.duration = timeUnit.toNanos(duration);
+
+        return this;
+    }
+
+    /**
+     * The read timeout of a response; a request that times out is counted as an error
+     * and its connection is closed.
+     */
+    public LoadTest timeout(long timeout, TimeUnit timeUnit) {
+        this.timeout = (int) Math.max(1, timeUnit.toMillis(timeout));
+
+        return this;
+    }
+
+    /**
+     * Starts the application on each web server found on the classpath (see {@link WebServer})
+     * and runs the test.
+     *
+     * @param applicationSupplier creates a new application for each server
+     * @return the results by server name
+     */
+    public Map<String, LoadTestResult> runOnServers(Supplier<? extends Application> applicationSupplier) {
+        List<WebServer> servers = ServiceLocator.locateAll(WebServer.class);
+        if (servers.isEmpty()) {
+            throw new PippoRuntimeException("Cannot find a WebServer");
+        }
+
+        Map<String, LoadTestResult> results = new LinkedHashMap<>();
+        for (WebServer server : servers) {
+            String name = server.getClass().getSimpleName();
+            results.put(name, runOnServer(name, applicationSupplier.get(), server));
+        }
+
+        return results;
+    }
+
+    /**
+     * Starts the application on a web server and runs the test.
+     */
+    public LoadTestResult runOnServer(String name, Application application, WebServer server) {
+        int port = AvailablePortFinder.findAvailablePort();
+        Pippo pippo = new Pippo(application).setServer(server);
+        pippo.start(port);
+        try {
+            return run(name, port);
+        } finally {
+            pippo.stop();
+        }
+    }
+
+    /**
+     * Runs the test against a server that listens on a port.
+     *
+     * @param name the name of the result
+     * @param port the port of the server
+     */
+    public LoadTestResult run(String name, int port) {
+        if (warmup > 0) {
+            log.debug("Warmup '{}' for {} ms", name, TimeUnit.NANOSECONDS.toMillis(warmup));
+            runWorkers(port, warmup);
+        }
+
+        log.debug("Measure '{}' for {} ms", name, TimeUnit.NANOSECONDS.toMillis(duration));
+        List<Worker> workers = runWorkers(port, duration);
+        long end = System.nanoTime();
+        // the first worker starts first
+        long start = workers.get(0).start;
+
+        long requests = 0;
+        long errors = 0;
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (Worker worker : workers) {
+            requests += worker.requests;
+            errors += worker.errors;
+            histogram.add(worker.histogram);
+        }
+        LoadTestResult result = new LoadTestResult(name, requests, errors, end - start, histogram);
+        log.info("{}", result);
+
+        return result;
+    }
+
+    private List<Worker> runWorkers(int port, long runTime) {
+        byte[] request = ("GET " + path + " HTTP/1.1\r\n" +
+            "Host: " + host + ":" + port + "\r\n" +
+            "User-Agent: pippo-load-test\r\n" +
+            "\r\n").getBytes(StandardCharsets.US_ASCII);
+
+        // the threads start together, the open loop threads are spread over the interval
+        long start = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(50);
+        long interval = (rate > 0) ? TimeUnit.SECONDS.toNanos(1) * threads / rate : 0;
+
+        List<Worker> workers = new ArrayList<>();
+        List<Thread> workerThreads = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            Worker worker = new Worker(new HttpConnection(host, port, timeout, request), start + interval * i / threads,
+                start + runTime, interval);
+            workers.add(worker);
+
+            Thread thread = new Thread(worker, "pippo-load-test-" + (i + 1));
+            thread.setDaemon(true);
+            thread.start();
+            workerThreads.add(thread);
+        }
+
+        for (Thread thread : workerThreads) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new PippoRuntimeException(e);
+            }
+        }
+
+        return workers;
+    }
+
+    private static class Worker implements Runnable {
+
+        private final HttpConnection connection;
+        private final long start;
+        private final long end;
+        private final long interval;
+
+        private final LatencyHistogram histogram = new LatencyHistogram();
+        private long requests;
+        private long errors;
+
+        Worker(HttpConnection connection, long start, long end, long interval) {
+            this.connection = connection;
+            this.start = start;
+            this.end = end;
+            this.interval = interval;
+        }
+
+        @Override
+        public void run() {
+            try {
+                // the connection is opened before the start, so it is not measured
+                if (!connect()) {
+                    errors++;
+                }
+
+                long next = start;
+                waitUntil(next);
+                while ((next < end) && (System.nanoTime() < end)) {
+                    // in an open loop the latency starts when the request should have been sent
+                    long sendTime = (interval > 0) ? next : System.nanoTime();
+                    if (send()) {
+                        requests++;
+                        histogram.record(System.nanoTime() - sendTime);
+                    } else {
+                        errors++;
+                    }
+
+                    if (interval > 0) {
+                        next += interval;
+                        waitUntil(next);
+                    } else {
+                        next = System.nanoTime();
+                    }
+                }
+            } finally {
+                connection.close();
+            }
+        }
+
+        private boolean connect() {
+            try {
+                connection.connect();
+
+                return true;
+            } catch (IOException e) {
+                log.debug("Connect failed: {}", e.toString());
+                connection.close();
+
+                return false;
+            }
+        }
+
+        private boolean send() {
+            try {
+                return connection.send() < 400;
+            } catch (IOException | RuntimeException e) {
+                // a read timeout or a malformed response
+                log.debug("Request failed: {}", e.toString());
+                connection.close();
+
+                return false;
+            }
+        }
+
+        private void waitUntil(long time) {
+            long delay;
+            while ((delay = time - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(delay);
+            }
+        }
+
+    }
+
+    /**
+     * A minimal HTTP/1.1 client connection that sends the same request and skips the response body.
+     */
+    private static class HttpConnection implements Closeable {
+
+        private final String host;
+        private final int port;
+        private final int timeout;
+        private final byte[] request;
+        private final byte[] buffer = new byte[8192];
+        private final StringBuilder line = new StringBuilder();
+
+        private Socket socket;
+        private InputStream input;
+        private OutputStream output;
+
+        HttpConnection(String host, int port, int timeout, byte[] request) {
+            this.host = host;
+            this.port = port;
+            this.timeout = timeout;
+            this.request = request;
+        }
+
+        /**
+         * Opens the connection, if it's not already open.
+         */
+        void connect() throws IOException {
+            if (socket == null) {
+                socket = new Socket();
+                socket.setTcpNoDelay(true);
+                socket.setSoTimeout(timeout);
+                socket.connect(new InetSocketAddress(host, port), timeout);
+                input = new BufferedInputStream(socket.getInputStream(), buffer.length);
+                output = socket.getOutputStream();
+            }
+        }
+
+        /**
+         * Sends the request and reads the response; the connection is reopened if it was closed.
+         *
+         * @return the status code
+         */
+        int send() throws IOException {
+            connect();
+
+            output.write(request);
+            output.flush();
+
+            // status line, for example "HTTP/1.1 200 OK"
+            String statusLine = readLine();
+            if (!statusLine.startsWith("HTTP/") || (statusLine.length() < 12)) {
+                throw new IOException("Malformed status line '" + statusLine + "'");
+            }
+            int status = Integer.parseInt(statusLine.substring(9, 12));
+
+            long contentLength = -1;
+            boolean chunked = false;
+            boolean close = false;
+            String header;
+            while (!(header = readLine()).isEmpty()) {
+                int index = header.indexOf(':');
+                if (index < 0) {
+                    continue;
+                }
+
+                String name = header.substring(0, index).trim();
+                String value = header.substring(index + 1).trim();
+                if ("Content-Length".equalsIgnoreCase(name)) {
+                    contentLength = Long.parseLong(value);
+                } else if ("Transfer-Encoding".equalsIgnoreCase(name)) {
+                    chunked = value.toLowerCase().contains("chunked");
+                } else if ("Connection".equalsIgnoreCase(name)) {
+                    close = "close".equalsIgnoreCase(value);
+                }
+            }
+
+            if ((status < 200) || (status == 204) || (status == 304)) {
+                // no body
+            } else if (chunked) {
+                long chunkSize;
+                do {
+                    String sizeLine = readLine();
+                    int index = sizeLine.indexOf(';');
+                    chunkSize = Long.parseLong((index < 0) ? sizeLine.trim() : sizeLine.substring(0, index).trim(), 16);
+                    skip(chunkSize);
+                    if (chunkSize > 0) {
+                        readLine();
+                    }
+                } while (chunkSize > 0);
+
+                // trailers
+                while (!readLine().isEmpty()) {
+                    // skip
+                }
+            } else if (contentLength >= 0) {
+                skip(contentLength);
+            } else {
+                // the body ends when the connection is closed
+                while (input.read(buffer) >= 0) {
+                    // skip
+                }
+                close = true;
+            }
+
+            if (close) {
+                close();
+            }
+
+            return status;
+        }
+
+        @Override
+        public void close() {
+            if (socket != null) {
+                try {
+                    socket.close();
+                } catch (IOException e) {
+                    // ignore
+                }
+                socket = null;
+            }
+        }
+
+        private String readLine() throws IOException {
+            line.setLength(0);
+            int b;
+            while ((b = input.read()) != '\n') {
+                if (b < 0) {
+                    throw new IOException("Connection closed");
+                }
+                if (b != '\r') {
+                    line.append((char) b);
+                }
+            }
+
+            return line.toString();
+        }
+
+        private void skip(long count) throws IOException {
+            while (count > 0) {
+                int read = input.read(buffer, 0, (int) Math.min(buffer.length, count));
+                if (read < 0) {
+                    throw new IOException("Connection closed");
+                }
+                count -= read;
+            }
+        }
+
+    }
+
+}
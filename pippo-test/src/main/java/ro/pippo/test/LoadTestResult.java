@@ -0,0 +1,99 @@
+/*
+ * Copyright (C) 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ro.pippo.test;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The throughput and the latencies measured by a {@link LoadTest}.
+ *
+ * @author agent
+ */
+public class LoadTestResult {
+
+    private final String name;
+    private final long requests;
+    private final long errors;
+    private final long duration;
+    private final LatencyHistogram histogram;
+
+    public LoadTestResult(String name, long requests, long errors, long duration, LatencyHistogram histogram) {
+        this.name = name;
+        this.requests = requests;
+        this.errors = errors;
+        this.duration = duration;
+        this.histogram = histogram;
+    }
+
+    /**
+     * Returns the name of the test (the web server for example).
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns the number of successful requests (with a status code below 400).
+     */
+    public long getRequests() {
+        return requests;
+    }
+
+    /**
+     * Returns the number of requests with an I/O error or with a status code of 400 or more.
+     */
+    public long getErrors() {
+        return errors;
+    }
+
+    /**
+     * Returns the duration of the measurement in nanoseconds.
+     */
+    public long getDuration() {
+        return duration;
+    }
+
+    public double getRequestsPerSecond() {
+        return (duration > 0) ? requests * (double) TimeUnit.SECONDS.toNanos(1) / duration : 0;
+    }
+
+    /**
+     * Returns the latencies (in nanoseconds) of the successful requests.
+     */
+    public LatencyHistogram getHistogram() {
+        return histogram;
+    }
+
+    /**
+     * Returns the latency (in nanoseconds) at a percentile (for example 99.9).
+     */
+    public long getPercentile(double percentile) {
+        return histogram.getPercentile(percentile);
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.ENGLISH, "%s: %d requests, %d errors, %.0f req/s, latency (ms) p50=%.3f p99=%.3f p999=%.3f max=%.3f",
+            name, requests, errors, getRequestsPerSecond(), toMillis(getPercentile(50)), toMillis(getPercentile(99)),
+            toMillis(getPercentile(99.9)), toMillis(histogram.getMax()));
+    }
+
+    private static double toMillis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright (C) 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ro.pippo.test;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.Test;
+import ro.pippo.core.Application;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author agent
+ */
+public class LoadTestTest {
+
+    @Test
+    public void testRun() throws IOException {
+        byte[] body = "hello".getBytes(StandardCharsets.UTF_8);
+        HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", exchange -> {
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream output = exchange.getResponseBody()) {
+                output.write(body);
+            }
+        });
+        server.start();
+        try {
+            LoadTestResult result = new LoadTest()
+                .threads(2)
+                .warmup(0, TimeUnit.SECONDS)
+                .duration(500, TimeUnit.MILLISECONDS)
+                .run("test", server.getAddress().getPort());
+
+            assertTrue(result.getRequests() > 0);
+            assertEquals(0, result.getErrors());
+            assertEquals(result.getRequests(), result.getHistogram().getCount());
+            assertTrue(result.getPercentile(50) > 0);
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    @Test(timeout = 30_000)
+    public void testRunOnServers() {
+        Map<String, LoadTestResult> results = new LoadTest()
+            .path("/hello")
+            .threads(2)
+            .warmup(200, TimeUnit.MILLISECONDS)
+            .duration(500, TimeUnit.MILLISECONDS)
+            .runOnServers(() -> {
+                Application application = new Application();
+                application.GET("/hello", routeContext -> routeContext.send("hello"));
+
+                return application;
+            });
+
+        // pippo-jetty is on the test classpath
+        assertTrue(results.toString(), results.containsKey("JettyServer"));
+        for (LoadTestResult result : results.values()) {
+            assertTrue(result.getRequests() > 0);
+            assertEquals(0, result.getErrors());
+        }
+    }
+
+    @Test(timeout = 10_000)
+    public void testHungServer() throws IOException {
+        // accepts the connections but never answers
+        try (ServerSocket serverSocket = new ServerSocket(0)) {
+            Thread acceptor = startAcceptor(serverSocket, null);
+            LoadTestResult result = new LoadTest()
+                .threads(1)
+                .warmup(0, TimeUnit.SECONDS)
+                .duration(200, TimeUnit.MILLISECONDS)
+                .timeout(100, TimeUnit.MILLISECONDS)
+                .run("hung", serverSocket.getLocalPort());
+
+            assertEquals(0, result.getRequests());
+            assertTrue(result.getErrors() > 0);
+            acceptor.interrupt();
+        }
+    }
+
+    @Test(timeout = 10_000)
+    public void testMalformedStatusLine() throws IOException {
+        try (ServerSocket serverSocket = new ServerSocket(0)) {
+            Thread acceptor = startAcceptor(serverSocket, "HTTP/1.1 OK\r\n\r\n");
+            LoadTestResult result = new LoadTest()
+                .threads(1)
+                .warmup(0, TimeUnit.SECONDS)
+                .duration(200, TimeUnit.MILLISECONDS)
+                .timeout(100, TimeUnit.MILLISECONDS)
+                .run("malformed", serverSocket.getLocalPort());
+
+            assertEquals(0, result.getRequests());
+            assertTrue(result.getErrors() > 0);
+            acceptor.interrupt();
+        }
+    }
+
+    /**
+     * Accepts the connections and writes a response (if any) for each of them.
+     */
+    private static Thread startAcceptor(ServerSocket serverSocket, String response) {
+        Thread thread = new Thread(() -> {
+            while (!serverSocket.isClosed()) {
+                try {
+                    Socket socket = serverSocket.accept();
+                    if (response != null) {
+                        socket.getOutputStream().write(response.getBytes(StandardCharsets.US_ASCII));
+                        socket.getOutputStream().flush();
+                    }
+                } catch (IOException e) {
+                    // closed
+                }
+            }
+        });
+        thread.setDaemon(true);
+        thread.start();
+
+        return thread;
+    }
+
+}